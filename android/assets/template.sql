@@ -3,22 +3,25 @@
 -- by jooq gradle task to generate schema sources
 
 CREATE TABLE IF NOT EXISTS songs (
-    id              INTEGER PRIMARY KEY AUTOINCREMENT,
-    pack            TEXT NOT NULL,
-    directory       TEXT NOT NULL,
-    hash            TEXT NOT NULL,
-    sim_path        TEXT NOT NULL,
-    format          TEXT NOT NULL,
-    title           TEXT NOT NULL,
-    subtitle        TEXT,
-    artist          TEXT,
-    genre           TEXT,
-    banner_path     TEXT,
-    background_path TEXT,
-    album           TEXT,
-    music_path      TEXT NOT NULL,
-    sample_start    REAL DEFAULT 0,
-    sample_length   REAL,
+    id                      INTEGER PRIMARY KEY AUTOINCREMENT,
+    pack                    TEXT NOT NULL,
+    directory               TEXT NOT NULL,
+    hash                    TEXT NOT NULL,
+    sim_path                TEXT NOT NULL,
+    sim_length              BIGINT NOT NULL,
+    sim_last_modified       BIGINT NOT NULL,
+    directory_last_modified BIGINT NOT NULL,
+    format                  TEXT NOT NULL,
+    title                   TEXT NOT NULL,
+    subtitle                TEXT,
+    artist                  TEXT,
+    genre                   TEXT,
+    banner_path             TEXT,
+    background_path         TEXT,
+    album                   TEXT,
+    music_path              TEXT NOT NULL,
+    sample_start            REAL DEFAULT 0,
+    sample_length           REAL,
     UNIQUE (pack, directory)
 );
 
@@ -26,19 +29,39 @@ CREATE TABLE IF NOT EXISTS charts (
     id                  TEXT PRIMARY KEY,
     song_id             INTEGER NOT NULL,
     hash                TEXT NOT NULL,
+    type                TEXT NOT NULL,
     difficulty_class    TEXT,
     difficulty_meter    INTEGER,
     display_bpm         TEXT,
+    min_bpm             REAL,
+    max_bpm             REAL,
     name                TEXT,
     description         TEXT,
     credit              TEXT,
+    data_offset         BIGINT,     -- Position of the chart data inside the sim file in bytes
+    data_length         INTEGER,    -- Length of the chart data in bytes
+    dominant_bpm        REAL,       -- Bpm played for the longest time
     FOREIGN KEY (song_id)
         REFERENCES songs (id)
             ON UPDATE CASCADE
             ON DELETE CASCADE
 );
 
+-- Full-text index of songs used by text search, rowid is the song id.
+-- Kept in sync by the song indexer.
+CREATE VIRTUAL TABLE IF NOT EXISTS songs_search USING fts5 (
+    title,
+    subtitle,
+    artist,
+    genre,
+    album,
+    pack,
+    prefix = '1 2 3',
+    tokenize = 'unicode61 remove_diacritics 2'
+);
 
-
-
-
+-- Indexes used by song search. Keys end with the song id to support keyset pagination.
+CREATE INDEX IF NOT EXISTS songs_title ON songs (lower(title), id);
+CREATE INDEX IF NOT EXISTS songs_artist ON songs (lower(coalesce(artist, '')), id);
+CREATE INDEX IF NOT EXISTS songs_pack ON songs (pack, lower(title), id);
+CREATE INDEX IF NOT EXISTS charts_song ON charts (song_id, type, difficulty_class, difficulty_meter);
@@ -26,6 +26,7 @@ import com.badlogic.gdx.Application;
 import com.badlogic.gdx.ApplicationListener;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.FPSLogger;
 import com.badlogic.gdx.graphics.GL20;
 import net.sync.game.database.DatabaseManager;
@@ -38,6 +39,8 @@ import net.sync.game.ui.screen.play.PlayScreen;
 import net.sync.game.util.Disposer;
 import net.sync.game.util.concurrent.ExecutorManager;
 
+import java.io.IOException;
+
 public class Game implements ApplicationListener {
 	public static String INPUT_PATH;
 
@@ -79,7 +82,15 @@ public class Game implements ApplicationListener {
 		this.players = new PlayerManager();
 
 		//TODO test
-		this.songs.index(Gdx.files.absolute("E:/Games/StepMania 5/Songs"));
+		FileHandle songsDirectory = Gdx.files.absolute("E:/Games/StepMania 5/Songs");
+		this.songs.index(songsDirectory);
+		if(Gdx.app.getType() == Application.ApplicationType.Desktop && songsDirectory.isDirectory()) {
+			try {
+				this.songs.watch(songsDirectory);
+			} catch(IOException e) {
+				Gdx.app.error("Game", "Cannot watch songs folder", e);
+			}
+		}
 
 		//Show test screen TODO
 		if(Gdx.app.getType() != Application.ApplicationType.Android)
@@ -22,9 +22,11 @@
 
 package net.sync.game;
 
+import net.sync.game.song.sim.SimFileDecoder;
 import net.sync.game.song.sim.SimFormat;
 import net.sync.game.ui.ScreenCachePolicy;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -37,6 +39,9 @@ public class GameSettings {
      * higher priority have higher indexes).**/
     public List<SimFormat> simFormatPriorityList = new ArrayList<>();
 
+    /** Charsets tried in order to decode sim files that are not UTF-8 and don't have a byte order mark. **/
+    public List<Charset> simFileCharsets = new ArrayList<>(SimFileDecoder.DEFAULT_FALLBACK_CHARSETS);
+
     private ScreenCachePolicy screenCachePolicy = ScreenCachePolicy.DISPOSE_ON_HIDE;
 
     public GameSettings() {
@@ -56,6 +61,14 @@ public class GameSettings {
         return simFormatPriorityList.indexOf(format);
     }
 
+    /**
+     * Get the charsets used to decode legacy sim files, in the order they are tried.
+     * @return the fallback charsets.
+     */
+    public List<Charset> getSimFileCharsets() {
+        return simFileCharsets;
+    }
+
     public ScreenCachePolicy getScreenCachePolicy() {
         return screenCachePolicy;
     }
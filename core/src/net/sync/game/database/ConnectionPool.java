@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.database;
+
+import com.badlogic.gdx.Gdx;
+import org.jooq.ConnectionProvider;
+import org.jooq.exception.DataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A jOOQ connection provider that keeps a bounded pool of reusable connections. Connections are opened
+ * on demand through the given data source and configured by executing the given statements (usually
+ * pragmas) once, when they are opened. When all connections are in use, acquiring a connection blocks
+ * until another thread releases one.
+ */
+public class ConnectionPool implements ConnectionProvider {
+    private DataSource dataSource;
+    private int maxSize;
+    private String[] setup;
+
+    private BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private List<Connection> connections = new ArrayList<>();
+    private boolean closed = false;
+
+    /**
+     * Creates a connection pool.
+     * @param dataSource the data source used to open connections.
+     * @param maxSize the max number of open connections, greater than 0.
+     * @param setup the statements to execute when a connection is opened.
+     */
+    public ConnectionPool(DataSource dataSource, int maxSize, String... setup) {
+        checkArgument(maxSize > 0, "maxSize must be greater than 0");
+        this.dataSource = dataSource;
+        this.maxSize = maxSize;
+        this.setup = setup;
+    }
+
+    @Override
+    public Connection acquire() throws DataAccessException {
+        Connection connection = idle.poll();
+        if(connection == null) {
+            connection = open();
+        }
+        if(connection == null) {
+            try {
+                connection = idle.take();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessException("Interrupted while waiting for a connection", e);
+            }
+        }
+        return connection;
+    }
+
+    @Override
+    public synchronized void release(Connection connection) throws DataAccessException {
+        if(closed) {
+            //Don't give back connections to a closed pool
+            try {
+                connection.close();
+            } catch(SQLException e) {
+                Gdx.app.error("Database", "Cannot close connection", e);
+            }
+            return;
+        }
+        idle.add(connection);
+    }
+
+    /**
+     * Closes every connection opened by the pool. Connections in use are closed too.
+     */
+    public synchronized void close() {
+        closed = true;
+        for(Connection connection : connections) {
+            try {
+                connection.close();
+            } catch(SQLException e) {
+                Gdx.app.error("Database", "Cannot close connection", e);
+            }
+        }
+        connections.clear();
+        idle.clear();
+    }
+
+    /**
+     * Opens and configures a new connection if the pool isn't full.
+     * @return the new connection or null if the pool is full.
+     * @throws DataAccessException if the connection cannot be opened or configured.
+     */
+    private synchronized Connection open() throws DataAccessException {
+        if(closed) {
+            throw new DataAccessException("Connection pool has been closed");
+        }
+        if(connections.size() >= maxSize) {
+            return null;
+        }
+        try {
+            Connection connection = dataSource.getConnection();
+            try(Statement statement = connection.createStatement()) {
+                for(String sql : setup) {
+                    statement.execute(sql);
+                }
+            } catch(SQLException e) {
+                connection.close();
+                throw e;
+            }
+            connections.add(connection);
+            return connection;
+        } catch(SQLException e) {
+            throw new DataAccessException("Cannot open connection", e);
+        }
+    }
+}
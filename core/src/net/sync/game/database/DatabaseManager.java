@@ -23,20 +23,40 @@
 package net.sync.game.database;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
 import com.google.common.base.Charsets;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ObjectArrays;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
 import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
 
 import javax.sql.DataSource;
 
 import static net.sync.game.Game.backend;
+import static net.sync.game.Game.disposer;
 import static org.jooq.impl.DSL.using;
 
-public class DatabaseManager {
-    private static int DATABASE_VERSION = 1;
+public class DatabaseManager implements Disposable {
+    private static int DATABASE_VERSION = 7;
+
+    /** Max number of connections used to read the database concurrently */
+    private static final int MAX_READERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /** Statements executed on every opened connection */
+    private static final String[] CONNECTION_SETUP = {
+            "PRAGMA journal_mode = WAL",         //Readers don't block the writer and vice versa
+            "PRAGMA synchronous = NORMAL",       //Safe with WAL, fsync only at checkpoints
+            "PRAGMA foreign_keys = ON",          //Enforce cascade deletes
+            "PRAGMA busy_timeout = 5000",
+            "PRAGMA cache_size = -8192",         //8 MiB page cache per connection
+            "PRAGMA mmap_size = 67108864"        //Map up to 64 MiB of the database file
+    };
+
+    private ConnectionPool writer;
+    private ConnectionPool readers;
 
     static {
         System.setProperty("org.jooq.no-logo", "true");
@@ -46,6 +66,13 @@ public class DatabaseManager {
      * Creates and initializes the database manager. Database will be created/updated if necessary
      */
     public DatabaseManager() {
+        disposer().manage(this);
+
+        //A single writer connection serializes writes, readers are only allowed to query
+        writer = new ConnectionPool(getDataSource(), 1, CONNECTION_SETUP);
+        readers = new ConnectionPool(getDataSource(), MAX_READERS,
+                ObjectArrays.concat(CONNECTION_SETUP, "PRAGMA query_only = ON"));
+
         int version = getDatabaseVersion();
         if(version == 0) {
             createDatabase();
@@ -55,13 +82,25 @@ public class DatabaseManager {
     }
 
     /**
-     * Creates a DSL executor with a configured connection that can be used
-     * directly to create and execute statements.
-     * @return a DSL executor with a configured connection.
+     * Creates a DSL executor that can be used directly to create and execute queries. Connections
+     * are taken from a pool of read only connections, so readers can run concurrently and while
+     * the database is being written.
+     * @return a DSL executor for read only statements.
      * @throws RuntimeException if the database cannot be opened
      */
     public DSLContext getDSL() {
-        return using(getDataSource(), getSQLDialect());
+        return using(readers, getSQLDialect());
+    }
+
+    /**
+     * Creates a DSL executor that can be used to create and execute statements that modify the
+     * database. There is a single writer connection, so writers wait for each other. Use a transaction
+     * to keep the connection for multiple statements.
+     * @return a DSL executor bound to the writer connection.
+     * @throws RuntimeException if the database cannot be opened
+     */
+    public DSLContext getWriterDSL() {
+        return using(writer, getSQLDialect());
     }
 
     /**
@@ -70,7 +109,7 @@ public class DatabaseManager {
      * @return the database version.
      */
     private int getDatabaseVersion() {
-        Result<Record> result = getDSL().fetch("PRAGMA user_version");
+        Result<Record> result = getWriterDSL().fetch("PRAGMA user_version");
         return result.isEmpty() ? 0 : result.get(0).get(0, Integer.class);
     }
 
@@ -83,17 +122,35 @@ public class DatabaseManager {
         script = script.replaceAll("--.*", "");
 
         //Execute the database generation script
-        for(String sql : Splitter.on(";").trimResults().omitEmptyStrings().split(script)) {
-            getDSL().execute(sql);
-        }
-
-        //Set database version
-        getDSL().execute("PRAGMA user_version = " + DATABASE_VERSION);
+        String finalScript = script;
+        getWriterDSL().transaction(configuration -> {
+            DSLContext database = DSL.using(configuration);
+            for(String sql : Splitter.on(";").trimResults().omitEmptyStrings().split(finalScript)) {
+                database.execute(sql);
+            }
+
+            //Set database version
+            database.execute("PRAGMA user_version = " + DATABASE_VERSION);
+        });
     }
 
     private void convertDatabase() {
-        //Convert legacy version of the database
-        //TODO
+        //Convert legacy version of the database.
+        //The database only holds the song index that can be rebuilt by scanning the song library
+        //so legacy tables are dropped and recreated from the template
+        getWriterDSL().transaction(configuration -> {
+            DSLContext database = DSL.using(configuration);
+            database.execute("DROP TABLE IF EXISTS songs_search");
+            database.execute("DROP TABLE IF EXISTS charts");
+            database.execute("DROP TABLE IF EXISTS songs");
+        });
+        createDatabase();
+    }
+
+    @Override
+    public void dispose() {
+        readers.close();
+        writer.close();
     }
 
     private DataSource getDataSource() {
@@ -0,0 +1,32 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package net.sync.game.database.schema;
+
+
+import net.sync.game.database.schema.tables.Charts;
+import org.jooq.Index;
+import org.jooq.OrderField;
+import org.jooq.impl.Internal;
+
+
+/**
+ * A class modelling indexes of tables of the <code></code> schema.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class Indexes {
+
+    // -------------------------------------------------------------------------
+    // INDEX definitions
+    // -------------------------------------------------------------------------
+
+    public static final Index CHARTS_SONG = Indexes0.CHARTS_SONG;
+
+    // -------------------------------------------------------------------------
+    // [#1459] distribute members to avoid static initialisers > 64kb
+    // -------------------------------------------------------------------------
+
+    private static class Indexes0 {
+        public static Index CHARTS_SONG = Internal.createIndex("charts_song", Charts.CHARTS, new OrderField[] { Charts.CHARTS.SONG_ID, Charts.CHARTS.TYPE, Charts.CHARTS.DIFFICULTY_CLASS, Charts.CHARTS.DIFFICULTY_METER }, false);
+    }
+}
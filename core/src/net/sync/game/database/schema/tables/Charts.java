@@ -5,6 +5,7 @@ package net.sync.game.database.schema.tables;
 
 
 import net.sync.game.database.schema.DefaultSchema;
+import net.sync.game.database.schema.Indexes;
 import net.sync.game.database.schema.Keys;
 import net.sync.game.database.schema.tables.records.ChartsRecord;
 import org.jooq.*;
@@ -21,7 +22,7 @@ import java.util.List;
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class Charts extends TableImpl<ChartsRecord> {
 
-    private static final long serialVersionUID = -728957503;
+    private static final long serialVersionUID = -1265043919;
 
     /**
      * The reference instance of <code>charts</code>
@@ -51,6 +52,11 @@ public class Charts extends TableImpl<ChartsRecord> {
      */
     public final TableField<ChartsRecord, String> HASH = createField(DSL.name("hash"), org.jooq.impl.SQLDataType.CLOB.nullable(false), this, "");
 
+    /**
+     * The column <code>charts.type</code>.
+     */
+    public final TableField<ChartsRecord, String> TYPE = createField(DSL.name("type"), org.jooq.impl.SQLDataType.CLOB.nullable(false), this, "");
+
     /**
      * The column <code>charts.difficulty_class</code>.
      */
@@ -66,6 +72,16 @@ public class Charts extends TableImpl<ChartsRecord> {
      */
     public final TableField<ChartsRecord, String> DISPLAY_BPM = createField(DSL.name("display_bpm"), org.jooq.impl.SQLDataType.CLOB, this, "");
 
+    /**
+     * The column <code>charts.min_bpm</code>.
+     */
+    public final TableField<ChartsRecord, Float> MIN_BPM = createField(DSL.name("min_bpm"), org.jooq.impl.SQLDataType.REAL, this, "");
+
+    /**
+     * The column <code>charts.max_bpm</code>.
+     */
+    public final TableField<ChartsRecord, Float> MAX_BPM = createField(DSL.name("max_bpm"), org.jooq.impl.SQLDataType.REAL, this, "");
+
     /**
      * The column <code>charts.name</code>.
      */
@@ -81,6 +97,21 @@ public class Charts extends TableImpl<ChartsRecord> {
      */
     public final TableField<ChartsRecord, String> CREDIT = createField(DSL.name("credit"), org.jooq.impl.SQLDataType.CLOB, this, "");
 
+    /**
+     * The column <code>charts.data_offset</code>.
+     */
+    public final TableField<ChartsRecord, Long> DATA_OFFSET = createField(DSL.name("data_offset"), org.jooq.impl.SQLDataType.BIGINT, this, "");
+
+    /**
+     * The column <code>charts.data_length</code>.
+     */
+    public final TableField<ChartsRecord, Integer> DATA_LENGTH = createField(DSL.name("data_length"), org.jooq.impl.SQLDataType.INTEGER, this, "");
+
+    /**
+     * The column <code>charts.dominant_bpm</code>.
+     */
+    public final TableField<ChartsRecord, Float> DOMINANT_BPM = createField(DSL.name("dominant_bpm"), org.jooq.impl.SQLDataType.REAL, this, "");
+
     /**
      * Create a <code>charts</code> table reference
      */
@@ -119,6 +150,11 @@ public class Charts extends TableImpl<ChartsRecord> {
         return DefaultSchema.DEFAULT_SCHEMA;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.<Index>asList(Indexes.CHARTS_SONG);
+    }
+
     @Override
     public UniqueKey<ChartsRecord> getPrimaryKey() {
         return Keys.PK_CHARTS;
@@ -165,11 +201,11 @@ public class Charts extends TableImpl<ChartsRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row9 type methods
+    // Row15 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row9<String, Integer, String, String, Integer, String, String, String, String> fieldsRow() {
-        return (Row9) super.fieldsRow();
+    public Row15<String, Integer, String, String, String, Integer, String, Float, Float, String, String, String, Long, Integer, Float> fieldsRow() {
+        return (Row15) super.fieldsRow();
     }
 }
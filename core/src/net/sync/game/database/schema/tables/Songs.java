@@ -21,7 +21,7 @@ import java.util.List;
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
 public class Songs extends TableImpl<SongsRecord> {
 
-    private static final long serialVersionUID = 843799987;
+    private static final long serialVersionUID = 433950246;
 
     /**
      * The reference instance of <code>songs</code>
@@ -61,6 +61,21 @@ public class Songs extends TableImpl<SongsRecord> {
      */
     public final TableField<SongsRecord, String> SIM_PATH = createField(DSL.name("sim_path"), org.jooq.impl.SQLDataType.CLOB.nullable(false), this, "");
 
+    /**
+     * The column <code>songs.sim_length</code>.
+     */
+    public final TableField<SongsRecord, Long> SIM_LENGTH = createField(DSL.name("sim_length"), org.jooq.impl.SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column <code>songs.sim_last_modified</code>.
+     */
+    public final TableField<SongsRecord, Long> SIM_LAST_MODIFIED = createField(DSL.name("sim_last_modified"), org.jooq.impl.SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column <code>songs.directory_last_modified</code>.
+     */
+    public final TableField<SongsRecord, Long> DIRECTORY_LAST_MODIFIED = createField(DSL.name("directory_last_modified"), org.jooq.impl.SQLDataType.BIGINT.nullable(false), this, "");
+
     /**
      * The column <code>songs.format</code>.
      */
@@ -196,11 +211,11 @@ public class Songs extends TableImpl<SongsRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row16 type methods
+    // Row19 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row16<Integer, String, String, String, String, String, String, String, String, String, String, String, String, String, Float, Float> fieldsRow() {
-        return (Row16) super.fieldsRow();
+    public Row19<Integer, String, String, String, String, Long, Long, Long, String, String, String, String, String, String, String, String, String, Float, Float> fieldsRow() {
+        return (Row19) super.fieldsRow();
     }
 }
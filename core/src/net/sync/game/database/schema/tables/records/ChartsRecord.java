@@ -7,8 +7,8 @@ package net.sync.game.database.schema.tables.records;
 import net.sync.game.database.schema.tables.Charts;
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record9;
-import org.jooq.Row9;
+import org.jooq.Record15;
+import org.jooq.Row15;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -16,9 +16,9 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements Record9<String, Integer, String, String, Integer, String, String, String, String> {
+public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements Record15<String, Integer, String, String, String, Integer, String, Float, Float, String, String, String, Long, Integer, Float> {
 
-    private static final long serialVersionUID = -336065885;
+    private static final long serialVersionUID = 2011338706;
 
     /**
      * Setter for <code>charts.id</code>.
@@ -62,88 +62,172 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
         return (String) get(2);
     }
 
+    /**
+     * Setter for <code>charts.type</code>.
+     */
+    public void setType(String value) {
+        set(3, value);
+    }
+
+    /**
+     * Getter for <code>charts.type</code>.
+     */
+    public String getType() {
+        return (String) get(3);
+    }
+
     /**
      * Setter for <code>charts.difficulty_class</code>.
      */
     public void setDifficultyClass(String value) {
-        set(3, value);
+        set(4, value);
     }
 
     /**
      * Getter for <code>charts.difficulty_class</code>.
      */
     public String getDifficultyClass() {
-        return (String) get(3);
+        return (String) get(4);
     }
 
     /**
      * Setter for <code>charts.difficulty_meter</code>.
      */
     public void setDifficultyMeter(Integer value) {
-        set(4, value);
+        set(5, value);
     }
 
     /**
      * Getter for <code>charts.difficulty_meter</code>.
      */
     public Integer getDifficultyMeter() {
-        return (Integer) get(4);
+        return (Integer) get(5);
     }
 
     /**
      * Setter for <code>charts.display_bpm</code>.
      */
     public void setDisplayBpm(String value) {
-        set(5, value);
+        set(6, value);
     }
 
     /**
      * Getter for <code>charts.display_bpm</code>.
      */
     public String getDisplayBpm() {
-        return (String) get(5);
+        return (String) get(6);
+    }
+
+    /**
+     * Setter for <code>charts.min_bpm</code>.
+     */
+    public void setMinBpm(Float value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>charts.min_bpm</code>.
+     */
+    public Float getMinBpm() {
+        return (Float) get(7);
+    }
+
+    /**
+     * Setter for <code>charts.max_bpm</code>.
+     */
+    public void setMaxBpm(Float value) {
+        set(8, value);
+    }
+
+    /**
+     * Getter for <code>charts.max_bpm</code>.
+     */
+    public Float getMaxBpm() {
+        return (Float) get(8);
     }
 
     /**
      * Setter for <code>charts.name</code>.
      */
     public void setName(String value) {
-        set(6, value);
+        set(9, value);
     }
 
     /**
      * Getter for <code>charts.name</code>.
      */
     public String getName() {
-        return (String) get(6);
+        return (String) get(9);
     }
 
     /**
      * Setter for <code>charts.description</code>.
      */
     public void setDescription(String value) {
-        set(7, value);
+        set(10, value);
     }
 
     /**
      * Getter for <code>charts.description</code>.
      */
     public String getDescription() {
-        return (String) get(7);
+        return (String) get(10);
     }
 
     /**
      * Setter for <code>charts.credit</code>.
      */
     public void setCredit(String value) {
-        set(8, value);
+        set(11, value);
     }
 
     /**
      * Getter for <code>charts.credit</code>.
      */
     public String getCredit() {
-        return (String) get(8);
+        return (String) get(11);
+    }
+
+    /**
+     * Setter for <code>charts.data_offset</code>.
+     */
+    public void setDataOffset(Long value) {
+        set(12, value);
+    }
+
+    /**
+     * Getter for <code>charts.data_offset</code>.
+     */
+    public Long getDataOffset() {
+        return (Long) get(12);
+    }
+
+    /**
+     * Setter for <code>charts.data_length</code>.
+     */
+    public void setDataLength(Integer value) {
+        set(13, value);
+    }
+
+    /**
+     * Getter for <code>charts.data_length</code>.
+     */
+    public Integer getDataLength() {
+        return (Integer) get(13);
+    }
+
+    /**
+     * Setter for <code>charts.dominant_bpm</code>.
+     */
+    public void setDominantBpm(Float value) {
+        set(14, value);
+    }
+
+    /**
+     * Getter for <code>charts.dominant_bpm</code>.
+     */
+    public Float getDominantBpm() {
+        return (Float) get(14);
     }
 
     // -------------------------------------------------------------------------
@@ -156,17 +240,17 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
     }
 
     // -------------------------------------------------------------------------
-    // Record9 type implementation
+    // Record15 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row9<String, Integer, String, String, Integer, String, String, String, String> fieldsRow() {
-        return (Row9) super.fieldsRow();
+    public Row15<String, Integer, String, String, String, Integer, String, Float, Float, String, String, String, Long, Integer, Float> fieldsRow() {
+        return (Row15) super.fieldsRow();
     }
 
     @Override
-    public Row9<String, Integer, String, String, Integer, String, String, String, String> valuesRow() {
-        return (Row9) super.valuesRow();
+    public Row15<String, Integer, String, String, String, Integer, String, Float, Float, String, String, String, Long, Integer, Float> valuesRow() {
+        return (Row15) super.valuesRow();
     }
 
     @Override
@@ -186,34 +270,64 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
 
     @Override
     public Field<String> field4() {
+        return Charts.CHARTS.TYPE;
+    }
+
+    @Override
+    public Field<String> field5() {
         return Charts.CHARTS.DIFFICULTY_CLASS;
     }
 
     @Override
-    public Field<Integer> field5() {
+    public Field<Integer> field6() {
         return Charts.CHARTS.DIFFICULTY_METER;
     }
 
     @Override
-    public Field<String> field6() {
+    public Field<String> field7() {
         return Charts.CHARTS.DISPLAY_BPM;
     }
 
     @Override
-    public Field<String> field7() {
+    public Field<Float> field8() {
+        return Charts.CHARTS.MIN_BPM;
+    }
+
+    @Override
+    public Field<Float> field9() {
+        return Charts.CHARTS.MAX_BPM;
+    }
+
+    @Override
+    public Field<String> field10() {
         return Charts.CHARTS.NAME;
     }
 
     @Override
-    public Field<String> field8() {
+    public Field<String> field11() {
         return Charts.CHARTS.DESCRIPTION;
     }
 
     @Override
-    public Field<String> field9() {
+    public Field<String> field12() {
         return Charts.CHARTS.CREDIT;
     }
 
+    @Override
+    public Field<Long> field13() {
+        return Charts.CHARTS.DATA_OFFSET;
+    }
+
+    @Override
+    public Field<Integer> field14() {
+        return Charts.CHARTS.DATA_LENGTH;
+    }
+
+    @Override
+    public Field<Float> field15() {
+        return Charts.CHARTS.DOMINANT_BPM;
+    }
+
     @Override
     public String component1() {
         return getId();
@@ -231,34 +345,64 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
 
     @Override
     public String component4() {
+        return getType();
+    }
+
+    @Override
+    public String component5() {
         return getDifficultyClass();
     }
 
     @Override
-    public Integer component5() {
+    public Integer component6() {
         return getDifficultyMeter();
     }
 
     @Override
-    public String component6() {
+    public String component7() {
         return getDisplayBpm();
     }
 
     @Override
-    public String component7() {
+    public Float component8() {
+        return getMinBpm();
+    }
+
+    @Override
+    public Float component9() {
+        return getMaxBpm();
+    }
+
+    @Override
+    public String component10() {
         return getName();
     }
 
     @Override
-    public String component8() {
+    public String component11() {
         return getDescription();
     }
 
     @Override
-    public String component9() {
+    public String component12() {
         return getCredit();
     }
 
+    @Override
+    public Long component13() {
+        return getDataOffset();
+    }
+
+    @Override
+    public Integer component14() {
+        return getDataLength();
+    }
+
+    @Override
+    public Float component15() {
+        return getDominantBpm();
+    }
+
     @Override
     public String value1() {
         return getId();
@@ -276,34 +420,64 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
 
     @Override
     public String value4() {
+        return getType();
+    }
+
+    @Override
+    public String value5() {
         return getDifficultyClass();
     }
 
     @Override
-    public Integer value5() {
+    public Integer value6() {
         return getDifficultyMeter();
     }
 
     @Override
-    public String value6() {
+    public String value7() {
         return getDisplayBpm();
     }
 
     @Override
-    public String value7() {
+    public Float value8() {
+        return getMinBpm();
+    }
+
+    @Override
+    public Float value9() {
+        return getMaxBpm();
+    }
+
+    @Override
+    public String value10() {
         return getName();
     }
 
     @Override
-    public String value8() {
+    public String value11() {
         return getDescription();
     }
 
     @Override
-    public String value9() {
+    public String value12() {
         return getCredit();
     }
 
+    @Override
+    public Long value13() {
+        return getDataOffset();
+    }
+
+    @Override
+    public Integer value14() {
+        return getDataLength();
+    }
+
+    @Override
+    public Float value15() {
+        return getDominantBpm();
+    }
+
     @Override
     public ChartsRecord value1(String value) {
         setId(value);
@@ -324,42 +498,78 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
 
     @Override
     public ChartsRecord value4(String value) {
+        setType(value);
+        return this;
+    }
+
+    @Override
+    public ChartsRecord value5(String value) {
         setDifficultyClass(value);
         return this;
     }
 
     @Override
-    public ChartsRecord value5(Integer value) {
+    public ChartsRecord value6(Integer value) {
         setDifficultyMeter(value);
         return this;
     }
 
     @Override
-    public ChartsRecord value6(String value) {
+    public ChartsRecord value7(String value) {
         setDisplayBpm(value);
         return this;
     }
 
     @Override
-    public ChartsRecord value7(String value) {
+    public ChartsRecord value8(Float value) {
+        setMinBpm(value);
+        return this;
+    }
+
+    @Override
+    public ChartsRecord value9(Float value) {
+        setMaxBpm(value);
+        return this;
+    }
+
+    @Override
+    public ChartsRecord value10(String value) {
         setName(value);
         return this;
     }
 
     @Override
-    public ChartsRecord value8(String value) {
+    public ChartsRecord value11(String value) {
         setDescription(value);
         return this;
     }
 
     @Override
-    public ChartsRecord value9(String value) {
+    public ChartsRecord value12(String value) {
         setCredit(value);
         return this;
     }
 
     @Override
-    public ChartsRecord values(String value1, Integer value2, String value3, String value4, Integer value5, String value6, String value7, String value8, String value9) {
+    public ChartsRecord value13(Long value) {
+        setDataOffset(value);
+        return this;
+    }
+
+    @Override
+    public ChartsRecord value14(Integer value) {
+        setDataLength(value);
+        return this;
+    }
+
+    @Override
+    public ChartsRecord value15(Float value) {
+        setDominantBpm(value);
+        return this;
+    }
+
+    @Override
+    public ChartsRecord values(String value1, Integer value2, String value3, String value4, String value5, Integer value6, String value7, Float value8, Float value9, String value10, String value11, String value12, Long value13, Integer value14, Float value15) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -369,6 +579,12 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
         value7(value7);
         value8(value8);
         value9(value9);
+        value10(value10);
+        value11(value11);
+        value12(value12);
+        value13(value13);
+        value14(value14);
+        value15(value15);
         return this;
     }
 
@@ -386,17 +602,23 @@ public class ChartsRecord extends UpdatableRecordImpl<ChartsRecord> implements R
     /**
      * Create a detached, initialised ChartsRecord
      */
-    public ChartsRecord(String id, Integer songId, String hash, String difficultyClass, Integer difficultyMeter, String displayBpm, String name, String description, String credit) {
+    public ChartsRecord(String id, Integer songId, String hash, String type, String difficultyClass, Integer difficultyMeter, String displayBpm, Float minBpm, Float maxBpm, String name, String description, String credit, Long dataOffset, Integer dataLength, Float dominantBpm) {
         super(Charts.CHARTS);
 
         set(0, id);
         set(1, songId);
         set(2, hash);
-        set(3, difficultyClass);
-        set(4, difficultyMeter);
-        set(5, displayBpm);
-        set(6, name);
-        set(7, description);
-        set(8, credit);
+        set(3, type);
+        set(4, difficultyClass);
+        set(5, difficultyMeter);
+        set(6, displayBpm);
+        set(7, minBpm);
+        set(8, maxBpm);
+        set(9, name);
+        set(10, description);
+        set(11, credit);
+        set(12, dataOffset);
+        set(13, dataLength);
+        set(14, dominantBpm);
     }
 }
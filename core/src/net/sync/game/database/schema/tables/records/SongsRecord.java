@@ -7,8 +7,8 @@ package net.sync.game.database.schema.tables.records;
 import net.sync.game.database.schema.tables.Songs;
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record16;
-import org.jooq.Row16;
+import org.jooq.Record19;
+import org.jooq.Row19;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -16,9 +16,9 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Record16<Integer, String, String, String, String, String, String, String, String, String, String, String, String, String, Float, Float> {
+public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Record19<Integer, String, String, String, String, Long, Long, Long, String, String, String, String, String, String, String, String, String, Float, Float> {
 
-    private static final long serialVersionUID = 1319455821;
+    private static final long serialVersionUID = 1790980883;
 
     /**
      * Setter for <code>songs.id</code>.
@@ -90,158 +90,200 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
         return (String) get(4);
     }
 
+    /**
+     * Setter for <code>songs.sim_length</code>.
+     */
+    public void setSimLength(Long value) {
+        set(5, value);
+    }
+
+    /**
+     * Getter for <code>songs.sim_length</code>.
+     */
+    public Long getSimLength() {
+        return (Long) get(5);
+    }
+
+    /**
+     * Setter for <code>songs.sim_last_modified</code>.
+     */
+    public void setSimLastModified(Long value) {
+        set(6, value);
+    }
+
+    /**
+     * Getter for <code>songs.sim_last_modified</code>.
+     */
+    public Long getSimLastModified() {
+        return (Long) get(6);
+    }
+
+    /**
+     * Setter for <code>songs.directory_last_modified</code>.
+     */
+    public void setDirectoryLastModified(Long value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>songs.directory_last_modified</code>.
+     */
+    public Long getDirectoryLastModified() {
+        return (Long) get(7);
+    }
+
     /**
      * Setter for <code>songs.format</code>.
      */
     public void setFormat(String value) {
-        set(5, value);
+        set(8, value);
     }
 
     /**
      * Getter for <code>songs.format</code>.
      */
     public String getFormat() {
-        return (String) get(5);
+        return (String) get(8);
     }
 
     /**
      * Setter for <code>songs.title</code>.
      */
     public void setTitle(String value) {
-        set(6, value);
+        set(9, value);
     }
 
     /**
      * Getter for <code>songs.title</code>.
      */
     public String getTitle() {
-        return (String) get(6);
+        return (String) get(9);
     }
 
     /**
      * Setter for <code>songs.subtitle</code>.
      */
     public void setSubtitle(String value) {
-        set(7, value);
+        set(10, value);
     }
 
     /**
      * Getter for <code>songs.subtitle</code>.
      */
     public String getSubtitle() {
-        return (String) get(7);
+        return (String) get(10);
     }
 
     /**
      * Setter for <code>songs.artist</code>.
      */
     public void setArtist(String value) {
-        set(8, value);
+        set(11, value);
     }
 
     /**
      * Getter for <code>songs.artist</code>.
      */
     public String getArtist() {
-        return (String) get(8);
+        return (String) get(11);
     }
 
     /**
      * Setter for <code>songs.genre</code>.
      */
     public void setGenre(String value) {
-        set(9, value);
+        set(12, value);
     }
 
     /**
      * Getter for <code>songs.genre</code>.
      */
     public String getGenre() {
-        return (String) get(9);
+        return (String) get(12);
     }
 
     /**
      * Setter for <code>songs.banner_path</code>.
      */
     public void setBannerPath(String value) {
-        set(10, value);
+        set(13, value);
     }
 
     /**
      * Getter for <code>songs.banner_path</code>.
      */
     public String getBannerPath() {
-        return (String) get(10);
+        return (String) get(13);
     }
 
     /**
      * Setter for <code>songs.background_path</code>.
      */
     public void setBackgroundPath(String value) {
-        set(11, value);
+        set(14, value);
     }
 
     /**
      * Getter for <code>songs.background_path</code>.
      */
     public String getBackgroundPath() {
-        return (String) get(11);
+        return (String) get(14);
     }
 
     /**
      * Setter for <code>songs.album</code>.
      */
     public void setAlbum(String value) {
-        set(12, value);
+        set(15, value);
     }
 
     /**
      * Getter for <code>songs.album</code>.
      */
     public String getAlbum() {
-        return (String) get(12);
+        return (String) get(15);
     }
 
     /**
      * Setter for <code>songs.music_path</code>.
      */
     public void setMusicPath(String value) {
-        set(13, value);
+        set(16, value);
     }
 
     /**
      * Getter for <code>songs.music_path</code>.
      */
     public String getMusicPath() {
-        return (String) get(13);
+        return (String) get(16);
     }
 
     /**
      * Setter for <code>songs.sample_start</code>.
      */
     public void setSampleStart(Float value) {
-        set(14, value);
+        set(17, value);
     }
 
     /**
      * Getter for <code>songs.sample_start</code>.
      */
     public Float getSampleStart() {
-        return (Float) get(14);
+        return (Float) get(17);
     }
 
     /**
      * Setter for <code>songs.sample_length</code>.
      */
     public void setSampleLength(Float value) {
-        set(15, value);
+        set(18, value);
     }
 
     /**
      * Getter for <code>songs.sample_length</code>.
      */
     public Float getSampleLength() {
-        return (Float) get(15);
+        return (Float) get(18);
     }
 
     // -------------------------------------------------------------------------
@@ -254,17 +296,17 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
     }
 
     // -------------------------------------------------------------------------
-    // Record16 type implementation
+    // Record19 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row16<Integer, String, String, String, String, String, String, String, String, String, String, String, String, String, Float, Float> fieldsRow() {
-        return (Row16) super.fieldsRow();
+    public Row19<Integer, String, String, String, String, Long, Long, Long, String, String, String, String, String, String, String, String, String, Float, Float> fieldsRow() {
+        return (Row19) super.fieldsRow();
     }
 
     @Override
-    public Row16<Integer, String, String, String, String, String, String, String, String, String, String, String, String, String, Float, Float> valuesRow() {
-        return (Row16) super.valuesRow();
+    public Row19<Integer, String, String, String, String, Long, Long, Long, String, String, String, String, String, String, String, String, String, Float, Float> valuesRow() {
+        return (Row19) super.valuesRow();
     }
 
     @Override
@@ -293,57 +335,72 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
     }
 
     @Override
-    public Field<String> field6() {
+    public Field<Long> field6() {
+        return Songs.SONGS.SIM_LENGTH;
+    }
+
+    @Override
+    public Field<Long> field7() {
+        return Songs.SONGS.SIM_LAST_MODIFIED;
+    }
+
+    @Override
+    public Field<Long> field8() {
+        return Songs.SONGS.DIRECTORY_LAST_MODIFIED;
+    }
+
+    @Override
+    public Field<String> field9() {
         return Songs.SONGS.FORMAT;
     }
 
     @Override
-    public Field<String> field7() {
+    public Field<String> field10() {
         return Songs.SONGS.TITLE;
     }
 
     @Override
-    public Field<String> field8() {
+    public Field<String> field11() {
         return Songs.SONGS.SUBTITLE;
     }
 
     @Override
-    public Field<String> field9() {
+    public Field<String> field12() {
         return Songs.SONGS.ARTIST;
     }
 
     @Override
-    public Field<String> field10() {
+    public Field<String> field13() {
         return Songs.SONGS.GENRE;
     }
 
     @Override
-    public Field<String> field11() {
+    public Field<String> field14() {
         return Songs.SONGS.BANNER_PATH;
     }
 
     @Override
-    public Field<String> field12() {
+    public Field<String> field15() {
         return Songs.SONGS.BACKGROUND_PATH;
     }
 
     @Override
-    public Field<String> field13() {
+    public Field<String> field16() {
         return Songs.SONGS.ALBUM;
     }
 
     @Override
-    public Field<String> field14() {
+    public Field<String> field17() {
         return Songs.SONGS.MUSIC_PATH;
     }
 
     @Override
-    public Field<Float> field15() {
+    public Field<Float> field18() {
         return Songs.SONGS.SAMPLE_START;
     }
 
     @Override
-    public Field<Float> field16() {
+    public Field<Float> field19() {
         return Songs.SONGS.SAMPLE_LENGTH;
     }
 
@@ -373,57 +430,72 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
     }
 
     @Override
-    public String component6() {
+    public Long component6() {
+        return getSimLength();
+    }
+
+    @Override
+    public Long component7() {
+        return getSimLastModified();
+    }
+
+    @Override
+    public Long component8() {
+        return getDirectoryLastModified();
+    }
+
+    @Override
+    public String component9() {
         return getFormat();
     }
 
     @Override
-    public String component7() {
+    public String component10() {
         return getTitle();
     }
 
     @Override
-    public String component8() {
+    public String component11() {
         return getSubtitle();
     }
 
     @Override
-    public String component9() {
+    public String component12() {
         return getArtist();
     }
 
     @Override
-    public String component10() {
+    public String component13() {
         return getGenre();
     }
 
     @Override
-    public String component11() {
+    public String component14() {
         return getBannerPath();
     }
 
     @Override
-    public String component12() {
+    public String component15() {
         return getBackgroundPath();
     }
 
     @Override
-    public String component13() {
+    public String component16() {
         return getAlbum();
     }
 
     @Override
-    public String component14() {
+    public String component17() {
         return getMusicPath();
     }
 
     @Override
-    public Float component15() {
+    public Float component18() {
         return getSampleStart();
     }
 
     @Override
-    public Float component16() {
+    public Float component19() {
         return getSampleLength();
     }
 
@@ -453,57 +525,72 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
     }
 
     @Override
-    public String value6() {
+    public Long value6() {
+        return getSimLength();
+    }
+
+    @Override
+    public Long value7() {
+        return getSimLastModified();
+    }
+
+    @Override
+    public Long value8() {
+        return getDirectoryLastModified();
+    }
+
+    @Override
+    public String value9() {
         return getFormat();
     }
 
     @Override
-    public String value7() {
+    public String value10() {
         return getTitle();
     }
 
     @Override
-    public String value8() {
+    public String value11() {
         return getSubtitle();
     }
 
     @Override
-    public String value9() {
+    public String value12() {
         return getArtist();
     }
 
     @Override
-    public String value10() {
+    public String value13() {
         return getGenre();
     }
 
     @Override
-    public String value11() {
+    public String value14() {
         return getBannerPath();
     }
 
     @Override
-    public String value12() {
+    public String value15() {
         return getBackgroundPath();
     }
 
     @Override
-    public String value13() {
+    public String value16() {
         return getAlbum();
     }
 
     @Override
-    public String value14() {
+    public String value17() {
         return getMusicPath();
     }
 
     @Override
-    public Float value15() {
+    public Float value18() {
         return getSampleStart();
     }
 
     @Override
-    public Float value16() {
+    public Float value19() {
         return getSampleLength();
     }
 
@@ -538,73 +625,91 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
     }
 
     @Override
-    public SongsRecord value6(String value) {
+    public SongsRecord value6(Long value) {
+        setSimLength(value);
+        return this;
+    }
+
+    @Override
+    public SongsRecord value7(Long value) {
+        setSimLastModified(value);
+        return this;
+    }
+
+    @Override
+    public SongsRecord value8(Long value) {
+        setDirectoryLastModified(value);
+        return this;
+    }
+
+    @Override
+    public SongsRecord value9(String value) {
         setFormat(value);
         return this;
     }
 
     @Override
-    public SongsRecord value7(String value) {
+    public SongsRecord value10(String value) {
         setTitle(value);
         return this;
     }
 
     @Override
-    public SongsRecord value8(String value) {
+    public SongsRecord value11(String value) {
         setSubtitle(value);
         return this;
     }
 
     @Override
-    public SongsRecord value9(String value) {
+    public SongsRecord value12(String value) {
         setArtist(value);
         return this;
     }
 
     @Override
-    public SongsRecord value10(String value) {
+    public SongsRecord value13(String value) {
         setGenre(value);
         return this;
     }
 
     @Override
-    public SongsRecord value11(String value) {
+    public SongsRecord value14(String value) {
         setBannerPath(value);
         return this;
     }
 
     @Override
-    public SongsRecord value12(String value) {
+    public SongsRecord value15(String value) {
         setBackgroundPath(value);
         return this;
     }
 
     @Override
-    public SongsRecord value13(String value) {
+    public SongsRecord value16(String value) {
         setAlbum(value);
         return this;
     }
 
     @Override
-    public SongsRecord value14(String value) {
+    public SongsRecord value17(String value) {
         setMusicPath(value);
         return this;
     }
 
     @Override
-    public SongsRecord value15(Float value) {
+    public SongsRecord value18(Float value) {
         setSampleStart(value);
         return this;
     }
 
     @Override
-    public SongsRecord value16(Float value) {
+    public SongsRecord value19(Float value) {
         setSampleLength(value);
         return this;
     }
 
     @Override
-    public SongsRecord values(Integer value1, String value2, String value3, String value4, String value5, String value6, String value7, String value8, String value9, String value10, String value11, String value12, String value13, String value14, Float value15, Float value16) {
+    public SongsRecord values(Integer value1, String value2, String value3, String value4, String value5, Long value6, Long value7, Long value8, String value9, String value10, String value11, String value12, String value13, String value14, String value15, String value16, String value17, Float value18, Float value19) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -621,6 +726,9 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
         value14(value14);
         value15(value15);
         value16(value16);
+        value17(value17);
+        value18(value18);
+        value19(value19);
         return this;
     }
 
@@ -638,7 +746,7 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
     /**
      * Create a detached, initialised SongsRecord
      */
-    public SongsRecord(Integer id, String pack, String directory, String hash, String simPath, String format, String title, String subtitle, String artist, String genre, String bannerPath, String backgroundPath, String album, String musicPath, Float sampleStart, Float sampleLength) {
+    public SongsRecord(Integer id, String pack, String directory, String hash, String simPath, Long simLength, Long simLastModified, Long directoryLastModified, String format, String title, String subtitle, String artist, String genre, String bannerPath, String backgroundPath, String album, String musicPath, Float sampleStart, Float sampleLength) {
         super(Songs.SONGS);
 
         set(0, id);
@@ -646,16 +754,19 @@ public class SongsRecord extends UpdatableRecordImpl<SongsRecord> implements Rec
         set(2, directory);
         set(3, hash);
         set(4, simPath);
-        set(5, format);
-        set(6, title);
-        set(7, subtitle);
-        set(8, artist);
-        set(9, genre);
-        set(10, bannerPath);
-        set(11, backgroundPath);
-        set(12, album);
-        set(13, musicPath);
-        set(14, sampleStart);
-        set(15, sampleLength);
+        set(5, simLength);
+        set(6, simLastModified);
+        set(7, directoryLastModified);
+        set(8, format);
+        set(9, title);
+        set(10, subtitle);
+        set(11, artist);
+        set(12, genre);
+        set(13, bannerPath);
+        set(14, backgroundPath);
+        set(15, album);
+        set(16, musicPath);
+        set(17, sampleStart);
+        set(18, sampleLength);
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.sync.game.round;
+
+import net.sync.game.song.Beatmap;
+import net.sync.game.song.Timing;
+import net.sync.game.song.note.NotePanel;
+import net.sync.game.song.note.NoteType;
+
+/**
+ * Holds the times of the notes of a beatmap, computed once from the round timing. Times are
+ * stored in arrays parallel to the beatmap note arrays, so a time is identified by the note
+ * panel and index.
+ */
+public class NoteTimes {
+    /* Note times indexed by panel and note index */
+    private final double[][] times = new double[NotePanel.COUNT][];
+    /* Tail times indexed by panel and note index, same as the note time for notes without length */
+    private final double[][] tailTimes = new double[NotePanel.COUNT][];
+
+    /**
+     * @param beatmap the beatmap of the round.
+     * @param timing the timing of the round.
+     */
+    public NoteTimes(Beatmap beatmap, Timing timing) {
+        for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+            int count = beatmap.countNotes(panel);
+            times[panel] = new double[count];
+            tailTimes[panel] = new double[count];
+
+            //Notes are sorted, cursors step through the timing segments
+            Timing.Cursor cursor = timing.newCursor();
+            for(int index = 0; index < count; index++) {
+                times[panel][index] = cursor.getTimeAt(beatmap.getBeat(panel, index));
+            }
+            Timing.Cursor tailCursor = timing.newCursor();
+            for(int index = 0; index < count; index++) {
+                if(beatmap.isType(panel, index, NoteType.LENGTHY)) {
+                    double tailBeat = beatmap.getBeat(panel, index) + beatmap.getLength(panel, index);
+                    tailTimes[panel][index] = tailCursor.getTimeAt(tailBeat);
+                } else {
+                    tailTimes[panel][index] = times[panel][index];
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the note time, the time of the head of lengthy notes.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @return the note time in seconds relative to the start of the music track.
+     */
+    public double getTime(int panel, int index) {
+        return times[panel][index];
+    }
+
+    /**
+     * Gets the time of the tail of a lengthy note.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @return the tail time in seconds relative to the start of the music track, the note time
+     * if the note has no length.
+     */
+    public double getTailTime(int panel, int index) {
+        return tailTimes[panel][index];
+    }
+}
@@ -38,6 +38,7 @@ public class Round {
     private Song song;
     private Chart chart;
     private Timing timing;
+    private NoteTimes noteTimes;
     private Score score;
     private Life life;
     private Music music;
@@ -51,7 +52,8 @@ public class Round {
         this.chart = chart;
         this.music = music;
         this.musicPosition = new MusicPosition(music);
-        this.timing = new Timing(chart.timingData);
+        this.timing = chart.timing != null ? chart.timing : new Timing(chart.timingData);
+        this.noteTimes = new NoteTimes(chart.beatmap, timing);
         this.modifiers = new Modifiers();
         this.panelState = new PanelState();
         this.judge = new Judge( this, new JudgeCriteria());
@@ -87,6 +89,10 @@ public class Round {
         return timing;
     }
 
+    public NoteTimes getNoteTimes() {
+        return noteTimes;
+    }
+
     public Judge getJudge() {
         return judge;
     }
@@ -24,11 +24,13 @@ package net.sync.game.round.judge;
 
 import com.badlogic.gdx.utils.IntMap;
 import net.sync.game.GameMode;
+import net.sync.game.round.NoteTimes;
 import net.sync.game.round.PanelState;
 import net.sync.game.round.Round;
 import net.sync.game.song.Beatmap;
 import net.sync.game.song.Timing;
-import net.sync.game.song.note.*;
+import net.sync.game.song.note.NotePanel;
+import net.sync.game.song.note.NoteType;
 
 import static net.sync.game.Game.settings;
 import static net.sync.game.round.judge.JudgmentClass.*;
@@ -58,6 +60,12 @@ public class Judge implements PanelState.PanelStateListener {
      * if the time passed to update(...) is greater than this value. */
     private double evaluatedTime;
     private int[] panels;
+    /* Judgments of the round notes */
+    private NoteJudgments judgments;
+    /* Judgeable note cursors indexed by panel, kept between updates */
+    private Beatmap.Cursor[] cursors = new Beatmap.Cursor[NotePanel.COUNT];
+    /* Timing cursor, judged times move forward with the music */
+    private Timing.Cursor timing;
 
     /* Note specific judges */
     private TapNoteJudge tapNoteJudge;
@@ -81,6 +89,11 @@ public class Judge implements PanelState.PanelStateListener {
         this.round = round;
         this.criteria = criteria;
         this.panels = NotePanel.getModePanels(settings().getGameMode());
+        this.judgments = new NoteJudgments(getBeatmap());
+        this.timing = round.getTiming().newCursor();
+        for(int panel : panels) {
+            this.cursors[panel] = getBeatmap().newCursor(panel, NoteType.JUDGEABLE);
+        }
 
         //Init evaluated beats and time
         this.evaluatedBeats = new IntMap<>();
@@ -106,18 +119,17 @@ public class Judge implements PanelState.PanelStateListener {
      */
     public void update(double time) {
         if(time > evaluatedTime) {
-            Timing timing = getTiming();
-            Beatmap beatmap = getBeatmap();
+            Timing.Cursor timing = getTiming();
             double beat = timing.getBeatAt(time);
 
             for(int panel : panels) {
                 //Update all notes from last evaluated beat to current beat
-                double evalBeat = getEvaluatedBeat(panel);
-                JudgeableNote note = (JudgeableNote) beatmap.higherNote(panel, evalBeat, n -> n instanceof JudgeableNote);
-                while (note != null && note.getBeat() < beat) {
-                    NoteJudge judge = getNoteJudge(note);
-                    judge.update(panel, time, beat, note);
-                    note = (JudgeableNote) beatmap.higherNote(panel, note.getBeat(), n -> n instanceof JudgeableNote);
+                Beatmap.Cursor cursor = cursors[panel];
+                cursor.seekHigher(getEvaluatedBeat(panel));
+                while (cursor.hasNote() && cursor.getBeat() < beat) {
+                    NoteJudge judge = getNoteJudge(cursor.getType());
+                    judge.update(panel, time, beat, cursor.getIndex());
+                    cursor.next();
                 }
             }
             evaluatedTime = time;
@@ -137,43 +149,40 @@ public class Judge implements PanelState.PanelStateListener {
         //Update all notes before event time
         update(time);
 
-        Timing timing = getTiming();
+        Timing.Cursor timing = getTiming();
         Beatmap beatmap = getBeatmap();
         double eventBeat = timing.getBeatAt(time);
         double evalBeat = getEvaluatedBeat(panel);
 
         //Find next note to judge
-        JudgeableNote note;
+        int note;
         if(eventBeat < evalBeat) {
             //Judge note after eval beat
-            note = (JudgeableNote) beatmap.higherNote(panel, evalBeat, n -> n instanceof JudgeableNote);
+            note = beatmap.higherIndex(panel, evalBeat, NoteType.JUDGEABLE);
         } else {
-            JudgeableNote floorNote = (JudgeableNote) beatmap.floorNote(panel, eventBeat, n -> n instanceof JudgeableNote);
-            if(floorNote != null && floorNote.getBeat() > evalBeat) {
+            int floorNote = beatmap.floorIndex(panel, eventBeat, NoteType.JUDGEABLE);
+            if(floorNote != -1 && beatmap.getBeat(panel, floorNote) > evalBeat) {
                 //Judge floor note
                 note = floorNote;
             } else {
                 //Judge higher note
-                note = (JudgeableNote) beatmap.higherNote(panel, eventBeat, n -> n instanceof JudgeableNote);
+                note = beatmap.higherIndex(panel, eventBeat, NoteType.JUDGEABLE);
             }
         }
 
-        if(note != null) {
-            getNoteJudge(note).onPanelStateChange(panel, time, pressed, note);
+        if(note != -1) {
+            getNoteJudge(beatmap.getType(panel, note)).onPanelStateChange(panel, time, pressed, note);
         }
     }
 
-    private NoteJudge getNoteJudge(Note note) {
-        if(note instanceof TapNote)
-            return tapNoteJudge;
-        if(note instanceof HoldNote)
-            return holdNoteJudge;
-        if(note instanceof RollNote)
-            return rollNoteJudge;
-        if(note instanceof LiftNote)
-            return liftNoteJudge;
-        if(note instanceof MineNote)
-            return mineNoteJudge;
+    private NoteJudge getNoteJudge(byte type) {
+        switch(type) {
+            case NoteType.TAP:  return tapNoteJudge;
+            case NoteType.HOLD: return holdNoteJudge;
+            case NoteType.ROLL: return rollNoteJudge;
+            case NoteType.LIFT: return liftNoteJudge;
+            case NoteType.MINE: return mineNoteJudge;
+        }
         return null;
     }
 
@@ -201,8 +210,20 @@ public class Judge implements PanelState.PanelStateListener {
         return criteria;
     }
 
-    private Timing getTiming() {
-        return getRound().getTiming();
+    /**
+     * Get the judgments of the round notes.
+     * @return the note judgments.
+     */
+    public NoteJudgments getJudgments() {
+        return judgments;
+    }
+
+    private Timing.Cursor getTiming() {
+        return timing;
+    }
+
+    private NoteTimes getNoteTimes() {
+        return getRound().getNoteTimes();
     }
 
     private Beatmap getBeatmap() {
@@ -219,29 +240,29 @@ public class Judge implements PanelState.PanelStateListener {
          * @param panel the panel.
          * @param time the time in seconds relative to the start of the music track.
          * @param beat the beat.
-         * @param note the unjudged note.
+         * @param note the index of the unjudged note.
          */
-        public abstract void update(int panel, double time, double beat, JudgeableNote note);
+        public abstract void update(int panel, double time, double beat, int note);
 
         /**
          * Called when a panel changes state and update unjudged note status.
          * @param panel the panel.
          * @param time the time in seconds relative to the start of the music track.
-         * @param note the unjudged note.
+         * @param note the index of the unjudged note.
          */
-        public abstract void onPanelStateChange(int panel, double time, boolean pressed, JudgeableNote note);
+        public abstract void onPanelStateChange(int panel, double time, boolean pressed, int note);
 
         /**
          * Called when the judge emit a judgment.
          * @param panel the panel.
-         * @param note the time in seconds relative to the start of the music track.
+         * @param note the index of the judged note.
          * @param judgment the generated note judgment.
          */
-        public void emitJudgment(int panel, JudgeableNote note, Judgment judgment) {
+        public void emitJudgment(int panel, int note, Judgment judgment) {
             //Store judgment
-            note.setJudgment(judgment);
+            judgments.setJudgment(panel, note, judgment);
             //Move evaluated beat cursor
-            setEvaluatedBeat(panel, note.getBeat());
+            setEvaluatedBeat(panel, getBeatmap().getBeat(panel, note));
 
             lastJudgment = judgment;    //TODO temp
         }
@@ -249,17 +270,17 @@ public class Judge implements PanelState.PanelStateListener {
 
     private class TapNoteJudge extends NoteJudge {
         @Override
-        public void update(int panel, double time, double beat, JudgeableNote note) {
+        public void update(int panel, double time, double beat, int note) {
             Beatmap beatmap = getBeatmap();
-            Timing timing = getTiming();
-            double noteTime = timing.getTimeAt(note.getBeat());
+            NoteTimes noteTimes = getNoteTimes();
+            double noteTime = noteTimes.getTime(panel, note);
             double timingError = noteTime - time;
             double worstWindow = criteria.getWorstTapWindow();
-            Note higherNote = beatmap.higherNote(panel, note.getBeat(), n -> n instanceof JudgeableNote);
+            int higherNote = beatmap.nextIndex(panel, note, NoteType.JUDGEABLE);
 
-            if(higherNote != null && higherNote.getBeat() < beat) {
+            if(higherNote != -1 && beatmap.getBeat(panel, higherNote) < beat) {
                 //Next note surpassed current note
-                double higherNoteTime = timing.getTimeAt(higherNote.getBeat());
+                double higherNoteTime = noteTimes.getTime(panel, higherNote);
                 timingError = Math.max(noteTime - higherNoteTime, -worstWindow);
                 emitJudgment(panel, note, new TapJudgment(noteTime - timingError, timingError, MISS));
             } else if(timingError < -worstWindow) {
@@ -269,10 +290,9 @@ public class Judge implements PanelState.PanelStateListener {
         }
 
         @Override
-        public void onPanelStateChange(int panel, double time, boolean pressed, JudgeableNote note) {
+        public void onPanelStateChange(int panel, double time, boolean pressed, int note) {
             if(pressed) {
-                Timing timing = getTiming();
-                double noteTime = timing.getTimeAt(note.getBeat());
+                double noteTime = getNoteTimes().getTime(panel, note);
                 double timingError = noteTime - time;
                 JudgmentClass judgmentClass = getJudgmentClass(timingError);
                 if(judgmentClass != MISS) {
@@ -302,36 +322,36 @@ public class Judge implements PanelState.PanelStateListener {
 
     private abstract class LengthyNoteJudge extends TapNoteJudge {
         @Override
-        public void update(int panel, double time, double beat, JudgeableNote note) {
-            if (!note.hasJudgment()) {
+        public void update(int panel, double time, double beat, int note) {
+            if (!judgments.hasJudgment(panel, note)) {
                 //Update head
                 super.update(panel, time, beat, note);
             } else {
                 //Update trail
-                updateTrail(panel, time, beat, (JudgeableLengthyNote) note);
+                updateTrail(panel, time, beat, note);
             }
         }
 
         @Override
-        public void onPanelStateChange(int panel, double time, boolean pressed, JudgeableNote note) {
-            if(!note.hasJudgment()) {
+        public void onPanelStateChange(int panel, double time, boolean pressed, int note) {
+            if(!judgments.hasJudgment(panel, note)) {
                 //Handle state change on head
                 super.onPanelStateChange(panel, time, pressed, note);
             } else {
                 //Handle state change on trail
-                onPanelStateChangeTrail(panel, time, pressed, (JudgeableLengthyNote) note);
+                onPanelStateChangeTrail(panel, time, pressed, note);
             }
         }
 
-        public void updateTrail(int panel, double time, double beat, JudgeableLengthyNote note) {}
+        public void updateTrail(int panel, double time, double beat, int note) {}
 
-        public void onPanelStateChangeTrail(int panel, double time, boolean pressed, JudgeableLengthyNote note) {}
+        public void onPanelStateChangeTrail(int panel, double time, boolean pressed, int note) {}
 
         @Override
-        public void emitJudgment(int panel, JudgeableNote note, Judgment judgment) {
+        public void emitJudgment(int panel, int note, Judgment judgment) {
             if(judgment instanceof TapJudgment) {
                     //Head judgment
-                    note.setJudgment(judgment);
+                    judgments.setJudgment(panel, note, judgment);
 
                 lastJudgment = judgment;    //TODO temp
 
@@ -344,23 +364,21 @@ public class Judge implements PanelState.PanelStateListener {
 
             } else if(judgment instanceof TailJudgment){
                 //Tail judgment
-                JudgeableLengthyNote lengthyNote = (JudgeableLengthyNote) note;
-                lengthyNote.setTailJudgment((TailJudgment) judgment);
+                judgments.setTailJudgment(panel, note, (TailJudgment) judgment);
 
                 lastJudgment = judgment;    //TODO temp
 
                 //Move evaluated beat cursor
-                setEvaluatedBeat(panel, note.getBeat());
+                setEvaluatedBeat(panel, getBeatmap().getBeat(panel, note));
             }
         }
     }
 
     private class HoldNoteJudge extends LengthyNoteJudge {
         @Override
-        public void updateTrail(int panel, double time, double beat, JudgeableLengthyNote note) {
+        public void updateTrail(int panel, double time, double beat, int note) {
             PanelState states = getPanelState();
-            Timing timing = getTiming();
-            double tailTime = timing.getTimeAt(note.getBeat() + note.getLength());
+            double tailTime = getNoteTimes().getTailTime(panel, note);
             boolean insideTrail = time < tailTime;
 
             if(states.isReleasedAt(panel, time)) {
@@ -385,10 +403,9 @@ public class Judge implements PanelState.PanelStateListener {
 
     private class RollNoteJudge extends LengthyNoteJudge {
         @Override
-        public void updateTrail(int panel, double time, double beat, JudgeableLengthyNote note) {
+        public void updateTrail(int panel, double time, double beat, int note) {
             PanelState states = getPanelState();
-            Timing timing = getTiming();
-            double tailTime = timing.getTimeAt(note.getBeat() + note.getLength());
+            double tailTime = getNoteTimes().getTailTime(panel, note);
             double lowerTimePressed = states.getLowerTimePressed(panel, time);
             double refTime = Math.min(time, tailTime);
 
@@ -404,17 +421,17 @@ public class Judge implements PanelState.PanelStateListener {
 
     private class MineNoteJudge extends NoteJudge {
         @Override
-        public void update(int panel, double time, double beat, JudgeableNote note) {
+        public void update(int panel, double time, double beat, int note) {
             //Check if previous note has been judged
-            JudgeableNote prevNote = (JudgeableNote) getBeatmap().lowerNote(panel, note.getBeat(), n -> n instanceof JudgeableNote);
-            if(prevNote != null && prevNote.getBeat() < getEvaluatedBeat(panel)) {
+            Beatmap beatmap = getBeatmap();
+            int prevNote = beatmap.previousIndex(panel, note, NoteType.JUDGEABLE);
+            if(prevNote != -1 && beatmap.getBeat(panel, prevNote) < getEvaluatedBeat(panel)) {
                 //Prev note not judged yet
                 return;
             }
 
             PanelState states = getPanelState();
-            Timing timing = getTiming();
-            double mineWindowEnd = timing.getTimeAt(note.getBeat());
+            double mineWindowEnd = getNoteTimes().getTime(panel, note);
             double mineWindowStart = mineWindowEnd - criteria.getMineWindow();
 
             if(time > mineWindowStart) {
@@ -437,17 +454,17 @@ public class Judge implements PanelState.PanelStateListener {
         }
 
         @Override
-        public void onPanelStateChange(int panel, double time, boolean pressed, JudgeableNote note) {}
+        public void onPanelStateChange(int panel, double time, boolean pressed, int note) {}
     }
 
     private class LiftNoteJudge extends NoteJudge {
         @Override
-        public void update(int panel, double time, double beat, JudgeableNote note) {
+        public void update(int panel, double time, double beat, int note) {
             //TODO
         }
 
         @Override
-        public void onPanelStateChange(int panel, double time, boolean pressed, JudgeableNote note) {
+        public void onPanelStateChange(int panel, double time, boolean pressed, int note) {
             //TODO
         }
     }
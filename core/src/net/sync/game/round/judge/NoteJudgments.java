@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.sync.game.round.judge;
+
+import net.sync.game.song.Beatmap;
+import net.sync.game.song.note.NotePanel;
+
+/**
+ * Holds the judgments of the notes of a beatmap during a round. Judgments are stored in arrays
+ * parallel to the beatmap note arrays, so a judgment is identified by the note panel and index.
+ */
+public class NoteJudgments {
+    /* Judgments indexed by panel and note index. Holds the head judgment of lengthy notes */
+    private final Judgment[][] judgments = new Judgment[NotePanel.COUNT][];
+    /* Tail judgments of lengthy notes indexed by panel and note index */
+    private final TailJudgment[][] tailJudgments = new TailJudgment[NotePanel.COUNT][];
+
+    /**
+     * @param beatmap the beatmap of the round.
+     */
+    public NoteJudgments(Beatmap beatmap) {
+        for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+            judgments[panel] = new Judgment[beatmap.countNotes(panel)];
+            tailJudgments[panel] = new TailJudgment[beatmap.countNotes(panel)];
+        }
+    }
+
+    /**
+     * Get the note judgment. Null will be returned if the note has not
+     * been judged yet.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @return the note judgment, or null if the note has not been judged.
+     */
+    public Judgment getJudgment(int panel, int index) {
+        return judgments[panel][index];
+    }
+
+    /**
+     * Set the note judgment.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @param judgment the note judgment.
+     */
+    public void setJudgment(int panel, int index, Judgment judgment) {
+        judgments[panel][index] = judgment;
+    }
+
+    /**
+     * Check if the note has been judged.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @return true if the note has been judged.
+     */
+    public boolean hasJudgment(int panel, int index) {
+        return judgments[panel][index] != null;
+    }
+
+    /**
+     * Gets the tail judgment of a lengthy note. Null will be returned if the
+     * tail has not been judged yet.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @return the tail judgment or null if the tail has not been judged yet.
+     */
+    public TailJudgment getTailJudgment(int panel, int index) {
+        return tailJudgments[panel][index];
+    }
+
+    /**
+     * Sets the tail judgment of a lengthy note.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @param judgment the tail judgment to set.
+     */
+    public void setTailJudgment(int panel, int index, TailJudgment judgment) {
+        tailJudgments[panel][index] = judgment;
+    }
+
+    /**
+     * Checks if the tail of a lengthy note has been judged.
+     * @param panel the note panel.
+     * @param index the note index.
+     * @return true if the note tail has been judged.
+     */
+    public boolean hasTailJudgment(int panel, int index) {
+        return tailJudgments[panel][index] != null;
+    }
+}
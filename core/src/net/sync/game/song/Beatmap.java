@@ -22,253 +22,290 @@
 
 package net.sync.game.song;
 
-import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.IntMap;
-import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
-import net.sync.game.song.note.ChordNote;
-import net.sync.game.song.note.Note;
-
-import java.util.Map;
-import java.util.TreeMap;
-
-//TODO implement comparator with tolerance
-//TODO Define tolerance in game settings?
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+import net.sync.game.song.note.NotePanel;
+import net.sync.game.song.note.NoteResolution;
+import net.sync.game.song.note.NoteType;
+
+import java.util.Arrays;
+
+/**
+ * An immutable beatmap. Notes of each panel are stored in parallel arrays sorted by beat: ticks, types
+ * and lengths. Beats are stored as an integer count of {@link #TICKS_PER_BEAT ticks}, so notes computed
+ * with rounding errors land on the same tick. Beats given to note lookups are rounded to the closest
+ * tick as well, so lookups compare ticks and are exact.
+ * <p> A note is identified by its panel and its index inside the panel arrays. Notes are found by
+ * binary search and iterated by stepping the index. A {@link Cursor} can be used to walk
+ * the notes of a panel without searching the beatmap at every step. </p>
+ * <p> Notes of all the panels that share the same tick form a row. Rows are indexed when the beatmap
+ * is built, each row holds the masks of the panels and of the types of its notes, so chords are
+ * found without looking at every panel. </p>
+ * <p> Beatmaps are built with a {@link Builder}. Judgments are not part of the beatmap, a beatmap
+ * can be shared by many rounds. </p>
+ */
 public class Beatmap {
-    /* The map key is the note panel and the value is a TreeMap containing notes.
-     * TreeMap key is the note beat and value is the note. */
-    private IntMap<TreeMap<Double, Note>> panels = new IntMap<>();
+    /** Number of ticks in a beat, four times the {@link NoteResolution#NOTE_192ND} resolution */
+    public static final int TICKS_PER_BEAT = 192;
+
+    private static final int[] NO_TICKS = new int[0];
+    private static final byte[] NO_TYPES = new byte[0];
+
+    /* Note arrays indexed by panel, panels without notes have empty arrays */
+    private final int[][] ticks = new int[NotePanel.COUNT][];
+    private final byte[][] types = new byte[NotePanel.COUNT][];
+    private final int[][] lengths = new int[NotePanel.COUNT][];
+
+    /* Row arrays sorted by tick, masks have the bit 1 << panel or 1 << type set */
+    private int[] rowTicks;
+    private int[] rowPanels;
+    private int[] rowChordPanels;
+    private int[] rowTypes;
+
+    private Beatmap() {}
 
     /**
-     * Gets the note at the given beat on the given panel.
-     * @param panel the note panel
+     * Converts a beat to the closest tick.
      * @param beat the beat
-     * @return the note at the given beat, or null if there is no note at the given beat.
+     * @return the tick.
      */
-    public Note getNote(int panel, double beat) {
-        TreeMap<Double, Note> notes = panels.get(panel);
-        return notes != null ? notes.get(beat) : null;
+    public static int toTick(double beat) {
+        return Ints.saturatedCast(Math.round(beat * TICKS_PER_BEAT));
     }
 
     /**
-     * Gets all notes at the given beat that are valid for the given predicate.
-     * @param beat the beat
-     * @param predicate a predicate that checks if the note is valid, never null.
-     * @return all notes at the given beat that are valid for the given criteria.
-     */
-    public Array<Note> getNotes(double beat, Predicate<Note> predicate) {
-        Array<Note> notes = new Array<>();
-        IntMap.Keys keys = panels.keys();
-        while(keys.hasNext) {
-            int panel = keys.next();
-            Note note = getNote(panel, beat);
-            if(note != null && predicate.apply(note)) {
-                notes.add(note);
-            }
-        }
-        return notes;
+     * Converts a tick to a beat.
+     * @param tick the tick
+     * @return the beat.
+     */
+    public static double toBeat(int tick) {
+        return tick / (double) TICKS_PER_BEAT;
     }
 
     /**
-     * Gets all notes at the given beat.
-     * @param beat the beat
-     * @return all notes at the given beat.
+     * Returns the count of notes for the given panel.
+     * @param panel the note panel
+     * @return the notes count
      */
-    public Array<Note> getNotes(double beat) {
-        return getNotes(beat, Predicates.alwaysTrue());
+    public int countNotes(int panel) {
+        return ticks[panel].length;
     }
 
     /**
-     * Returns the note associated with the greatest beat less than or equal
-     * to the given beat, or null if there is no such note.
+     * Checks if there are notes on the given panel.
      * @param panel the note panel
-     * @param beat the beat
-     * @param predicate a predicate that checks if the note is valid, never null.
-     * @return a note with the greatest beat less than or equal to the given beat, or null if there is no such note
-     */
-    public Note floorNote(int panel, double beat, Predicate<Note> predicate) {
-        Note note;
-        TreeMap<Double, Note> notes = panels.get(panel);
-        if(notes != null) {
-            Map.Entry<Double, Note> entry = notes.floorEntry(beat);
-            while(entry != null) {
-                note = entry.getValue();
-                if(predicate.apply(note)) {
-                    return note;
-                }
-                entry = notes.lowerEntry(entry.getKey());
-            }
-        }
-        return null;
+     * @return true if there are notes on the given panel, false otherwise
+     */
+    public boolean hasNotes(int panel) {
+        return countNotes(panel) > 0;
     }
 
     /**
-     * Returns the note associated with the greatest beat less than or equal
-     * to the given beat, or null if there is no such note.
      * @param panel the note panel
-     * @param beat the beat
-     * @return a note with the greatest beat less than or equal to the given beat, or null if there is no such note
+     * @param index the note index
+     * @return the note beat.
      */
-    public Note floorNote(int panel, double beat) {
-        return floorNote(panel, beat, Predicates.alwaysTrue());
+    public double getBeat(int panel, int index) {
+        return toBeat(ticks[panel][index]);
     }
 
     /**
-     * Returns the note associated with the least beat greater than or equal
-     * to the given beat, or null if there is no such note.
      * @param panel the note panel
-     * @param beat the beat
-     * @param predicate a predicate that checks if the note is valid, never null.
-     * @return a note with the least beat greater than or equal to beat, or null if there is no such note.
-     */
-    public Note ceilingNote(int panel, double beat, Predicate<Note> predicate) {
-        Note note;
-        TreeMap<Double, Note> notes = panels.get(panel);
-        if(notes != null) {
-            Map.Entry<Double, Note> entry = notes.ceilingEntry(beat);
-            while(entry != null) {
-                note = entry.getValue();
-                if(predicate.apply(note)) {
-                    return note;
-                }
-                entry = notes.higherEntry(entry.getKey());
-            }
-        }
-        return null;
+     * @param index the note index
+     * @return the note tick.
+     */
+    public int getTick(int panel, int index) {
+        return ticks[panel][index];
     }
 
     /**
-     * Returns the note associated with the least beat greater than or equal
-     * to the given beat, or null if there is no such note.
      * @param panel the note panel
-     * @param beat the beat
-     * @return a note with the least beat greater than or equal to beat, or null if there is no such note.
+     * @param index the note index
+     * @return the note type, one of the {@link NoteType} values.
      */
-    public Note ceilingNote(int panel, double beat) {
-        return ceilingNote(panel, beat, Predicates.alwaysTrue());
+    public byte getType(int panel, int index) {
+        return types[panel][index];
     }
 
     /**
-     * Returns the note associated with the least beat strictly greater
-     * than the given beat, or null if there is no such note.
      * @param panel the note panel
-     * @param beat the beat
-     * @param predicate a predicate that checks if the note is valid, never null.
-     * @return a note with the least beat greater than beat, or null if there is no such note
-     */
-    public Note higherNote(int panel, double beat, Predicate<Note> predicate) {
-        Note note;
-        TreeMap<Double, Note> notes = panels.get(panel);
-        if(notes != null) {
-            Map.Entry<Double, Note> entry = notes.higherEntry(beat);
-            while(entry != null) {
-                note = entry.getValue();
-                if(predicate.apply(note)) {
-                    return note;
-                }
-                entry = notes.higherEntry(entry.getKey());
-            }
-        }
-        return null;
+     * @param index the note index
+     * @return the note length in beats, 0 if the note isn't a lengthy note.
+     */
+    public double getLength(int panel, int index) {
+        return toBeat(lengths[panel][index]);
+    }
+
+    /**
+     * @param panel the note panel
+     * @param index the note index
+     * @return the note length in ticks, 0 if the note isn't a lengthy note.
+     */
+    public int getTickLength(int panel, int index) {
+        return lengths[panel][index];
     }
 
     /**
-     * Returns the note associated with the least beat strictly greater
-     * than the given beat, or null if there is no such note.
+     * Gets the note resolution calculated from the note beat.
+     * @param panel the note panel
+     * @param index the note index
+     * @return the note resolution.
+     */
+    public NoteResolution getResolution(int panel, int index) {
+        return NoteResolution.valueFromBeat(getBeat(panel, index));
+    }
+
+    /**
+     * Checks if the note is of one of the given types.
+     * @param panel the note panel
+     * @param index the note index
+     * @param types the mask of the {@link NoteType types}.
+     * @return true if the note type is in the mask.
+     */
+    public boolean isType(int panel, int index, int types) {
+        return NoteType.is(this.types[panel][index], types);
+    }
+
+    /**
+     * Gets the index of the note at the given beat on the given panel. The beat is rounded to the
+     * closest tick.
      * @param panel the note panel
      * @param beat the beat
-     * @return a note with the least beat greater than beat, or null if there is no such note
+     * @return the index of the note at the given beat, or -1 if there is no note at the given beat.
      */
-    public Note higherNote(int panel, double beat) {
-        return higherNote(panel, beat, Predicates.alwaysTrue());
+    public int indexOf(int panel, double beat) {
+        return indexOfTick(panel, toTick(beat));
     }
 
     /**
-     * Returns the note on the given panel associated with the greatest key strictly
-     * less than the given beat, or null if there is no such note.
+     * Gets the index of the note at the given tick on the given panel.
+     * @param panel the note panel
+     * @param tick the tick
+     * @return the index of the note at the given tick, or -1 if there is no note at the given tick.
+     */
+    public int indexOfTick(int panel, int tick) {
+        int index = Arrays.binarySearch(ticks[panel], tick);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Returns the index of the note with the greatest beat less than or equal to the given beat.
      * @param panel the note panel
      * @param beat the beat
-     * @param predicate a predicate that checks if the note is valid, never null.
-     * @return a note with the greatest beat less than given beat, or null if there is no such note
-     */
-    public Note lowerNote(int panel, double beat, Predicate<Note> predicate) {
-        Note note = null;
-        TreeMap<Double, Note> notes = panels.get(panel);
-        if(notes != null) {
-            Map.Entry<Double, Note> entry = notes.lowerEntry(beat);
-            while(entry != null) {
-                note = entry.getValue();
-                if(predicate.apply(note)) {
-                    return note;
-                }
-                entry = notes.lowerEntry(entry.getKey());
-            }
-        }
+     * @param types the mask of the {@link NoteType types} of the notes to consider.
+     * @return the note index, or -1 if there is no such note
+     */
+    public int floorIndex(int panel, double beat, int types) {
+        int index = Arrays.binarySearch(ticks[panel], toTick(beat));
+        return previous(panel, index >= 0 ? index : -index - 2, types);
+    }
 
-        return note;
+    public int floorIndex(int panel, double beat) {
+        return floorIndex(panel, beat, NoteType.ALL);
     }
 
     /**
-     * Returns the note on the given panel associated with the greatest key strictly
-     * less than the given beat, or null if there is no such note.
+     * Returns the index of the note with the least beat greater than or equal to the given beat.
      * @param panel the note panel
      * @param beat the beat
-     * @return a note with the greatest beat less than given beat, or null if there is no such note
+     * @param types the mask of the {@link NoteType types} of the notes to consider.
+     * @return the note index, or -1 if there is no such note
      */
-    public Note lowerNote(int panel, double beat) {
-        return lowerNote(panel, beat, Predicates.alwaysTrue());
+    public int ceilingIndex(int panel, double beat, int types) {
+        int index = Arrays.binarySearch(ticks[panel], toTick(beat));
+        return next(panel, index >= 0 ? index : -index - 1, types);
+    }
+
+    public int ceilingIndex(int panel, double beat) {
+        return ceilingIndex(panel, beat, NoteType.ALL);
     }
 
     /**
-     * Returns the note associated with the least beat in this map, or null if the map is empty.
-     * @param panel the note panel.
-     * @return a note with the least beat, or null if this map is empty
+     * Returns the index of the note with the least beat strictly greater than the given beat.
+     * @param panel the note panel
+     * @param beat the beat
+     * @param types the mask of the {@link NoteType types} of the notes to consider.
+     * @return the note index, or -1 if there is no such note
      */
-    public Note firstNote(int panel) {
-        TreeMap<Double, Note> notes = panels.get(panel);
-        return notes != null && !notes.isEmpty() ? notes.firstEntry().getValue() : null;
+    public int higherIndex(int panel, double beat, int types) {
+        int index = Arrays.binarySearch(ticks[panel], toTick(beat));
+        return next(panel, index >= 0 ? index + 1 : -index - 1, types);
+    }
+
+    public int higherIndex(int panel, double beat) {
+        return higherIndex(panel, beat, NoteType.ALL);
     }
 
     /**
-     * Returns the note associated with the greatest beat in this map, or null if the map is empty
-     * @param panel the note panel.
-     * @return a note with the greatest beat, or null if this map is empty
+     * Returns the index of the note with the greatest beat strictly less than the given beat.
+     * @param panel the note panel
+     * @param beat the beat
+     * @param types the mask of the {@link NoteType types} of the notes to consider.
+     * @return the note index, or -1 if there is no such note
      */
-    public Note lastNote(int panel) {
-        TreeMap<Double, Note> notes = panels.get(panel);
-        return notes != null && !notes.isEmpty() ? notes.lastEntry().getValue() : null;
+    public int lowerIndex(int panel, double beat, int types) {
+        int index = Arrays.binarySearch(ticks[panel], toTick(beat));
+        return previous(panel, index >= 0 ? index - 1 : -index - 2, types);
+    }
+
+    public int lowerIndex(int panel, double beat) {
+        return lowerIndex(panel, beat, NoteType.ALL);
     }
 
     /**
-     * Returns the count of notes for the given panel.
+     * Returns the index of the first note after the given note.
      * @param panel the note panel
-     * @return the notes count
+     * @param index the note index
+     * @param types the mask of the {@link NoteType types} of the notes to consider.
+     * @return the note index, or -1 if there is no such note
      */
-    public int countNotes(int panel) {
-        Map notes = panels.get(panel);
-        return notes != null ? notes.size() : 0;
+    public int nextIndex(int panel, int index, int types) {
+        return next(panel, index + 1, types);
+    }
+
+    public int nextIndex(int panel, int index) {
+        return nextIndex(panel, index, NoteType.ALL);
     }
 
     /**
-     * Checks if there are notes on the given panel.
+     * Returns the index of the last note before the given note.
      * @param panel the note panel
-     * @return true if there are notes on the given panel, false otherwise
+     * @param index the note index
+     * @param types the mask of the {@link NoteType types} of the notes to consider.
+     * @return the note index, or -1 if there is no such note
      */
-    public boolean hasNotes(int panel) {
-        return countNotes(panel) > 0;
+    public int previousIndex(int panel, int index, int types) {
+        return previous(panel, index - 1, types);
+    }
+
+    public int previousIndex(int panel, int index) {
+        return previousIndex(panel, index, NoteType.ALL);
     }
 
     public boolean isChord(double beat) {
         return getChordSize(beat) > 1;
     }
 
+    /**
+     * Gets the number of notes that make the chord at the given beat, the notes of the row
+     * that are of a {@link NoteType#CHORD chord type}.
+     * @param beat the beat, rounded to the closest tick.
+     * @return the chord size, 0 if there is no row at the given beat.
+     */
     public int getChordSize(double beat) {
+        int row = rowOfTick(toTick(beat));
+        return row != -1 ? Integer.bitCount(rowChordPanels[row]) : 0;
+    }
+
+    /**
+     * Counts the rows with a chord of at least the given size, e.g. 2 to count jumps and 3 to count hands.
+     * @param size the minimum chord size
+     * @return the rows count.
+     */
+    public int countChords(int size) {
         int count = 0;
-        IntMap.Keys keys = panels.keys();
-        while(keys.hasNext) {
-            int panel = keys.next();
-            Note note = getNote(panel, beat);
-            if(note instanceof ChordNote) {
+        for(int chordPanels : rowChordPanels) {
+            if(Integer.bitCount(chordPanels) >= size) {
                 count++;
             }
         }
@@ -276,19 +313,428 @@ public class Beatmap {
     }
 
     /**
-     * Put note inside the beatmap.
+     * @return the count of rows, the count of distinct ticks among the notes of all the panels.
+     */
+    public int countRows() {
+        return rowTicks.length;
+    }
+
+    /**
+     * Gets the index of the row at the given tick.
+     * @param tick the tick
+     * @return the row index, or -1 if there are no notes at the given tick.
+     */
+    public int rowOfTick(int tick) {
+        int row = Arrays.binarySearch(rowTicks, tick);
+        return row >= 0 ? row : -1;
+    }
+
+    /**
+     * @param row the row index
+     * @return the row tick.
+     */
+    public int getRowTick(int row) {
+        return rowTicks[row];
+    }
+
+    /**
+     * @param row the row index
+     * @return the mask of the panels that have a note in the row.
+     */
+    public int getRowPanels(int row) {
+        return rowPanels[row];
+    }
+
+    /**
+     * @param row the row index
+     * @return the mask of the panels that have a note of a {@link NoteType#CHORD chord type} in the row.
+     */
+    public int getRowChordPanels(int row) {
+        return rowChordPanels[row];
+    }
+
+    /**
+     * @param row the row index
+     * @return the mask of the {@link NoteType types} of the notes in the row.
+     */
+    public int getRowTypes(int row) {
+        return rowTypes[row];
+    }
+
+    /**
+     * Creates a cursor over the notes of the given panel. The cursor is positioned before the first note.
      * @param panel the note panel
-     * @param note the note
-     */
-    public void putNote(int panel, Note note) {
-        //Get notes and init map if necessary
-        TreeMap<Double, Note> notes = panels.get(panel);
-        if(notes == null) {
-            notes = new TreeMap<>();
-            panels.put(panel, notes);
+     * @param types the mask of the {@link NoteType types} of the notes the cursor stops at.
+     * @return the cursor.
+     */
+    public Cursor newCursor(int panel, int types) {
+        return new Cursor(panel, types);
+    }
+
+    public Cursor newCursor(int panel) {
+        return newCursor(panel, NoteType.ALL);
+    }
+
+    /**
+     * @return the index of the first note from the given index, or -1.
+     */
+    private int next(int panel, int index, int types) {
+        byte[] panelTypes = this.types[panel];
+        for(; index < panelTypes.length; index++) {
+            if(NoteType.is(panelTypes[index], types)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the last note up to the given index, or -1.
+     */
+    private int previous(int panel, int index, int types) {
+        byte[] panelTypes = this.types[panel];
+        for(; index >= 0; index--) {
+            if(NoteType.is(panelTypes[index], types)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Walks the notes of a single panel that are of the given types. Seek to a beat once, then step
+     * to the next or previous notes in constant time. Seeking starts from the current position, so
+     * seeking a beat near the current note doesn't search the whole panel. A cursor doesn't allocate
+     * and can be reused, it is meant to be kept and used on every frame.
+     * <p> A cursor can be positioned on a note, before the first note or after the last note.
+     * Stepping back from after the last note moves to the last note and stepping forward from before
+     * the first note moves to the first note. </p>
+     */
+    public class Cursor {
+        private final int panel;
+        private final int types;
+        private int index = -1;
+
+        private Cursor(int panel, int types) {
+            this.panel = panel;
+            this.types = types;
+        }
+
+        /**
+         * Moves to the note with the least beat greater than or equal to the given beat.
+         * @param beat the beat
+         * @return true if the cursor is positioned on a note.
+         */
+        public boolean seekCeiling(double beat) {
+            int index = search(toTick(beat));
+            return forward(index >= 0 ? index : -index - 1);
+        }
+
+        /**
+         * Moves to the note with the least beat strictly greater than the given beat.
+         * @param beat the beat
+         * @return true if the cursor is positioned on a note.
+         */
+        public boolean seekHigher(double beat) {
+            int index = search(toTick(beat));
+            return forward(index >= 0 ? index + 1 : -index - 1);
+        }
+
+        /**
+         * Moves to the note with the greatest beat less than or equal to the given beat.
+         * @param beat the beat
+         * @return true if the cursor is positioned on a note.
+         */
+        public boolean seekFloor(double beat) {
+            int index = search(toTick(beat));
+            return backward(index >= 0 ? index : -index - 2);
+        }
+
+        /**
+         * Moves to the note with the greatest beat strictly less than the given beat.
+         * @param beat the beat
+         * @return true if the cursor is positioned on a note.
+         */
+        public boolean seekLower(double beat) {
+            int index = search(toTick(beat));
+            return backward(index >= 0 ? index - 1 : -index - 2);
+        }
+
+        /**
+         * Moves to the next note.
+         * @return true if the cursor is positioned on a note.
+         */
+        public boolean next() {
+            return index < countNotes(panel) && forward(index + 1);
+        }
+
+        /**
+         * Moves to the previous note.
+         * @return true if the cursor is positioned on a note.
+         */
+        public boolean previous() {
+            return index >= 0 && backward(index - 1);
+        }
+
+        /**
+         * Moves before the first note.
+         */
+        public void reset() {
+            index = -1;
+        }
+
+        /**
+         * @return true if the cursor is positioned on a note.
+         */
+        public boolean hasNote() {
+            return index >= 0 && index < countNotes(panel);
+        }
+
+        /**
+         * @return the index of the current note, or -1 if the cursor isn't positioned on a note.
+         */
+        public int getIndex() {
+            return hasNote() ? index : -1;
+        }
+
+        public int getPanel() {
+            return panel;
         }
 
-        //Associate the note to its beat
-        notes.put(note.getBeat(), note);
+        public double getBeat() {
+            return toBeat(ticks[panel][index]);
+        }
+
+        public int getTick() {
+            return ticks[panel][index];
+        }
+
+        public byte getType() {
+            return Beatmap.this.types[panel][index];
+        }
+
+        public double getLength() {
+            return toBeat(lengths[panel][index]);
+        }
+
+        /**
+         * Binary searches the tick among the panel notes. When the cursor is on a note the range
+         * is first narrowed by galloping from the current note.
+         */
+        private int search(int tick) {
+            int[] panelTicks = ticks[panel];
+            int low = 0;
+            int high = panelTicks.length - 1;
+            if(hasNote()) {
+                int step = 1;
+                if(panelTicks[index] <= tick) {
+                    low = index;
+                    while(low + step <= high && panelTicks[low + step] <= tick) {
+                        low += step;
+                        step <<= 1;
+                    }
+                    high = Math.min(low + step, high);
+                } else {
+                    high = index;
+                    while(high - step >= low && panelTicks[high - step] > tick) {
+                        high -= step;
+                        step <<= 1;
+                    }
+                    low = Math.max(high - step, low);
+                }
+            }
+            return Arrays.binarySearch(panelTicks, low, high + 1, tick);
+        }
+
+        private boolean forward(int from) {
+            byte[] panelTypes = Beatmap.this.types[panel];
+            index = from;
+            while(index < panelTypes.length && !NoteType.is(panelTypes[index], types)) {
+                index++;
+            }
+            return index < panelTypes.length;
+        }
+
+        private boolean backward(int from) {
+            byte[] panelTypes = Beatmap.this.types[panel];
+            index = from;
+            while(index >= 0 && !NoteType.is(panelTypes[index], types)) {
+                index--;
+            }
+            return index >= 0;
+        }
+    }
+
+    /**
+     * Collects notes and builds a beatmap. Notes can be put in any order, a note replaces
+     * the note put before at the same tick on the same panel.
+     */
+    public static class Builder {
+        private int[][] ticks = new int[NotePanel.COUNT][];
+        private byte[][] types = new byte[NotePanel.COUNT][];
+        private int[][] lengths = new int[NotePanel.COUNT][];
+        private int[] counts = new int[NotePanel.COUNT];
+        /* True if the notes of the panel have been put sorted by tick */
+        private boolean[] sorted = new boolean[NotePanel.COUNT];
+
+        public Builder() {
+            Arrays.fill(sorted, true);
+        }
+
+        /**
+         * Put a note that has no length.
+         * @param panel the note panel
+         * @param type the note type, one of the {@link NoteType} values.
+         * @param beat the note beat, rounded to the closest tick.
+         * @return this builder.
+         */
+        public Builder putNote(int panel, byte type, double beat) {
+            return putNoteTicks(panel, type, toTick(beat), 0);
+        }
+
+        /**
+         * Put a note. The note beat and its end are rounded to the closest tick.
+         * @param panel the note panel
+         * @param type the note type, one of the {@link NoteType} values.
+         * @param beat the note beat
+         * @param length the note length in beats, for lengthy notes.
+         * @return this builder.
+         */
+        public Builder putNote(int panel, byte type, double beat, double length) {
+            int tick = toTick(beat);
+            return putNoteTicks(panel, type, tick, toTick(beat + length) - tick);
+        }
+
+        /**
+         * Put a note at the given tick.
+         * @param panel the note panel
+         * @param type the note type, one of the {@link NoteType} values.
+         * @param tick the note tick
+         * @param length the note length in ticks, for lengthy notes.
+         * @return this builder.
+         */
+        public Builder putNoteTicks(int panel, byte type, int tick, int length) {
+            Preconditions.checkArgument(type >= 0 && type < NoteType.COUNT, "Invalid note type!");
+            int count = counts[panel];
+            if(ticks[panel] == null) {
+                ticks[panel] = new int[16];
+                types[panel] = new byte[16];
+                lengths[panel] = new int[16];
+            } else if(count == ticks[panel].length) {
+                ticks[panel] = Arrays.copyOf(ticks[panel], count * 2);
+                types[panel] = Arrays.copyOf(types[panel], count * 2);
+                lengths[panel] = Arrays.copyOf(lengths[panel], count * 2);
+            }
+            if(count > 0 && tick <= ticks[panel][count - 1]) {
+                sorted[panel] = false;
+            }
+            ticks[panel][count] = tick;
+            types[panel][count] = type;
+            lengths[panel][count] = length;
+            counts[panel] = count + 1;
+            return this;
+        }
+
+        /**
+         * Builds the beatmap. The builder must not be used afterwards.
+         * @return the beatmap.
+         */
+        public Beatmap build() {
+            Beatmap beatmap = new Beatmap();
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                if(counts[panel] == 0) {
+                    beatmap.ticks[panel] = NO_TICKS;
+                    beatmap.types[panel] = NO_TYPES;
+                    beatmap.lengths[panel] = NO_TICKS;
+                    continue;
+                }
+                if(!sorted[panel]) {
+                    sort(panel);
+                }
+                int count = counts[panel];
+                beatmap.ticks[panel] = Arrays.copyOf(ticks[panel], count);
+                beatmap.types[panel] = Arrays.copyOf(types[panel], count);
+                beatmap.lengths[panel] = Arrays.copyOf(lengths[panel], count);
+            }
+            indexRows(beatmap);
+            return beatmap;
+        }
+
+        /**
+         * Creates the rows of the beatmap from the distinct ticks of its notes.
+         */
+        private static void indexRows(Beatmap beatmap) {
+            int noteCount = 0;
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                noteCount += beatmap.ticks[panel].length;
+            }
+            int[] rowTicks = new int[noteCount];
+            int position = 0;
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                System.arraycopy(beatmap.ticks[panel], 0, rowTicks, position, beatmap.ticks[panel].length);
+                position += beatmap.ticks[panel].length;
+            }
+            Arrays.sort(rowTicks);
+            int rowCount = 0;
+            for(int i = 0; i < noteCount; i++) {
+                if(rowCount == 0 || rowTicks[rowCount - 1] != rowTicks[i]) {
+                    rowTicks[rowCount++] = rowTicks[i];
+                }
+            }
+
+            beatmap.rowTicks = Arrays.copyOf(rowTicks, rowCount);
+            beatmap.rowPanels = new int[rowCount];
+            beatmap.rowChordPanels = new int[rowCount];
+            beatmap.rowTypes = new int[rowCount];
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                int[] panelTicks = beatmap.ticks[panel];
+                byte[] panelTypes = beatmap.types[panel];
+                //Both panel ticks and row ticks are sorted, walk them together
+                int row = 0;
+                for(int i = 0; i < panelTicks.length; i++) {
+                    while(beatmap.rowTicks[row] != panelTicks[i]) {
+                        row++;
+                    }
+                    beatmap.rowPanels[row] |= 1 << panel;
+                    beatmap.rowTypes[row] |= 1 << panelTypes[i];
+                    if(NoteType.is(panelTypes[i], NoteType.CHORD)) {
+                        beatmap.rowChordPanels[row] |= 1 << panel;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sorts the notes of the panel by tick, keeping the last note put at each tick.
+         */
+        private void sort(int panel) {
+            int count = counts[panel];
+            int[] panelTicks = ticks[panel];
+            Integer[] order = new Integer[count];
+            for(int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            //Stable sort, notes at the same tick keep the order they have been put
+            Arrays.sort(order, (a, b) -> Integer.compare(panelTicks[a], panelTicks[b]));
+
+            int[] sortedTicks = new int[count];
+            byte[] sortedTypes = new byte[count];
+            int[] sortedLengths = new int[count];
+            int size = 0;
+            for(int i = 0; i < count; i++) {
+                int note = order[i];
+                if(size > 0 && sortedTicks[size - 1] == panelTicks[note]) {
+                    size--; //Replace the previous note at the same tick
+                }
+                sortedTicks[size] = panelTicks[note];
+                sortedTypes[size] = types[panel][note];
+                sortedLengths[size] = lengths[panel][note];
+                size++;
+            }
+            ticks[panel] = sortedTicks;
+            types[panel] = sortedTypes;
+            lengths[panel] = sortedLengths;
+            counts[panel] = size;
+        }
     }
 }
@@ -50,6 +50,12 @@ public class Chart implements Comparable<Chart> {
     public String description;
     /** Chart's credits such as chart artist and contributors */
     public String credit;
+    /** Offset of the chart data inside the sim file in bytes, -1 if unknown.
+     * Together with {@link #dataLength} it is used to parse this chart only
+     * when calling {@link SimParser#getChartParser(String, long, int)}. */
+    public long dataOffset = -1;
+    /** Length of the chart data inside the sim file in bytes, -1 if unknown. */
+    public int dataLength = -1;
     /** Chart's display BPM */
     public DisplayBPM displayBPM;
     /** Chart's timing data */
@@ -57,6 +63,9 @@ public class Chart implements Comparable<Chart> {
     /** Chart's beatmap. Can be null. Beatmap is loaded
      *  only when it's necessary directly from the SIM file. */
     public Beatmap beatmap;
+    /** Chart's timing built from timing data. Can be null,
+     *  it is loaded together with the beatmap. */
+    public Timing timing;
 
     @Override
     public boolean equals(Object o) {
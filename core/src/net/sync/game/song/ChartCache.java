@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.google.common.hash.HashCode;
+import net.sync.game.song.note.NotePanel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Stores compiled charts on disk. A compiled chart holds the beatmap of a chart in a compact binary
+ * format, so that a chart can be loaded without parsing its note data.
+ * <p>
+ *     Each chart is stored in a file named after the chart hash. The file header holds a format version
+ *     and the chart hash, files written by a different version or for a different hash are ignored.
+ *     The chart hash covers the note data only, song timing tags such as #OFFSET and #BPMS are not part
+ *     of it, so timing data is not stored and must always be parsed from the sim file.
+ * </p>
+ * <p> File layout, big endian: </p>
+ * <ul>
+ *     <li>Header: magic, version, chart hash (32 bytes), length of the beatmap in bytes.</li>
+ *     <li>Beatmap: number of panels, then for each panel the panel, the number of notes and the
+ *     note arrays of ticks, types and lengths in ticks.</li>
+ * </ul>
+ */
+public class ChartCache {
+    private static final int MAGIC = 0x53594E43; //SYNC
+    private static final int VERSION = 5;
+    private static final int HASH_LENGTH = 32;
+    private static final String EXTENSION = ".chart";
+
+    private FileHandle directory;
+
+    /**
+     * @param directory the directory that holds the compiled charts. Created when the first chart is stored.
+     */
+    public ChartCache(FileHandle directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the compiled chart with the hash of the given chart and sets its beatmap.
+     * @param chart the chart, its hash must be set.
+     * @return true if the chart has been read, false if there is no valid compiled chart for its hash.
+     */
+    public boolean read(Chart chart) {
+        FileHandle file = getFile(chart.hash);
+        if(!file.exists()) {
+            return false;
+        }
+
+        try {
+            //Mapped buffers use the native byte order
+            ByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY).order(ByteOrder.BIG_ENDIAN);
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return false;
+            }
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            if(!Arrays.equals(hash, HashCode.fromString(chart.hash).asBytes())) {
+                return false;
+            }
+            if(buffer.getInt() != buffer.remaining()) {
+                //Truncated or corrupted file
+                return false;
+            }
+
+            Beatmap.Builder beatmap = new Beatmap.Builder();
+            int panelCount = buffer.getInt();
+            for(int i = 0; i < panelCount; i++) {
+                int panel = buffer.getInt();
+                int noteCount = buffer.getInt();
+                //Arrays are stored one after the other, read them through views
+                int ticksPosition = buffer.position();
+                int typesPosition = ticksPosition + noteCount * Integer.BYTES;
+                int lengthsPosition = typesPosition + noteCount;
+                for(int n = 0; n < noteCount; n++) {
+                    int tick = buffer.getInt(ticksPosition + n * Integer.BYTES);
+                    byte type = buffer.get(typesPosition + n);
+                    int length = buffer.getInt(lengthsPosition + n * Integer.BYTES);
+                    beatmap.putNoteTicks(panel, type, tick, length);
+                }
+                buffer.position(lengthsPosition + noteCount * Integer.BYTES);
+            }
+            if(buffer.hasRemaining()) {
+                //The beatmap doesn't match the stored length
+                return false;
+            }
+
+            chart.beatmap = beatmap.build();
+            return true;
+        } catch(GdxRuntimeException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            //Unreadable or truncated file, it will be replaced
+            Gdx.app.error("Chart Cache", "Cannot read compiled chart " + chart.hash, e);
+            return false;
+        }
+    }
+
+    /**
+     * Stores the beatmap of the given chart. The file is written to a temporary file first, so readers
+     * never see a partially written chart. Each write has its own temporary file, as the same chart
+     * can be compiled by more than one thread at a time.
+     * @param chart the chart, its hash and beatmap must be set.
+     * @throws IOException if the compiled chart cannot be written.
+     */
+    public void write(Chart chart) throws IOException {
+        FileHandle file = getFile(chart.hash);
+        FileHandle temp = null;
+        try {
+            directory.mkdirs();
+            temp = directory.child(File.createTempFile(chart.hash, ".tmp", directory.file()).getName());
+            writeChart(temp, chart);
+            //Renaming replaces the file atomically, FileHandle.moveTo() copies local files in place
+            if(!temp.file().renameTo(file.file())) {
+                //Some platforms don't replace existing files on rename
+                file.delete();
+                if(!temp.file().renameTo(file.file())) {
+                    throw new IOException("Cannot move compiled chart " + chart.hash);
+                }
+            }
+        } catch(GdxRuntimeException e) {
+            throw new IOException("Cannot write compiled chart " + chart.hash, e);
+        } finally {
+            if(temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void writeChart(FileHandle file, Chart chart) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.write(false)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.write(HashCode.fromString(chart.hash).asBytes());
+
+            Beatmap beatmap = chart.beatmap;
+            int panelCount = 0;
+            int length = Integer.BYTES;
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                if(beatmap.hasNotes(panel)) {
+                    panelCount++;
+                    //Panel, note count and note arrays
+                    length += 2 * Integer.BYTES + beatmap.countNotes(panel) * (2 * Integer.BYTES + 1);
+                }
+            }
+            out.writeInt(length);
+            out.writeInt(panelCount);
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                int noteCount = beatmap.countNotes(panel);
+                if(noteCount == 0) {
+                    continue;
+                }
+                out.writeInt(panel);
+                out.writeInt(noteCount);
+                for(int n = 0; n < noteCount; n++) {
+                    out.writeInt(beatmap.getTick(panel, n));
+                }
+                for(int n = 0; n < noteCount; n++) {
+                    out.writeByte(beatmap.getType(panel, n));
+                }
+                for(int n = 0; n < noteCount; n++) {
+                    out.writeInt(beatmap.getTickLength(panel, n));
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the compiled chart with the given hash, if any.
+     * @param hash the chart hash.
+     */
+    public void remove(String hash) {
+        getFile(hash).delete();
+    }
+
+    /**
+     * Deletes the compiled charts whose hash is not in the given set, e.g. the charts that are not
+     * in the index anymore because they have been changed or deleted.
+     * @param hashes the hashes of the charts to keep.
+     */
+    public void retain(Set<String> hashes) {
+        for(FileHandle file : directory.list(EXTENSION)) {
+            String hash = file.nameWithoutExtension();
+            if(!hashes.contains(hash)) {
+                remove(hash);
+            }
+        }
+    }
+
+    private FileHandle getFile(String hash) {
+        return directory.child(hash + EXTENSION);
+    }
+}
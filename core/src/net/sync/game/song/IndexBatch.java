@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Table;
+import net.sync.game.database.schema.tables.records.ChartsRecord;
+import net.sync.game.database.schema.tables.records.SongsRecord;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.jooq.impl.DSL;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.sync.game.database.schema.tables.Charts.CHARTS;
+import static net.sync.game.database.schema.tables.Songs.SONGS;
+
+/**
+ * Collects songs and charts to insert into the index and writes them with batched statements, so that
+ * a single prepared statement is executed for all songs and one for all charts instead of a statement
+ * for each row.
+ * <p>
+ * Charts of new songs are bound to the song ids once the songs have been inserted. Charts replace
+ * indexed charts with the same id, and duplicated charts of a song are written once.
+ * </p>
+ */
+public class IndexBatch {
+    /** Max number of ids bound to a single statement, SQLite allows 999 variables by default */
+    private static final int MAX_BOUND_IDS = 500;
+
+    private List<SongsRecord> songs = new ArrayList<>();
+    private Map<String, ChartsRecord> charts = new LinkedHashMap<>();
+
+    /* Charts of the songs to insert, mapped by song pack and directory */
+    private Table<String, String, List<ChartsRecord>> songCharts = HashBasedTable.create();
+
+    /**
+     * Adds a new song to the batch.
+     * @param song the song record, without id.
+     * @param charts the charts of the song, without song id.
+     */
+    public void addSong(SongsRecord song, List<ChartsRecord> charts) {
+        songs.add(song);
+        songCharts.put(song.getPack(), song.getDirectory(), charts);
+    }
+
+    /**
+     * Adds a chart of a song that is already in the index to the batch.
+     * @param chart the chart record, song id included.
+     */
+    public void addChart(ChartsRecord chart) {
+        charts.put(chart.getId(), chart);
+    }
+
+    /**
+     * Adds the songs and charts collected by another batch to this batch.
+     * @param batch the other batch, it is left unchanged.
+     */
+    public void addAll(IndexBatch batch) {
+        songs.addAll(batch.songs);
+        charts.putAll(batch.charts);
+        songCharts.putAll(batch.songCharts);
+    }
+
+    /**
+     * Checks if the batch is empty.
+     * @return true if there is nothing to write.
+     */
+    public boolean isEmpty() {
+        return songs.isEmpty() && charts.isEmpty();
+    }
+
+    /**
+     * Writes songs and charts collected so far to the index and clears the batch.
+     * @param database the database context.
+     */
+    public void execute(DSLContext database) {
+        if(!songs.isEmpty()) {
+            database.batchInsert(songs).execute();
+
+            //Fetch the ids of the inserted songs and bind their charts
+            List<Condition> conditions = new ArrayList<>(songs.size());
+            for(SongsRecord song : songs) {
+                conditions.add(SONGS.PACK.eq(song.getPack()).and(SONGS.DIRECTORY.eq(song.getDirectory())));
+            }
+            Condition inserted = DSL.or(conditions);
+            for(Record3<Integer, String, String> song : database
+                    .select(SONGS.ID, SONGS.PACK, SONGS.DIRECTORY)
+                    .from(SONGS)
+                    .where(inserted)
+                    .fetch()) {
+                for(ChartsRecord chart : songCharts.get(song.value2(), song.value3())) {
+                    chart.setSongId(song.value1());
+                    addChart(chart);
+                }
+            }
+            SongSearchIndex.update(database, inserted);
+        }
+
+        if(!charts.isEmpty()) {
+            //Drop charts with the same id left by a previous version of the song
+            for(List<String> chartIds : Iterables.partition(charts.keySet(), MAX_BOUND_IDS)) {
+                database.deleteFrom(CHARTS)
+                        .where(CHARTS.ID.in(chartIds))
+                        .execute();
+            }
+
+            database.batchInsert(charts.values()).execute();
+        }
+
+        songs.clear();
+        charts.clear();
+        songCharts.clear();
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Table;
+import net.sync.game.util.concurrent.Task;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record7;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static net.sync.game.Game.database;
+import static net.sync.game.Game.songs;
+import static net.sync.game.database.schema.tables.Charts.CHARTS;
+import static net.sync.game.database.schema.tables.Songs.SONGS;
+
+/**
+ * A task that indexes every song inside a songs folder. The songs folder contains pack directories
+ * and each pack directory contains song directories.
+ * <p>
+ * Indexing is performed as a pipeline. Pack directories are scanned and each song directory is
+ * handed to a {@link SongIndexer} that runs on the given worker pool, where sim files are searched,
+ * hashed and parsed in parallel. The thread running this task is the only one writing to the index:
+ * it collects completed indexers and commits their changes in batches, one transaction per batch.
+ * At most a bounded number of indexers are in flight at the same time so that parsed songs waiting
+ * to be written don't pile up in memory.
+ * </p>
+ * <p>
+ * The task can be cancelled by calling {@link #cancel(boolean)}. Batches already committed are kept,
+ * so the next run only has to process what is left. The progress can be polled from any thread.
+ * The result of the task is the number of songs found inside the songs folder.
+ * </p>
+ * <p>
+ * The indexer can also be limited to some packs and song directories of the songs folder, for example
+ * to apply changes detected by a {@link LibraryWatcher} without scanning the whole library. Songs of the
+ * given packs, or the given songs, whose directory doesn't exist anymore are removed from the index.
+ * </p>
+ */
+public class LibraryIndexer extends Task<Integer> {
+    /** Max number of song changes written in a single transaction */
+    private static final int BATCH_SIZE = 64;
+    /** Max number of indexers in flight for each worker thread */
+    private static final int PENDING_PER_WORKER = 4;
+
+    private FileHandle songsDirectory;
+    private Set<String> packs;
+    private SetMultimap<String, String> songs;
+    private ExecutorService workers;
+    private int maxPending;
+
+    /* Progress, updated by the writer thread only */
+    private volatile int processedCount = 0;
+    private volatile int totalCount = -1;
+
+    /**
+     * Creates a library indexer.
+     * @param songsDirectory the songs folder.
+     * @param workers the worker pool used to scan directories and to run song indexers.
+     * @param workerCount the number of threads of the worker pool.
+     */
+    public LibraryIndexer(FileHandle songsDirectory, ExecutorService workers, int workerCount) {
+        this(songsDirectory, null, null, workers, workerCount);
+    }
+
+    /**
+     * Creates a library indexer that only indexes the given packs and songs.
+     * @param songsDirectory the songs folder.
+     * @param packs the names of the pack directories to scan entirely, or null to scan the whole songs folder.
+     * @param songs the song directory names to index mapped by pack name, or null to scan the whole songs folder.
+     * @param workers the worker pool used to scan directories and to run song indexers.
+     * @param workerCount the number of threads of the worker pool.
+     */
+    public LibraryIndexer(FileHandle songsDirectory, Set<String> packs, SetMultimap<String, String> songs,
+                          ExecutorService workers, int workerCount) {
+        checkArgument((packs == null) == (songs == null), "packs and songs must be both null or not null");
+        this.songsDirectory = songsDirectory;
+        this.packs = packs;
+        this.songs = songs;
+        this.workers = workers;
+        this.maxPending = Math.max(1, workerCount) * PENDING_PER_WORKER;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        long millis = System.currentTimeMillis();
+        List<SongIndexer> indexers = new ArrayList<>();
+
+        try {
+            //Load the whole index state with a single query. Each song directory found while scanning
+            //is removed from the table, so what is left are songs whose directory doesn't exist anymore.
+            Table<String, String, SongIndexer.CachedSong> cachedSongs = getCachedSongs();
+
+            //Scan pack directories in parallel. Children are not checked to save a stat each,
+            //song indexers find no song in children that are not directories.
+            List<FileHandle> packDirs = getPackDirectories();
+            List<Future<FileHandle[]>> scans = new ArrayList<>(packDirs.size());
+            for(FileHandle packDir : packDirs) {
+                scans.add(workers.submit(() -> packDir.list()));
+            }
+            for(int i = 0; i < packDirs.size(); i++) {
+                String pack = packDirs.get(i).name();
+                for(FileHandle songDir : scans.get(i).get()) {
+                    SongIndexer.CachedSong cached = cachedSongs.remove(pack, songDir.name());
+                    indexers.add(new SongIndexer(pack, songDir, cached));
+                }
+            }
+
+            //Add the given songs that haven't been found while scanning packs
+            if(songs != null) {
+                for(Map.Entry<String, String> song : songs.entries()) {
+                    String pack = song.getKey();
+                    FileHandle songDir = songsDirectory.child(pack).child(song.getValue());
+                    if(!packs.contains(pack)) {
+                        SongIndexer.CachedSong cached = cachedSongs.remove(pack, songDir.name());
+                        indexers.add(new SongIndexer(pack, songDir, cached));
+                    }
+                }
+            }
+            totalCount = indexers.size();
+
+            //Run indexers on the worker pool and write their changes as they complete
+            BlockingQueue<SongIndexer> completed = new LinkedBlockingQueue<>();
+            List<SongIndexer> batch = new ArrayList<>(BATCH_SIZE);
+            int songCount = 0;
+            int next = 0;
+            int pending = 0;
+
+            while(processedCount < totalCount) {
+                while(pending < maxPending && next < indexers.size()) {
+                    SongIndexer indexer = indexers.get(next++);
+                    workers.execute(() -> {
+                        indexer.run();
+                        completed.add(indexer);
+                    });
+                    pending++;
+                }
+
+                SongIndexer indexer = completed.take();
+                pending--;
+                batch.add(indexer);
+
+                if(batch.size() >= BATCH_SIZE || pending == 0) {
+                    songCount += writeBatch(batch);
+                    processedCount += batch.size();
+                    batch.clear();
+                }
+            }
+
+            //Remove songs whose directory has been deleted
+            if(!cachedSongs.isEmpty()) {
+                removeSongs(cachedSongs);
+            }
+
+            //The whole library is indexed, drop compiled charts of changed and deleted charts
+            if(packs == null) {
+                pruneChartCache();
+            }
+
+            Gdx.app.log("Song Indexer", String.format("Indexed %d songs in %d ms",
+                    songCount, System.currentTimeMillis() - millis));
+            return songCount;
+        } finally {
+            //Stop indexers that are still waiting or running if the task has been cancelled or has failed
+            for(SongIndexer indexer : indexers) {
+                indexer.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes of the given completed indexers to the index using a single transaction.
+     * New songs and charts are inserted with batched statements. Each indexer writes inside a savepoint,
+     * so the changes of an indexer that fails are rolled back entirely, then it is logged and skipped.
+     * If the batched inserts fail the whole batch is rolled back and written again song by song,
+     * so that only the songs that cannot be inserted are skipped.
+     * @param batch the completed indexers.
+     * @return the number of songs found by the given indexers.
+     * @throws InterruptedException if the task has been cancelled.
+     */
+    private int writeBatch(List<SongIndexer> batch) throws InterruptedException {
+        if(isCancelled()) {
+            throw new InterruptedException("Indexing cancelled");
+        }
+
+        int songCount = 0;
+        try(DSLContext database = database().getWriterDSL()) {
+            database.transaction(configuration -> {
+                DSLContext context = DSL.using(configuration);
+                List<SongIndexer> written = new ArrayList<>(batch.size());
+                try {
+                    context.transaction(batchSavepoint -> {
+                        DSLContext batchContext = DSL.using(batchSavepoint);
+                        IndexBatch inserts = new IndexBatch();
+                        for(SongIndexer indexer : batch) {
+                            //Rows to insert are collected apart and kept only if the song has been written
+                            IndexBatch songInserts = new IndexBatch();
+                            try {
+                                batchContext.transaction(savepoint ->
+                                        indexer.write(DSL.using(savepoint), songInserts));
+                                inserts.addAll(songInserts);
+                                written.add(indexer);
+                            } catch(Exception e) {
+                                Gdx.app.error("Song Indexer", "Cannot write song to the index", e);
+                            }
+                        }
+                        inserts.execute(batchContext);
+                    });
+                } catch(DataAccessException e) {
+                    //The batch has been rolled back, write each song with its own inserts to skip the bad ones
+                    Gdx.app.error("Song Indexer", "Cannot insert songs in batch, writing them one by one", e);
+                    for(SongIndexer indexer : written) {
+                        try {
+                            context.transaction(savepoint -> {
+                                DSLContext songContext = DSL.using(savepoint);
+                                IndexBatch songInserts = new IndexBatch();
+                                indexer.write(songContext, songInserts);
+                                songInserts.execute(songContext);
+                            });
+                        } catch(Exception songException) {
+                            Gdx.app.error("Song Indexer", "Cannot write song to the index", songException);
+                        }
+                    }
+                }
+            });
+        } catch(DataAccessException e) {
+            //The transaction has been rolled back, songs will be indexed again by the next run
+            Gdx.app.error("Song Indexer", "Cannot write songs to the index", e);
+        }
+
+        for(SongIndexer indexer : batch) {
+            try {
+                if(indexer.get()) {
+                    songCount++;
+                }
+            } catch(ExecutionException e) {
+                Gdx.app.error("Song Indexer", "Cannot index song", e.getCause());
+            }
+        }
+        return songCount;
+    }
+
+    /**
+     * Removes the given songs from the index.
+     * @param songs a table where row keys are packs and column keys are song directories.
+     */
+    private void removeSongs(Table<String, String, SongIndexer.CachedSong> songs) {
+        try(DSLContext database = database().getWriterDSL()) {
+            database.transaction(configuration -> {
+                DSLContext context = DSL.using(configuration);
+                for(Table.Cell<String, String, SongIndexer.CachedSong> song : songs.cellSet()) {
+                    Condition condition = SONGS.PACK.eq(song.getRowKey()).and(SONGS.DIRECTORY.eq(song.getColumnKey()));
+                    SongSearchIndex.remove(context, condition);
+                    context.deleteFrom(SONGS)
+                            .where(condition)
+                            .execute();
+                    Gdx.app.log("Song Indexer", String.format("Remove song %s/%s", song.getRowKey(), song.getColumnKey()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes the compiled charts of the charts that are not in the index anymore.
+     */
+    private void pruneChartCache() {
+        Set<String> hashes;
+        try(DSLContext database = database().getDSL()) {
+            hashes = database.selectDistinct(CHARTS.HASH).from(CHARTS).fetchSet(CHARTS.HASH);
+        }
+        songs().getChartCache().retain(hashes);
+    }
+
+    /**
+     * Gets the pack directories to scan entirely.
+     * @return the pack directories.
+     */
+    private List<FileHandle> getPackDirectories() {
+        if(packs == null) {
+            return Arrays.asList(songsDirectory.list(File::isDirectory));
+        }
+        List<FileHandle> packDirs = new ArrayList<>(packs.size());
+        for(String pack : packs) {
+            FileHandle packDir = songsDirectory.child(pack);
+            if(packDir.isDirectory()) {
+                packDirs.add(packDir);
+            }
+        }
+        return packDirs;
+    }
+
+    /**
+     * Gets the hash and the file stats of every song into the index that is handled by this indexer.
+     * @return a table where row keys are packs, column keys are song directories and values are cached songs.
+     */
+    private Table<String, String, SongIndexer.CachedSong> getCachedSongs() {
+        Condition condition = DSL.noCondition();
+        if(packs != null) {
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(SONGS.PACK.in(packs));
+            for(Map.Entry<String, String> song : songs.entries()) {
+                conditions.add(SONGS.PACK.eq(song.getKey()).and(SONGS.DIRECTORY.eq(song.getValue())));
+            }
+            condition = DSL.or(conditions);
+        }
+
+        Table<String, String, SongIndexer.CachedSong> cachedSongs = HashBasedTable.create();
+        try(DSLContext database = database().getDSL()) {
+            for(Record7<String, String, String, String, Long, Long, Long> record : database
+                    .select(SONGS.PACK, SONGS.DIRECTORY, SONGS.HASH, SONGS.SIM_PATH,
+                            SONGS.SIM_LENGTH, SONGS.SIM_LAST_MODIFIED, SONGS.DIRECTORY_LAST_MODIFIED)
+                    .from(SONGS)
+                    .where(condition)
+                    .fetch()) {
+                cachedSongs.put(record.value1(), record.value2(), new SongIndexer.CachedSong(
+                        record.value3(), record.value4(), record.value5(), record.value6(), record.value7()));
+            }
+        }
+        return cachedSongs;
+    }
+
+    /**
+     * Gets the number of song directories processed so far.
+     * @return the processed song directories count.
+     */
+    public int getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * Gets the number of song directories to process.
+     * @return the song directories count, or -1 if the songs folder is still being scanned.
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Gets the indexing progress.
+     * @return a value between 0 and 1, 0 if the songs folder is still being scanned.
+     */
+    public float getProgress() {
+        int total = totalCount;
+        if(total < 0) {
+            return 0.0f;
+        }
+        return total == 0 ? 1.0f : (float) processedCount / total;
+    }
+}
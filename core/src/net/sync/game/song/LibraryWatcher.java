@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static net.sync.game.Game.songs;
+
+/**
+ * Watches a songs folder and keeps the index updated while packs and songs are added, edited or removed.
+ * <p>
+ * The songs folder, every pack directory and every song directory are registered to a {@link WatchService}.
+ * Events are collected until no new event arrives for {@link #DEBOUNCE_MILLIS} (or at most for
+ * {@link #MAX_DELAY_MILLIS}) so that copying a whole pack results in a single update. Only the affected
+ * packs and songs are then indexed by a {@link LibraryIndexer}. If some events have been lost the whole
+ * songs folder is indexed again.
+ * </p>
+ * <p>
+ * Relies on java.nio.file, that is only available on desktop and on recent Android versions.
+ * </p>
+ */
+public class LibraryWatcher implements Runnable {
+    /** Time without events to wait before indexing changes */
+    private static final long DEBOUNCE_MILLIS = 500;
+    /** Max time to wait before indexing changes when events keep coming */
+    private static final long MAX_DELAY_MILLIS = 5000;
+
+    /* Depth of registered directories relative to the songs folder */
+    private static final int PACK_DEPTH = 1;
+    private static final int SONG_DEPTH = 2;
+
+    private FileHandle songsDirectory;
+    private Path root;
+    private WatchService service;
+    private Map<WatchKey, Path> keys = new HashMap<>();
+
+    /**
+     * Creates a watcher for the given songs folder. Call {@link #run()} to start watching.
+     * @param songsDirectory the songs folder.
+     * @throws IOException if the watch service cannot be created.
+     */
+    public LibraryWatcher(FileHandle songsDirectory) throws IOException {
+        this.songsDirectory = songsDirectory;
+        this.root = songsDirectory.file().toPath();
+        this.service = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Watches the songs folder until the thread is interrupted or {@link #stop()} is called.
+     */
+    @Override
+    public void run() {
+        try {
+            register(root, 0);
+            Gdx.app.log("Song Watcher", String.format("Watching %d directories in %s", keys.size(), root));
+
+            while(!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+
+                //Collect events until the songs folder is quiet
+                Set<String> packs = new HashSet<>();
+                SetMultimap<String, String> songs = HashMultimap.create();
+                boolean overflow = false;
+                long deadline = System.currentTimeMillis() + MAX_DELAY_MILLIS;
+                do {
+                    overflow |= processEvents(key, packs, songs);
+                    long delay = Math.min(DEBOUNCE_MILLIS, deadline - System.currentTimeMillis());
+                    key = delay > 0 ? service.poll(delay, TimeUnit.MILLISECONDS) : null;
+                } while(key != null);
+
+                if(overflow) {
+                    Gdx.app.log("Song Watcher", "Events lost, indexing the whole songs folder");
+                    songs().index(songsDirectory);
+                } else if(!packs.isEmpty() || !songs.isEmpty()) {
+                    Gdx.app.log("Song Watcher", String.format("Indexing %d packs and %d songs",
+                            packs.size(), songs.size()));
+                    songs().index(songsDirectory, packs, songs);
+                }
+            }
+        } catch(InterruptedException | ClosedWatchServiceException e) {
+            //Watcher has been stopped
+        } catch(IOException e) {
+            Gdx.app.error("Song Watcher", "Cannot watch songs folder", e);
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Stops watching the songs folder.
+     */
+    public void stop() {
+        try {
+            service.close();
+        } catch(IOException e) {
+            Gdx.app.error("Song Watcher", "Cannot close watch service", e);
+        }
+    }
+
+    /**
+     * Collects the packs and songs affected by the pending events of the given key. Directories
+     * that have been created are registered so that their content is watched too.
+     * @param key the signalled key.
+     * @param packs the set where names of affected packs are added.
+     * @param songs the multimap where names of affected song directories are added, mapped by pack name.
+     * @return true if some events have been lost.
+     * @throws IOException if a created directory cannot be registered.
+     */
+    private boolean processEvents(WatchKey key, Set<String> packs, SetMultimap<String, String> songs)
+            throws IOException {
+        boolean overflow = false;
+        Path dir = keys.get(key);
+
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+
+            Path path = dir.resolve((Path) event.context());
+            Path relative = root.relativize(path);
+            int depth = relative.getNameCount();
+
+            if(depth == PACK_DEPTH) {
+                packs.add(relative.getName(0).toString());
+            } else {
+                songs.put(relative.getName(0).toString(), relative.getName(1).toString());
+            }
+
+            if(event.kind() == ENTRY_CREATE && depth <= SONG_DEPTH && Files.isDirectory(path)) {
+                register(path, depth);
+            }
+        }
+
+        if(!key.reset()) {
+            //Directory has been deleted
+            keys.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * Registers the given directory and its subdirectories up to song directories.
+     * @param dir the directory to register.
+     * @param depth the depth of the directory relative to the songs folder.
+     * @throws IOException if the directory cannot be registered.
+     */
+    private void register(Path dir, int depth) throws IOException {
+        keys.put(dir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+        if(depth < SONG_DEPTH) {
+            try(DirectoryStream<Path> children = Files.newDirectoryStream(dir, Files::isDirectory)) {
+                for(Path child : children) {
+                    register(child, depth + 1);
+                }
+            }
+        }
+    }
+}
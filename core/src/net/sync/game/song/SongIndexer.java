@@ -24,15 +24,30 @@ package net.sync.game.song;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.sync.game.database.schema.tables.records.ChartsRecord;
+import net.sync.game.database.schema.tables.records.SongsRecord;
 import net.sync.game.song.sim.SimFile;
 import net.sync.game.util.concurrent.Task;
-import org.jooq.Configuration;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
-import org.jooq.impl.DSL;
+import org.jooq.Field;
+import org.jooq.Record;
 
-import java.util.UUID;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static net.sync.game.Game.settings;
 import static net.sync.game.database.schema.tables.Charts.CHARTS;
 import static net.sync.game.database.schema.tables.Songs.SONGS;
@@ -45,94 +60,190 @@ import static net.sync.game.database.schema.tables.Songs.SONGS;
  *     already present in the index</li>
  *     <li>Remove song: remove the song from the index (if present) if there is no sim file in the given
  *     directory </li>
- *     <li>Update song: update the song in the index if the sim file has changed. If updating the song is not
- *     feasible remove the song from the index and add the new version of the song </li>
+ *     <li>Update song: update the song in the index if the sim file has changed. Charts are compared by hash
+ *     so that only changed charts are inserted or deleted while unchanged charts keep their rows </li>
  * </ul>
- * The result of the task is a boolean that is true when a song has been found inside the given directory.
+ * The work is split into two phases so that it can be spread across threads. The task itself searches, hashes
+ * and parses the sim file and computes the chart records without touching the database. The resulting change
+ * is then applied to the index by calling {@link #write(DSLContext)}, usually from a single writer thread.
+ * <p>
+ * To keep rescans cheap the sim file is hashed only when needed. If the song directory and the sim file have the
+ * same last modified time and length stored in the index the song is considered unchanged without reading the
+ * sim file. On an unchanged library a rescan costs a stat of the song directory and one of the sim file, each
+ * read with a single call where java.nio.file is available.
+ * </p>
+ * <p>
+ * The result of the task is a boolean that is true when a song has been found inside the given directory. The
+ * directory isn't checked upfront, if it isn't a directory no song is found.
+ * </p>
  */
 public class SongIndexer extends Task<Boolean> {
+    /* Length in bytes of chart ids, a truncated SHA-256 */
+    private static final int CHART_ID_LENGTH = 16;
+    /* True if file attributes can be read with a single call */
+    private static final boolean NIO_AVAILABLE = isNioAvailable();
+    /* Chart fields that can change while the chart hash does not */
+    private static final Field<?>[] REFRESHED_CHART_FIELDS = {CHARTS.DATA_OFFSET, CHARTS.DATA_LENGTH,
+            CHARTS.MIN_BPM, CHARTS.MAX_BPM, CHARTS.DOMINANT_BPM};
+
     private String pack;
     private FileHandle directory;
-    private Configuration config;
+    private CachedSong cached;
+
+    /* The change to apply to the index, computed by call() */
+    private Change change = Change.NONE;
+    private SimFile simFile;
+    private String hash;
+    private long simLength;
+    private long simLastModified;
+    private long directoryLastModified;
+    private Song song;
+    /* Index records of the song charts, without song id */
+    private List<ChartsRecord> chartRecords;
 
-    public SongIndexer(String pack, FileHandle directory, Configuration config) {
-        checkArgument(directory.isDirectory(), "directory parameter must be a directory!");
+    /**
+     * Creates a song indexer for the given directory.
+     * @param pack the pack the song belongs to.
+     * @param directory the song directory, if it isn't a directory no song is found.
+     * @param cached the cached version of the song into the index, or null if the song is not cached.
+     */
+    public SongIndexer(String pack, FileHandle directory, CachedSong cached) {
         this.pack = pack;
         this.directory = directory;
-        this.config = config;
+        this.cached = cached;
     }
 
     @Override
     protected Boolean call() throws Exception {
-        //Check if there is a song inside the given folder and delete, update or add it.
+        //Check if there is a song inside the given folder and prepare to delete, update or add it.
         //Will return true if a song exists in the given directory, false otherwise.
-        DSLContext database = DSL.using(config);
-        SimFile simFile = SimFile.searchSimFile(directory, format -> settings().getSimFormatPriority(format));
+        FileStat directoryStat = FileStat.read(directory.file(), true);
+        directoryLastModified = directoryStat.lastModified;
+
+        FileStat simStat = null;
+        if(!directoryStat.directory) {
+            //Not a directory or deleted meanwhile
+            simFile = null;
+        } else if(cached != null && cached.directoryLastModified == directoryLastModified) {
+            //No file has been added or removed from the directory so the cached sim file is still
+            //the one with higher priority. Fall back to a full search if it cannot be found anyway.
+            FileHandle file = directory.child(cached.simPath);
+            simStat = FileStat.read(file.file(), false);
+            simFile = simStat.lastModified != 0 ? new SimFile(file) : searchSimFile();
+        } else {
+            simFile = searchSimFile();
+        }
 
         if(simFile != null) {
             //The song directory contains a sim file
-            String cachedHash = getCachedHash(database);
-            String hash = simFile.computeHash();
-
-            if(cachedHash == null) {
-                //Song is not in the index. Add the song to the index
-                addSong(database, simFile, hash);
-            } else if(!cachedHash.equals(hash)) {
-                //Song is already in the index but the sim file has changed. Update if possible
-                updateSong(database, cachedHash);
+            if(simStat == null || simStat.lastModified == 0) {
+                simStat = FileStat.read(simFile.getFile().file(), false);
+            }
+            simLength = simStat.length;
+            simLastModified = simStat.lastModified;
+
+            if(cached != null && isSameSimFile(cached)) {
+                //Sim file is unchanged, avoid reading and hashing it
+                hash = cached.hash;
+                if(cached.directoryLastModified != directoryLastModified) {
+                    change = Change.STAT;
+                }
+                return true;
+            }
+
+            hash = simFile.computeHash();
+
+            if(cached == null) {
+                //Song is not in the index. Load the song to add it to the index
+                song = new SongLoader(pack, simFile).call();
+                chartRecords = newChartRecords();
+                change = Change.ADD;
+            } else if(!cached.hash.equals(hash)) {
+                //Song is already in the index but the sim file has changed. Load the song to update it
+                song = new SongLoader(pack, simFile).call();
+                chartRecords = newChartRecords();
+                change = Change.UPDATE;
+            } else {
+                //Sim file was touched but its content is unchanged. Only refresh the stored file stats
+                change = Change.STAT;
             }
             return true;
         } else {
             //The song directory doesn't contain a sim file. If there is a song in the index at this directory
             //it should be removed from the index because the sim file isn't available anymore.
-            removeSong(database);
+            if(cached != null) {
+                change = Change.REMOVE;
+            }
             return false;
         }
     }
 
+    private SimFile searchSimFile() {
+        return SimFile.searchSimFile(directory, format -> settings().getSimFormatPriority(format));
+    }
+
+    private boolean isSameSimFile(CachedSong cached) {
+        return cached.simPath.equals(simFile.getFile().name())
+                && cached.simLength == simLength
+                && cached.simLastModified == simLastModified;
+    }
+
     /**
-     * Adds the song to the index.
+     * Applies the change computed by the task to the index. Must be called after the task
+     * has been completed successfully. New rows are added to the given batch that must be executed
+     * by the caller to complete the change.
      * @param database the database context.
-     * @param hash the sim file hash.
+     * @param batch the batch collecting songs and charts to insert.
+     * @throws Exception if the change cannot be written to the index.
      */
-    private void addSong(DSLContext database, SimFile simFile, String hash) throws Exception {
-        //Load the song
-        Song song = new SongLoader(pack, simFile).call();
-
-        //Insert the song into the database and get the song id
-        int songId = database.insertInto(SONGS)
-                .set(SONGS.PACK, song.pack)
-                .set(SONGS.DIRECTORY, song.directory.name())
-                .set(SONGS.HASH, hash)
-                .set(SONGS.SIM_PATH, simFile.getFile().name())
-                .set(SONGS.FORMAT, simFile.getFormat().name())
-                .set(SONGS.TITLE, song.title)
-                .set(SONGS.SUBTITLE, song.subtitle)
-                .set(SONGS.ARTIST, song.artist)
-                .set(SONGS.GENRE, song.genre)
-                .set(SONGS.BANNER_PATH, song.bannerPath)
-                .set(SONGS.BACKGROUND_PATH, song.backgroundPath)
-                .set(SONGS.ALBUM, song.album)
-                .set(SONGS.MUSIC_PATH, song.musicPath)
-                .set(SONGS.SAMPLE_START, song.sampleStart)
-                .set(SONGS.SAMPLE_LENGTH, song.sampleLength)
-                .returning(SONGS.ID)
-                .fetchOne()
-                .getValue(SONGS.ID);
-
-        //Insert each chart into the database
-        for(Chart chart : song.charts)
-            database.insertInto(CHARTS)
-                    .set(CHARTS.ID, UUID.randomUUID().toString()) //TODO compute unique
-                    .set(CHARTS.SONG_ID, songId)
-                    .set(CHARTS.HASH, chart.hash)
-                    .set(CHARTS.DIFFICULTY_CLASS, chart.difficultyClass.name())
-                    .set(CHARTS.DIFFICULTY_METER, chart.difficultyMeter)
-                    //TODO.set(CHARTS.DISPLAY_BPM, chart.displayBPM)
-                    .set(CHARTS.NAME, chart.name)
-                    .set(CHARTS.DESCRIPTION, chart.description)
-                    .set(CHARTS.CREDIT, chart.credit)
-                    .execute();
+    public void write(DSLContext database, IndexBatch batch) throws Exception {
+        switch(change) {
+            case ADD:
+                addSong(batch);
+                break;
+            case UPDATE:
+                updateSong(database, batch);
+                break;
+            case REMOVE:
+                removeSong(database);
+                break;
+            case STAT:
+                updateSongStat(database);
+                break;
+        }
+    }
+
+    /**
+     * Adds the song to the index.
+     * @param batch the batch collecting songs and charts to insert.
+     */
+    private void addSong(IndexBatch batch) {
+        SongsRecord record = new SongsRecord();
+        record.setPack(song.pack);
+        record.setDirectory(song.directory.name());
+        record.setHash(hash);
+        record.setSimPath(simFile.getFile().name());
+        record.setSimLength(simLength);
+        record.setSimLastModified(simLastModified);
+        record.setDirectoryLastModified(directoryLastModified);
+        record.setFormat(simFile.getFormat().name());
+        record.setTitle(song.title);
+        record.setSubtitle(song.subtitle);
+        record.setArtist(song.artist);
+        record.setGenre(song.genre);
+        record.setBannerPath(song.bannerPath);
+        record.setBackgroundPath(song.backgroundPath);
+        record.setAlbum(song.album);
+        record.setMusicPath(song.musicPath);
+        record.setSampleStart(song.sampleStart);
+        record.setSampleLength(song.sampleLength);
+
+        //Charts are bound to the song id when the batch is executed
+        List<ChartsRecord> charts = new ArrayList<>(chartRecords.size());
+        for(ChartsRecord chartRecord : chartRecords) {
+            charts.add(copyChartRecord(chartRecord));
+        }
+        batch.addSong(record, charts);
 
         Gdx.app.log("Song Indexer", String.format("Add song %s/%s with hash %s", pack, directory.name(), hash));
     }
@@ -142,35 +253,275 @@ public class SongIndexer extends Task<Boolean> {
      * @param database the database context.
      */
     private void removeSong(DSLContext database) {
+        Condition condition = SONGS.PACK.eq(pack).and(SONGS.DIRECTORY.eq(directory.name()));
+        SongSearchIndex.remove(database, condition);
         database.deleteFrom(SONGS)
-                .where(SONGS.PACK.eq(pack).and(SONGS.DIRECTORY.eq(directory.name())))
+                .where(condition)
                 .execute();
 
         Gdx.app.log("Song Indexer", String.format("Remove song %s/%s", pack, directory.name()));
     }
 
     /**
-     * Attempts to update the song in the index. If updating the song is not feasible
-     * deletes it and adds a new song.
+     * Updates the stored file stats of a song whose sim file content is unchanged.
      * @param database the database context.
-     * @param hash the sim file hash.
      */
-    private void updateSong(DSLContext database ,String hash) {
-        //TODO
-
-        Gdx.app.log("Song Indexer", "Song updated");
+    private void updateSongStat(DSLContext database) {
+        database.update(SONGS)
+                .set(SONGS.SIM_PATH, simFile.getFile().name())
+                .set(SONGS.SIM_LENGTH, simLength)
+                .set(SONGS.SIM_LAST_MODIFIED, simLastModified)
+                .set(SONGS.DIRECTORY_LAST_MODIFIED, directoryLastModified)
+                .where(SONGS.PACK.eq(pack).and(SONGS.DIRECTORY.eq(directory.name())))
+                .execute();
     }
 
     /**
-     * Gets the hash of the sim file that generated the cached version of the song into the index.
+     * Updates the song in the index. Charts are compared by hash: new charts are inserted and charts that aren't
+     * in the sim file anymore are deleted. Charts whose hash is still in the sim file only get their position
+     * and bpms refreshed, as song timing tags are not covered by the chart hash.
      * @param database the database context.
-     * @return the hash of the cached song's sim file, or null if the song is not cached
+     * @param batch the batch collecting songs and charts to insert.
      */
-    private String getCachedHash(DSLContext database) {
-        return database
-                .select(SONGS.HASH)
-                .from(SONGS)
+    private void updateSong(DSLContext database, IndexBatch batch) {
+        SongsRecord record = database.selectFrom(SONGS)
                 .where(SONGS.PACK.eq(pack).and(SONGS.DIRECTORY.eq(directory.name())))
-                .fetchOne(SONGS.HASH);
+                .fetchOne();
+
+        if(record == null) {
+            //Song has been removed from the index meanwhile
+            addSong(batch);
+            return;
+        }
+
+        record.setHash(hash);
+        record.setSimPath(simFile.getFile().name());
+        record.setSimLength(simLength);
+        record.setSimLastModified(simLastModified);
+        record.setDirectoryLastModified(directoryLastModified);
+        record.setFormat(simFile.getFormat().name());
+        record.setTitle(song.title);
+        record.setSubtitle(song.subtitle);
+        record.setArtist(song.artist);
+        record.setGenre(song.genre);
+        record.setBannerPath(song.bannerPath);
+        record.setBackgroundPath(song.backgroundPath);
+        record.setAlbum(song.album);
+        record.setMusicPath(song.musicPath);
+        record.setSampleStart(song.sampleStart);
+        record.setSampleLength(song.sampleLength);
+        record.update(); //Only changed fields are written
+        SongSearchIndex.update(database, SONGS.ID.eq(record.getId()));
+
+        //Chart ids are derived from the chart hash, so a chart whose id is already indexed has the same note data
+        Map<String, Record> staleCharts = database
+                .selectFrom(CHARTS)
+                .where(CHARTS.SONG_ID.eq(record.getId()))
+                .fetchMap(CHARTS.ID, r -> r.into(REFRESHED_CHART_FIELDS));
+
+        //Insert charts that are not in the index yet
+        int insertCount = 0;
+        for(ChartsRecord newRecord : chartRecords) {
+            String id = newRecord.getId();
+            Record indexed = staleCharts.remove(id);
+            if(indexed == null) {
+                ChartsRecord chartRecord = copyChartRecord(newRecord);
+                chartRecord.setSongId(record.getId());
+                batch.addChart(chartRecord);
+                insertCount++;
+                continue;
+            }
+            //The chart may have moved inside the sim file because other charts have changed,
+            //and its bpms may have changed with the song timing tags
+            Record refreshed = newRecord.into(REFRESHED_CHART_FIELDS);
+            if(!indexed.equals(refreshed)) {
+                database.update(CHARTS)
+                        .set(refreshed)
+                        .where(CHARTS.ID.eq(id))
+                        .execute();
+            }
+        }
+
+        //Delete charts that are not in the sim file anymore
+        if(!staleCharts.isEmpty()) {
+            database.deleteFrom(CHARTS)
+                    .where(CHARTS.ID.in(staleCharts.keySet()))
+                    .execute();
+        }
+
+        Gdx.app.log("Song Indexer", String.format("Update song %s/%s with hash %s (%d charts added, %d removed)",
+                pack, directory.name(), hash, insertCount, staleCharts.size()));
+    }
+
+    /**
+     * Creates the index records of the song charts, without song id. Called by the task so that
+     * the bpm statistics are computed on the worker threads rather than by the writer.
+     * @return the chart records.
+     */
+    private List<ChartsRecord> newChartRecords() {
+        //Charts with the same timing data share the timing, that is built once
+        Map<TimingData, Timing> timings = new HashMap<>();
+        List<ChartsRecord> records = new ArrayList<>(song.charts.size());
+        for(Chart chart : song.charts) {
+            if(!timings.containsKey(chart.timingData)) {
+                timings.put(chart.timingData, newTiming(chart));
+            }
+            records.add(newChartRecord(chart, timings.get(chart.timingData)));
+        }
+        return records;
+    }
+
+    /**
+     * Builds the timing of a chart to compute its bpm statistics.
+     * @param chart the chart.
+     * @return the timing, or null if it cannot be built.
+     */
+    private Timing newTiming(Chart chart) {
+        try {
+            return new Timing(chart.timingData);
+        } catch(Exception e) {
+            Gdx.app.error("Song Indexer", String.format("Cannot compute bpm statistics of chart %s", chart.hash), e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates the index record of a chart of the song, without song id.
+     * @param chart the chart.
+     * @param timing the chart timing, or null if it cannot be built.
+     * @return the chart record.
+     */
+    private ChartsRecord newChartRecord(Chart chart, Timing timing) {
+        ChartsRecord record = new ChartsRecord();
+        record.setId(computeChartId(pack, directory.name(), chart.hash));
+        record.setHash(chart.hash);
+        record.setType(chart.type.name());
+        record.setDifficultyClass(chart.difficultyClass != null ? chart.difficultyClass.name() : null);
+        record.setDifficultyMeter(chart.difficultyMeter);
+        //TODO record.setDisplayBpm(chart.displayBPM);
+        if(timing != null && timing.getDominantBpm() >= 0) {
+            //Prefer the bpms actually played, bpms skipped by warps aren't included
+            record.setMinBpm((float) timing.getMinBpm());
+            record.setMaxBpm((float) timing.getMaxBpm());
+            record.setDominantBpm((float) timing.getDominantBpm());
+        } else {
+            record.setMinBpm(Collections.min(chart.timingData.bpms.values()).floatValue());
+            record.setMaxBpm(Collections.max(chart.timingData.bpms.values()).floatValue());
+        }
+        record.setName(chart.name);
+        record.setDescription(chart.description);
+        record.setCredit(chart.credit);
+        record.setDataOffset(chart.dataOffset);
+        record.setDataLength(chart.dataLength);
+        return record;
+    }
+
+    /**
+     * Copies a chart record computed by the task, so that the write can be repeated
+     * if the batch it has been added to fails.
+     * @param record the chart record.
+     * @return a new record with the same values.
+     */
+    private static ChartsRecord copyChartRecord(ChartsRecord record) {
+        ChartsRecord copy = new ChartsRecord();
+        copy.from(record);
+        return copy;
+    }
+
+    /**
+     * Computes the id of a chart. The id only depends on the song location and on the chart content
+     * so that it doesn't change when the library is indexed again.
+     * @param pack the pack the song belongs to.
+     * @param directory the name of the song directory.
+     * @param chartHash the chart hash.
+     * @return the chart id, an hex string of 32 characters.
+     */
+    public static String computeChartId(String pack, String directory, String chartHash) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(pack, Charsets.UTF_8);
+        hasher.putByte((byte) 0);
+        hasher.putString(directory, Charsets.UTF_8);
+        hasher.putByte((byte) 0);
+        hasher.putString(chartHash, Charsets.UTF_8);
+        return HashCode.fromBytes(Arrays.copyOf(hasher.hash().asBytes(), CHART_ID_LENGTH)).toString();
+    }
+
+    private static boolean isNioAvailable() {
+        try {
+            Class.forName("java.nio.file.Files");
+            return true;
+        } catch(ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The change to apply to the index.
+     */
+    private enum Change {
+        NONE,
+        ADD,
+        UPDATE,
+        REMOVE,
+        STAT
+    }
+
+    /**
+     * The attributes of a file used to detect changes. A missing file has last modified time 0.
+     */
+    private static class FileStat {
+        boolean directory;
+        long length;
+        long lastModified;
+
+        /**
+         * Reads the attributes of a file, with a single call where java.nio.file is available.
+         * @param file the file.
+         * @param directory true if the file should be a directory, its length is not needed.
+         * @return the file attributes.
+         */
+        static FileStat read(File file, boolean directory) {
+            FileStat stat = new FileStat();
+            if(NIO_AVAILABLE) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                    stat.directory = attributes.isDirectory();
+                    stat.length = attributes.size();
+                    stat.lastModified = attributes.lastModifiedTime().toMillis();
+                } catch(IOException e) {
+                    //Missing or unreadable, like File.lastModified()
+                }
+            } else {
+                stat.lastModified = file.lastModified();
+                if(stat.lastModified != 0) {
+                    if(directory) {
+                        stat.directory = file.isDirectory();
+                    } else {
+                        stat.length = file.length();
+                    }
+                }
+            }
+            return stat;
+        }
+    }
+
+    /**
+     * The state of a song stored into the index, used to detect changes without reading the sim file.
+     */
+    public static class CachedSong {
+        public final String hash;
+        public final String simPath;
+        public final long simLength;
+        public final long simLastModified;
+        public final long directoryLastModified;
+
+        public CachedSong(String hash, String simPath, long simLength, long simLastModified,
+                          long directoryLastModified) {
+            this.hash = hash;
+            this.simPath = simPath;
+            this.simLength = simLength;
+            this.simLastModified = simLastModified;
+            this.directoryLastModified = directoryLastModified;
+        }
     }
 }
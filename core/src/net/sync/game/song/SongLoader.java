@@ -22,6 +22,7 @@
 
 package net.sync.game.song;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import net.sync.game.song.sim.SimChartParser;
 import net.sync.game.song.sim.SimFile;
@@ -32,8 +33,13 @@ import net.sync.game.util.concurrent.Task;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static net.sync.game.Game.settings;
+import static net.sync.game.Game.songs;
 import static net.sync.game.song.sim.SimParser.parseOrDefault;
 
 public class SongLoader extends Task<Song> {
@@ -41,6 +47,9 @@ public class SongLoader extends Task<Song> {
     private static final long MAX_FILE_LENGTH = 10 * 1024 * 1024; //10 megabytes
     private String pack;
     private SimFile simFile;
+    private boolean view;
+    /* The only chart to load, null to load all the charts */
+    private Chart selectedChart;
 
     /**
      * Creates a song loader from a given directory.
@@ -57,8 +66,33 @@ public class SongLoader extends Task<Song> {
      * @param simFile the song sim file.
      */
     public SongLoader(String pack, SimFile simFile) {
+        this(pack, simFile, false);
+    }
+
+    /**
+     * Creates a song loader from a given sim file.
+     * @param pack the pack the song belongs to.
+     * @param simFile the song sim file.
+     * @param view true to load the song in view state, parsing the beatmap and building the timing
+     *             of each chart. Beatmaps are read from the compiled charts when available, otherwise
+     *             charts are compiled. False to load song and charts metadata and timing data only.
+     */
+    public SongLoader(String pack, SimFile simFile, boolean view) {
         this.pack = pack;
         this.simFile = simFile;
+        this.view = view;
+    }
+
+    /**
+     * Creates a song loader that loads a single chart of a song in view state. Only the data
+     * of the given chart is parsed, read at the chart position inside the sim file when known.
+     * @param pack the pack the song belongs to.
+     * @param simFile the song sim file.
+     * @param chart the chart to load, its hash and data position are used to find it.
+     */
+    public SongLoader(String pack, SimFile simFile, Chart chart) {
+        this(pack, simFile, true);
+        this.selectedChart = chart;
     }
 
     @Override
@@ -73,9 +107,15 @@ public class SongLoader extends Task<Song> {
             throw new IOException("Sim file size exceeds the maximum allowed file size.");
         }
 
-        //Get and initialize the parser
+        //Get and initialize the parser, note data is only needed in view state
         SimParser parser = simFile.getFormat().newParser();
-        parser.init(simFile);
+        parser.setFallbackCharsets(settings().getSimFileCharsets());
+        if(selectedChart != null && selectedChart.dataOffset >= 0) {
+            //Read the song data and the selected chart only
+            parser.initChart(simFile, selectedChart.dataOffset);
+        } else {
+            parser.init(simFile, !view);
+        }
 
         //Parse song
         Song song = new Song();
@@ -102,12 +142,26 @@ public class SongLoader extends Task<Song> {
             throw new SimParseException("Required music path not specified");
 
         //Parse charts
+        ChartCache chartCache = view ? songs().getChartCache() : null;
+        //Charts with the same timing data share the timing, that is built once
+        Map<TimingData, Timing> timings = new HashMap<>();
         song.charts = new ArrayList<>();
-        for(SimChartParser chartParser : parser.getChartParsers()) {
+        List<SimChartParser> chartParsers;
+        if(selectedChart != null) {
+            SimChartParser chartParser = parser.getChartParser(selectedChart.hash,
+                    selectedChart.dataOffset, selectedChart.dataLength);
+            if(chartParser == null)
+                throw new SimParseException("The sim file doesn't contain the chart anymore");
+            chartParsers = Collections.singletonList(chartParser);
+        } else {
+            chartParsers = parser.getChartParsers();
+        }
+        for(SimChartParser chartParser : chartParsers) {
             chartParser.init();
             try {
                 //Parse chart
                 Chart chart = new Chart();
+                chart.id = selectedChart != null ? selectedChart.id : null;
                 chart.song = song;
                 chart.type = chartParser.parseChartType();
                 chart.hash = chartParser.getHash();
@@ -117,7 +171,16 @@ public class SongLoader extends Task<Song> {
                 chart.description = parseOrDefault(chartParser::parseDescription, null);
                 chart.credit = parseOrDefault(chartParser::parseCredit, null);
                 chart.displayBPM = parseOrDefault(chartParser::parseDisplayBPM, null);
+                if(!view) {
+                    //Stored into the index, so that the chart can be parsed alone
+                    chart.dataOffset = chartParser.getDataOffset();
+                    chart.dataLength = chartParser.getDataLength();
+                }
+
+                //Timing data is always parsed, it may come from song tags that the chart hash doesn't cover
                 chart.timingData = chartParser.parseTimingData();
+                //In view state read the beatmap from the compiled chart if available
+                boolean compiled = view && chartCache.read(chart);
 
                 //Validate chart
                 if(chart.type == null)
@@ -125,6 +188,19 @@ public class SongLoader extends Task<Song> {
                 if(chart.timingData.bpms.isEmpty())
                     throw new SimParseException("Timing data incomplete. Required BPMS not specified");
 
+                if(view) {
+                    if(!compiled) {
+                        chart.beatmap = chartParser.parseBeatmap();
+                        writeCompiledChart(chartCache, chart);
+                    }
+                    chart.timing = timings.get(chart.timingData);
+                    if(chart.timing == null) {
+                        chart.timing = new Timing(chart.timingData);
+                        timings.put(chart.timingData, chart.timing);
+                    }
+                    chart.timingData = chart.timing.getTimingData();
+                }
+
                 song.charts.add(chart);
             } catch(SimParseException e) {
                 //Skip invalid chart
@@ -138,5 +214,13 @@ public class SongLoader extends Task<Song> {
         return song;
     }
 
+    private void writeCompiledChart(ChartCache chartCache, Chart chart) {
+        try {
+            chartCache.write(chart);
+        } catch(IOException e) {
+            //Not fatal, the chart will be parsed again next time
+            Gdx.app.error("Song Loader", "Cannot write compiled chart " + chart.hash, e);
+        }
+    }
 
 }
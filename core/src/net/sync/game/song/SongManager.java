@@ -22,50 +22,579 @@
 
 package net.sync.game.song;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.sync.game.database.schema.tables.records.ChartsRecord;
+import net.sync.game.song.note.NotePanel;
+import net.sync.game.song.sim.SimFile;
+
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.SelectConditionStep;
+import org.jooq.SelectSeekStepN;
+import org.jooq.SortField;
+import org.jooq.impl.DSL;
 
-import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static net.sync.game.Game.database;
+import static net.sync.game.Game.executors;
+import static net.sync.game.database.schema.tables.Charts.CHARTS;
+import static net.sync.game.database.schema.tables.Songs.SONGS;
 
 public class SongManager {
-    //Start indexing the given folder (the songs folder)
-    public void index(FileHandle dir) {
-        //TODO Temp test
-        long millis = System.currentTimeMillis();
-        for(FileHandle f : dir.list(File::isDirectory)) {
-            String pack = f.name();
-            try(DSLContext database = database().getDSL()) {
-                database.transaction(configuration -> {
-                    for(FileHandle songDir : f.list(File::isDirectory)) {
-                        SongIndexer indexer = new SongIndexer(pack, songDir, configuration);
-                        try {
-                            indexer.call();
-                        } catch (Exception e) {
-                            e.printStackTrace();
+    /** The number of threads used to scan, hash and parse songs while indexing */
+    private static final int INDEX_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /** Max number of songs matching a text search that are ranked, keeps searches within a few ms */
+    private static final int MAX_RANKED_MATCHES = 2000;
+
+    /** The songs table fields that are read into song rows */
+    private static final Field<?>[] SONG_ROW_FIELDS = {
+            SONGS.ID, SONGS.PACK, SONGS.DIRECTORY, SONGS.SIM_PATH, SONGS.TITLE, SONGS.SUBTITLE, SONGS.ARTIST,
+            SONGS.GENRE, SONGS.BANNER_PATH, SONGS.BACKGROUND_PATH, SONGS.MUSIC_PATH, SONGS.SAMPLE_START, SONGS.SAMPLE_LENGTH
+    };
+
+    /** Max estimated memory used by songs in view state kept in cache, in bytes */
+    private static final int VIEW_CACHE_MAX_WEIGHT = 64 * 1024 * 1024;
+    /** Estimated memory used by a note of a beatmap, in bytes: tick, type, length and at most a row of four ints */
+    private static final int NOTE_WEIGHT = 6 * Integer.BYTES + 1;
+    /** Estimated memory used by a song without beatmaps, in bytes */
+    private static final int SONG_WEIGHT = 16 * 1024;
+    /** Local directory of compiled charts, next to the database */
+    private static final String CHART_CACHE_DIRECTORY = "charts";
+
+    private int indexWorkersId = -1;
+    private int indexWriterId = -1;
+    private int watcherId = -1;
+    private int loaderId = -1;
+    private FileHandle songsDirectory;
+    private LibraryIndexer indexer;
+    private LibraryWatcher watcher;
+
+    /* Songs in view state mapped by sim file path, least recently used songs are evicted first */
+    private Cache<String, Song> viewCache = CacheBuilder.newBuilder()
+            .maximumWeight(VIEW_CACHE_MAX_WEIGHT)
+            .weigher(SongManager::estimateWeight)
+            .build();
+    /* Songs being loaded in view state mapped by sim file path */
+    private Map<String, Future<Song>> loading = new HashMap<>();
+    /* Preload tasks that are still running, cancelled when other songs are preloaded */
+    private List<Future<Song>> preloading = new ArrayList<>();
+    /* Compiled charts, used to load songs in view state without parsing note data */
+    private ChartCache chartCache = new ChartCache(Gdx.files.local(CHART_CACHE_DIRECTORY));
+
+    /**
+     * Starts indexing the given folder (the songs folder) in background. If there is an
+     * indexing task already running it will be cancelled.
+     * @param dir the songs folder.
+     * @return the indexing task, can be used to check progress or to cancel indexing.
+     */
+    public synchronized LibraryIndexer index(FileHandle dir) {
+        if(indexer != null && !indexer.isDone()) {
+            indexer.cancel(true);
+        }
+        songsDirectory = dir;
+        indexer = new LibraryIndexer(dir, getIndexWorkers(), INDEX_WORKERS);
+        getIndexWriter().execute(indexer);
+        return indexer;
+    }
+
+    /**
+     * Starts indexing the given packs and songs of the songs folder in background. The task is
+     * queued after indexing tasks that are already running, that are not cancelled.
+     * @param dir the songs folder.
+     * @param packs the names of the pack directories to index.
+     * @param songs the names of the song directories to index, mapped by pack name.
+     * @return the indexing task, can be used to check progress or to cancel indexing.
+     */
+    public synchronized LibraryIndexer index(FileHandle dir, Set<String> packs, SetMultimap<String, String> songs) {
+        LibraryIndexer partialIndexer = new LibraryIndexer(dir, packs, songs, getIndexWorkers(), INDEX_WORKERS);
+        getIndexWriter().execute(partialIndexer);
+        return partialIndexer;
+    }
+
+    /**
+     * Starts watching the given folder (the songs folder) in background, indexing packs and songs as
+     * soon as they are added, edited or removed. If the folder is already being watched the previous
+     * watcher is stopped. Requires java.nio.file support, available on desktop.
+     * @param dir the songs folder.
+     * @return the watcher, can be used to stop watching.
+     * @throws IOException if the folder cannot be watched.
+     */
+    public synchronized LibraryWatcher watch(FileHandle dir) throws IOException {
+        if(watcher != null) {
+            watcher.stop();
+        }
+        watcher = new LibraryWatcher(dir);
+        getWatcherExecutor().execute(watcher);
+        return watcher;
+    }
+
+    /**
+     * Finds a page of songs matching the given params. Rows are read straight from the index
+     * using its indexes, without loading songs. Can be called from any thread.
+     * @param params the search params.
+     * @return the matching songs, at most {@link SongSearchParams#limit} rows.
+     */
+    public List<SongRow> find(SongSearchParams params) {
+        //Fields of the sort key. They end with the song id so that the key is unique
+        Field<String> title = DSL.lower(SONGS.TITLE);
+        Field<String> artist = DSL.lower(DSL.coalesce(SONGS.ARTIST, DSL.inline("")));
+        List<Field<?>> sortKey;
+        switch(params.sortOrder) {
+            case ARTIST:
+                sortKey = Arrays.asList(artist, SONGS.ID);
+                break;
+            case PACK:
+                sortKey = Arrays.asList(SONGS.PACK, title, SONGS.ID);
+                break;
+            default:
+                sortKey = Arrays.asList(title, SONGS.ID);
+                break;
+        }
+
+        List<Condition> conditions = new ArrayList<>();
+        if(params.title != null) {
+            conditions.add(startsWith(title, params.title));
+        }
+        if(params.artist != null) {
+            conditions.add(startsWith(artist, params.artist));
+        }
+        if(params.pack != null) {
+            conditions.add(SONGS.PACK.eq(params.pack));
+        }
+        if(params.genre != null) {
+            conditions.add(DSL.lower(SONGS.GENRE).eq(DSL.lower(DSL.val(params.genre))));
+        }
+
+        //Songs must have at least a chart matching every chart filter
+        List<Condition> chartConditions = new ArrayList<>();
+        if(params.chartType != null) {
+            chartConditions.add(CHARTS.TYPE.eq(params.chartType.name()));
+        }
+        if(params.difficultyClass != null) {
+            chartConditions.add(CHARTS.DIFFICULTY_CLASS.eq(params.difficultyClass.name()));
+        }
+        if(params.minMeter != null) {
+            chartConditions.add(CHARTS.DIFFICULTY_METER.ge(params.minMeter));
+        }
+        if(params.maxMeter != null) {
+            chartConditions.add(CHARTS.DIFFICULTY_METER.le(params.maxMeter));
+        }
+        if(params.minBpm != null) {
+            chartConditions.add(CHARTS.MIN_BPM.ge(params.minBpm));
+        }
+        if(params.maxBpm != null) {
+            chartConditions.add(CHARTS.MAX_BPM.le(params.maxBpm));
+        }
+        if(!chartConditions.isEmpty()) {
+            conditions.add(DSL.exists(DSL.selectOne()
+                    .from(CHARTS)
+                    .where(CHARTS.SONG_ID.eq(SONGS.ID))
+                    .and(DSL.and(chartConditions))));
+        }
+
+        List<Field<?>> fields = new ArrayList<>(Arrays.asList(SONG_ROW_FIELDS));
+        fields.addAll(sortKey);
+
+        List<SortField<?>> orderBy = new ArrayList<>(sortKey.size());
+        for(Field<?> field : sortKey) {
+            orderBy.add(field.asc());
+        }
+
+        Result<Record> result;
+        try(DSLContext database = database().getDSL()) {
+            SelectSeekStepN<Record> query = database.select(fields)
+                    .from(SONGS)
+                    .where(conditions)
+                    .orderBy(orderBy);
+            if(params.after != null) {
+                checkArgument(params.after.sortKey.length == sortKey.size(), "after row has a different sort order");
+                result = query.seek(params.after.sortKey).limit(params.limit).fetch();
+            } else {
+                result = query.limit(params.limit).fetch();
+            }
+        }
+
+        List<SongRow> rows = new ArrayList<>(result.size());
+        for(Record record : result) {
+            SongRow row = toSongRow(record);
+            row.sortKey = new Object[sortKey.size()];
+            for(int i = 0; i < sortKey.size(); i++) {
+                row.sortKey[i] = record.get(sortKey.get(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Creates a song in preview state from a song row. A song in preview state holds the metadata
+     * stored into the index only, charts have empty timing data and no timing and beatmap. One query is
+     * executed to read charts, the sim file is not accessed.
+     * @param row the song row, returned by a song search.
+     * @return the song in preview state.
+     * @throws IllegalStateException if no songs folder has been indexed yet.
+     */
+    public Song preview(SongRow row) {
+        checkState(songsDirectory != null, "No songs folder has been indexed");
+        Song song = new Song();
+        song.pack = row.pack;
+        song.directory = songsDirectory.child(row.pack).child(row.directory);
+        song.simFile = new SimFile(song.directory.child(row.simPath));
+        song.title = row.title;
+        song.subtitle = row.subtitle;
+        song.artist = row.artist;
+        song.genre = row.genre;
+        song.bannerPath = row.bannerPath;
+        song.backgroundPath = row.backgroundPath;
+        song.musicPath = row.musicPath;
+        song.sampleStart = row.sampleStart;
+        song.sampleLength = row.sampleLength;
+        song.charts = new ArrayList<>();
+
+        try(DSLContext database = database().getDSL()) {
+            for(ChartsRecord record : database.selectFrom(CHARTS).where(CHARTS.SONG_ID.eq(row.id)).fetch()) {
+                Chart chart = new Chart();
+                chart.id = record.getId();
+                chart.hash = record.getHash();
+                chart.song = song;
+                chart.type = ChartType.valueOf(record.getType());
+                chart.difficultyClass = record.getDifficultyClass() != null
+                        ? DifficultyClass.valueOf(record.getDifficultyClass()) : null;
+                chart.difficultyMeter = record.getDifficultyMeter() != null ? record.getDifficultyMeter() : -1;
+                chart.name = record.getName();
+                chart.description = record.getDescription();
+                chart.credit = record.getCredit();
+                chart.dataOffset = record.getDataOffset() != null ? record.getDataOffset() : -1;
+                chart.dataLength = record.getDataLength() != null ? record.getDataLength() : -1;
+                song.charts.add(chart);
+            }
+        }
+        Collections.sort(song.charts);
+        return song;
+    }
+
+    /**
+     * Loads a song in view state in background. A song in view state has timing data, timing
+     * and beatmap of each chart ready to be played. Songs in view state are kept in a memory bounded
+     * cache, so loading a recently loaded or preloaded song completes immediately.
+     * <p>
+     * The given song is not modified: the result is a distinct song instance parsed from the sim file.
+     * Beatmaps are read from the {@link ChartCache} when the charts have been compiled before.
+     * </p>
+     * @param song the song to load, in any state. Only pack, directory and sim file are used.
+     * @return a future whose result is the song in view state.
+     */
+    public synchronized Future<Song> load(Song song) {
+        return load(song.simFile.getFile().path(), new SongLoader(song.pack, song.simFile, true));
+    }
+
+    /**
+     * Loads a single chart of a song in view state in background. Only the data of the given chart is
+     * parsed, reading it at the position stored into the index, so it's faster than loading the whole
+     * song when the chart to play is already known. If the whole song is in the cache the chart is
+     * taken from it.
+     * @param chart the chart to load, in any state. Its song pack and sim file, the chart hash and
+     *              data position are used.
+     * @return a future whose result is the chart in view state. Its song holds this chart only.
+     */
+    public synchronized Future<Chart> load(Chart chart) {
+        String key = chart.song.simFile.getFile().path();
+        Song cached = viewCache.getIfPresent(key);
+        if(cached != null) {
+            for(Chart cachedChart : cached.charts) {
+                if(cachedChart.hash.equals(chart.hash)) {
+                    return Futures.immediateFuture(cachedChart);
+                }
+            }
+        }
+        Future<Song> future = load(getChartKey(key, chart), new SongLoader(chart.song.pack, chart.song.simFile, chart));
+        return Futures.lazyTransform(future, song -> song.charts.get(0));
+    }
+
+    private synchronized Future<Song> load(String key, SongLoader loader) {
+        Song cached = viewCache.getIfPresent(key);
+        if(cached != null) {
+            return Futures.immediateFuture(cached);
+        }
+
+        Future<Song> future = loading.get(key);
+        if(future != null) {
+            //Explicitly requested, don't cancel it when preloading other songs
+            preloading.remove(future);
+        } else {
+            FutureTask<Song> task = new FutureTask<Song>(loader::call) {
+                @Override
+                protected void done() {
+                    synchronized(SongManager.this) {
+                        //The song may have been unloaded, and loaded again, while it was loading.
+                        //Only the current loading is cached, so unloaded songs don't come back.
+                        if(loading.get(key) != this) {
+                            return;
+                        }
+                        loading.remove(key);
+                        if(!isCancelled()) {
+                            try {
+                                viewCache.put(key, get());
+                            } catch(InterruptedException | ExecutionException e) {
+                                //Songs that cannot be loaded are not cached
+                            }
                         }
                     }
-                });
+                }
+            };
+            loading.put(key, task);
+            getLoader().execute(task);
+            future = task;
+        }
+        return future;
+    }
+
+    /**
+     * Loads the given songs in view state in background, usually the songs next to the selected one
+     * during song selection. Songs that are still waiting to be preloaded by a previous call are
+     * cancelled, so calling this method as the selection changes doesn't pile up work.
+     * @param songs the songs to preload.
+     */
+    public synchronized void preload(List<Song> songs) {
+        List<Future<Song>> previous = preloading;
+        preloading = new ArrayList<>();
+        for(Song song : songs) {
+            String key = song.simFile.getFile().path();
+            Future<Song> future = loading.get(key);
+            if(future == null) {
+                future = load(song);
+            }
+            if(!future.isDone()) {
+                preloading.add(future);
+            }
+        }
+
+        //Cancel previous preloads that are not needed anymore
+        for(Future<Song> future : previous) {
+            if(!preloading.contains(future) && future.cancel(false)) {
+                loading.values().remove(future);
             }
         }
-        System.out.println(System.currentTimeMillis() - millis);
     }
 
-    //Find a set of song matching the given params
-    public void find(SongSearchParams params) {
+    /**
+     * Removes the given song from the cache of songs in view state, cancelling its loading if
+     * it hasn't started yet. Timing and beatmaps of the given song are released, bringing it
+     * back to the preview state. Charts of the song loaded alone are removed as well.
+     * @param song the song to unload.
+     */
+    public synchronized void unload(Song song) {
+        String key = song.simFile.getFile().path();
+        unload(key);
+        for(Chart chart : song.charts) {
+            unload(getChartKey(key, chart));
+            chart.beatmap = null;
+            chart.timing = null;
+        }
+    }
 
+    private void unload(String key) {
+        viewCache.invalidate(key);
+        Future<Song> future = loading.remove(key);
+        if(future != null) {
+            future.cancel(false);
+        }
     }
 
-    //From preview to view state
-    public void load(Song song) {
+    /* Key of a song in view state holding a single chart */
+    private static String getChartKey(String key, Chart chart) {
+        return key + '#' + chart.hash;
+    }
 
+    /**
+     * Gets the cache of compiled charts. Charts loaded in view state are compiled on first load.
+     * @return the chart cache.
+     */
+    public ChartCache getChartCache() {
+        return chartCache;
     }
 
-    //From view to preview state
-    public void unload(Song song) {
+    /**
+     * Searches songs whose title, subtitle, artist, genre, album or pack contain every word of the given
+     * text, using the full-text index. The last word is matched as a prefix so that the search can run
+     * while the user is typing. Results are ranked by relevance unless the text matches more than
+     * {@link #MAX_RANKED_MATCHES} songs. Can be called from any thread.
+     * @param text the text to search.
+     * @param limit the max number of results.
+     * @return the matching songs, best matches first.
+     */
+    public List<SongRow> search(String text, int limit) {
+        Condition match = SongSearchIndex.match(text);
+        if(match == null) {
+            return new ArrayList<>();
+        }
+
+        Result<Record> result;
+        try(DSLContext database = database().getDSL()) {
+            //Ranking costs about a microsecond per matching song. Counting is way cheaper, so
+            //check that the text is selective enough to rank matches within the time budget
+            int matchCount = database.fetchCount(DSL.selectOne()
+                    .from(SongSearchIndex.SONGS_SEARCH)
+                    .where(match)
+                    .limit(MAX_RANKED_MATCHES + 1));
 
+            SelectConditionStep<Record> query = database.select(SONG_ROW_FIELDS)
+                    .from(SongSearchIndex.SONGS_SEARCH)
+                    .join(SONGS).on(SONGS.ID.eq(SongSearchIndex.ROWID))
+                    .where(match);
+            if(matchCount <= MAX_RANKED_MATCHES) {
+                result = query.orderBy(SongSearchIndex.RANK).limit(limit).fetch();
+            } else {
+                //Too many matches, return them unranked. Results get ranked as the user types more text
+                result = query.limit(limit).fetch();
+            }
+        }
+
+        List<SongRow> rows = new ArrayList<>(result.size());
+        for(Record record : result) {
+            rows.add(toSongRow(record));
+        }
+        return rows;
+    }
+
+    /**
+     * Estimates the memory used by a song in view state.
+     * @param key the song key.
+     * @param song the song.
+     * @return the estimated weight in bytes.
+     */
+    private static int estimateWeight(String key, Song song) {
+        long weight = SONG_WEIGHT;
+        for(Chart chart : song.charts) {
+            if(chart.beatmap != null) {
+                for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                    weight += (long) chart.beatmap.countNotes(panel) * NOTE_WEIGHT;
+                }
+            }
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a song row from a record containing the {@link #SONG_ROW_FIELDS}.
+     * @param record the record.
+     * @return the song row.
+     */
+    private static SongRow toSongRow(Record record) {
+        SongRow row = new SongRow();
+        row.id = record.get(SONGS.ID);
+        row.pack = record.get(SONGS.PACK);
+        row.directory = record.get(SONGS.DIRECTORY);
+        row.simPath = record.get(SONGS.SIM_PATH);
+        row.title = record.get(SONGS.TITLE);
+        row.subtitle = record.get(SONGS.SUBTITLE);
+        row.artist = record.get(SONGS.ARTIST);
+        row.genre = record.get(SONGS.GENRE);
+        row.bannerPath = record.get(SONGS.BANNER_PATH);
+        row.backgroundPath = record.get(SONGS.BACKGROUND_PATH);
+        row.musicPath = record.get(SONGS.MUSIC_PATH);
+        if(record.get(SONGS.SAMPLE_START) != null) {
+            row.sampleStart = record.get(SONGS.SAMPLE_START);
+        }
+        if(record.get(SONGS.SAMPLE_LENGTH) != null) {
+            row.sampleLength = record.get(SONGS.SAMPLE_LENGTH);
+        }
+        return row;
+    }
+
+    /**
+     * Creates a condition that matches lower-cased values of the given field starting with the given
+     * prefix. Written as a range so that indexes on the lower-cased field can be used. Text is compared
+     * as UTF-8 bytes, the range ends at the prefix followed by a byte that is never part of UTF-8 text
+     * and is greater than the first byte of any char.
+     * @param lowerField the lower-cased field.
+     * @param prefix the prefix, case insensitive.
+     * @return the condition.
+     */
+    private static Condition startsWith(Field<String> lowerField, String prefix) {
+        Field<String> lowerPrefix = DSL.lower(DSL.val(prefix));
+        return lowerField.ge(lowerPrefix)
+                .and(lowerField.lt(lowerPrefix.concat(DSL.inline(new byte[] {(byte) 0xF5}))));
+    }
+
+    /**
+     * Gets the pool used to scan, hash and parse songs while indexing. The pool is
+     * created on first use and managed by the executor manager.
+     * @return the index workers pool.
+     */
+    private ExecutorService getIndexWorkers() {
+        if(indexWorkersId == -1) {
+            indexWorkersId = executors().generateId();
+            executors().putExecutor(indexWorkersId, Executors.newFixedThreadPool(INDEX_WORKERS,
+                    new ThreadFactoryBuilder().setNameFormat("song-index-worker-%d").setDaemon(true).build()));
+        }
+        return executors().getExecutor(indexWorkersId);
     }
 
+    /**
+     * Gets the single thread executor that writes indexed songs into the database. The executor
+     * is created on first use and managed by the executor manager.
+     * @return the index writer executor.
+     */
+    private ExecutorService getIndexWriter() {
+        if(indexWriterId == -1) {
+            indexWriterId = executors().generateId();
+            executors().putExecutor(indexWriterId, Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("song-index-writer").setDaemon(true).build()));
+        }
+        return executors().getExecutor(indexWriterId);
+    }
 
+    /**
+     * Gets the single thread executor that loads songs in view state. The executor
+     * is created on first use and managed by the executor manager.
+     * @return the song loader executor.
+     */
+    private ExecutorService getLoader() {
+        if(loaderId == -1) {
+            loaderId = executors().generateId();
+            executors().putExecutor(loaderId, Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("song-loader").setDaemon(true).build()));
+        }
+        return executors().getExecutor(loaderId);
+    }
+
+    /**
+     * Gets the single thread executor that runs the library watcher. The executor
+     * is created on first use and managed by the executor manager.
+     * @return the watcher executor.
+     */
+    private ExecutorService getWatcherExecutor() {
+        if(watcherId == -1) {
+            watcherId = executors().generateId();
+            executors().putExecutor(watcherId, Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("song-library-watcher").setDaemon(true).build()));
+        }
+        return executors().getExecutor(watcherId);
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.sync.game.database.schema.tables.Songs.SONGS;
+
+/**
+ * Maintains and queries the full-text index of songs, the songs_search FTS5 virtual table. Each row of
+ * the full-text index has the same rowid of the indexed song. Virtual tables are excluded from the
+ * generated schema, so the table is referenced by name.
+ */
+class SongSearchIndex {
+    static final Table<Record> SONGS_SEARCH = DSL.table(DSL.name("songs_search"));
+    static final Field<Integer> ROWID = DSL.field(DSL.name("songs_search", "rowid"), Integer.class);
+
+    /** Rank of matching songs, lower is better. Weights title, subtitle, artist, genre, album and pack */
+    static final Field<Double> RANK = DSL.field(
+            "bm25({0}, 10.0, 2.0, 5.0, 1.0, 1.0, 2.0)", Double.class, SONGS_SEARCH);
+
+    private SongSearchIndex() {}
+
+    /**
+     * Writes the songs matching the given condition to the full-text index, replacing their previous version.
+     * @param database the database context.
+     * @param songs the condition on the songs table.
+     */
+    static void update(DSLContext database, Condition songs) {
+        remove(database, songs);
+        database.insertInto(SONGS_SEARCH)
+                .columns(column("rowid", Integer.class), column("title", String.class),
+                        column("subtitle", String.class), column("artist", String.class),
+                        column("genre", String.class), column("album", String.class),
+                        column("pack", String.class))
+                .select(DSL.select(SONGS.ID, SONGS.TITLE, SONGS.SUBTITLE, SONGS.ARTIST,
+                        SONGS.GENRE, SONGS.ALBUM, SONGS.PACK)
+                        .from(SONGS)
+                        .where(songs))
+                .execute();
+    }
+
+    /**
+     * Removes the songs matching the given condition from the full-text index. Must be called
+     * before removing the songs from the songs table.
+     * @param database the database context.
+     * @param songs the condition on the songs table.
+     */
+    static void remove(DSLContext database, Condition songs) {
+        database.deleteFrom(SONGS_SEARCH)
+                .where(ROWID.in(DSL.select(SONGS.ID).from(SONGS).where(songs)))
+                .execute();
+    }
+
+    private static <T> Field<T> column(String name, Class<T> type) {
+        return DSL.field(DSL.name(name), type);
+    }
+
+    /**
+     * Creates a condition that matches songs whose indexed text contains every word of the given text.
+     * The last word is matched as a prefix, so results can be updated while the user is typing.
+     * @param text the text typed by the user.
+     * @return the condition or null if the text has no word.
+     */
+    static Condition match(String text) {
+        List<String> words = new ArrayList<>();
+        for(String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if(!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        if(words.isEmpty()) {
+            return null;
+        }
+
+        //Quote each word so that it isn't parsed as an FTS5 operator
+        StringBuilder query = new StringBuilder();
+        for(int i = 0; i < words.size(); i++) {
+            if(i > 0) {
+                query.append(' ');
+            }
+            query.append('"').append(words.get(i)).append('"');
+        }
+        query.append('*');
+        return DSL.condition("{0} MATCH {1}", SONGS_SEARCH, DSL.val(query.toString()));
+    }
+}
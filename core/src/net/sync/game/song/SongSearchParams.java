@@ -22,5 +22,49 @@
 
 package net.sync.game.song;
 
+/**
+ * Parameters of a song search, see {@link SongManager#find(SongSearchParams)}. Null fields are ignored.
+ * Text filters are case insensitive, title and artist match any value starting with the given text.
+ * Chart filters select songs that have at least one chart matching all of them.
+ * <p>
+ * Results are paginated with a keyset: to get the next page set {@link #after} to the last row of the
+ * current page, keeping the other parameters unchanged.
+ * </p>
+ */
 public class SongSearchParams {
+    /** The title prefix */
+    public String title;
+    /** The artist prefix */
+    public String artist;
+    /** The song pack */
+    public String pack;
+    /** The song genre */
+    public String genre;
+    /** The chart type */
+    public ChartType chartType;
+    /** The chart difficulty class */
+    public DifficultyClass difficultyClass;
+    /** The min chart difficulty meter, inclusive */
+    public Integer minMeter;
+    /** The max chart difficulty meter, inclusive */
+    public Integer maxMeter;
+    /** The min chart BPM, inclusive */
+    public Float minBpm;
+    /** The max chart BPM, inclusive */
+    public Float maxBpm;
+    /** The order of the results */
+    public SortOrder sortOrder = SortOrder.TITLE;
+    /** The max number of results */
+    public int limit = 50;
+    /** The last row of the previous page, or null to get the first page */
+    public SongRow after;
+
+    /**
+     * The order of search results. Songs with the same sort key are ordered by id.
+     */
+    public enum SortOrder {
+        TITLE,
+        ARTIST,
+        PACK
+    }
 }
@@ -24,7 +24,6 @@ package net.sync.game.song;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ComparisonChain;
-import net.sync.game.util.math.Graph2D;
 import net.sync.game.util.math.Graph2DPoint;
 import net.sync.game.util.math.LineGraph2D;
 
@@ -39,9 +38,10 @@ import java.util.*;
 public class Timing {
     private TimingData timingData;
     /** beat as a function of time **/
-    private Graph2D beatGraph;
+    private LineGraph2D beatGraph;
     /** time as a function of beat **/
-    private Graph2D timeGraph;
+    private LineGraph2D timeGraph;
+    private BpmStatistics statistics;
 
     public Timing(TimingData timingData) {
         Preconditions.checkNotNull(timingData, "Timing data cannot be null");
@@ -55,8 +55,15 @@ public class Timing {
          **/
 
         this.timingData = timingData;
-        this.beatGraph = TimingBeatGraphBuilder.build(timingData);
-        this.timeGraph = beatGraph.invert();
+
+        //Compile both graphs now, timing is evaluated many times per frame
+        LineGraph2D beatGraph = TimingBeatGraphBuilder.build(timingData);
+        LineGraph2D timeGraph = beatGraph.invert();
+        beatGraph.compile();
+        timeGraph.compile();
+        this.beatGraph = beatGraph;
+        this.timeGraph = timeGraph;
+        this.statistics = new BpmStatistics(timingData, beatGraph);
     }
 
     /**
@@ -79,9 +86,16 @@ public class Timing {
      */
     public double getTimeAt(double beat) {
         Preconditions.checkArgument(Double.compare(beat, 0.0D) >= 0, "Beat cannot be less than 0.");
-        Double time = timeGraph.f(beat);
-        Preconditions.checkState(!time.isNaN(), "Invalid timing graph. Infinite pauses aren't allowed.");
-        return time;
+        return checkTime(timeGraph.f(beat));
+    }
+
+    /**
+     * Creates a cursor to get beats and times that are close to the previous ones, like the beats
+     * and times of the frames during playback.
+     * @return the cursor.
+     */
+    public Cursor newCursor() {
+        return new Cursor();
     }
 
     /**
@@ -122,7 +136,7 @@ public class Timing {
      * @return true if there is a stop at the given time, false otherwise.
      */
     public boolean isStop(double time) {
-        TreeMap<Double, Double> stopMap = timingData.stops;
+        NavigableMap<Double, Double> stopMap = timingData.stops;
         Double beat, stopLength, pauseEndTime;
         if(stopMap != null) {
             beat = getBeatAt(time);
@@ -158,8 +172,8 @@ public class Timing {
      * @return true if there is a delay at the given time, false otherwise.
      */
     public boolean isDelay(double time) {
-        TreeMap<Double, Double> delayMap = timingData.delays;
-        TreeMap<Double, Double> stopMap = timingData.stops;
+        NavigableMap<Double, Double> delayMap = timingData.delays;
+        NavigableMap<Double, Double> stopMap = timingData.stops;
         Double beat, delayLength, stopLength, pauseEndTime;
         if(delayMap != null) {
             beat = getBeatAt(time);
@@ -202,7 +216,7 @@ public class Timing {
      */
     public boolean isWarp(double beat) {
         Preconditions.checkArgument(Double.compare(beat, 0.0D) >= 0, "Beat cannot be less than 0.");
-        TreeMap<Double, Double> warpMap = timingData.warps;
+        NavigableMap<Double, Double> warpMap = timingData.warps;
         if(warpMap != null && !warpMap.isEmpty()) {
             Map.Entry<Double, Double> floorEntry = warpMap.floorEntry(beat);
             if(floorEntry != null) {
@@ -213,60 +227,238 @@ public class Timing {
     }
 
     /**
-     * Gets the dominant BPM from the initial 0.0 beat to the given time in seconds.
+     * Gets the dominant BPM from the initial 0.0 beat to the given time in seconds, the BPM that
+     * lasts longer. Pauses are not included.
      * @param time the time in seconds from the initial 0.0 beat.
-     * @return the dominant bpm up to the given time.
+     * @return the dominant bpm up to the given time, or -1 if there is no bpm up to the given time.
      */
     public double getDominantBpm(double time) {
-        double prevBpm = -1;
-        double prevTime = -1;
-
-        //Stores the duration of each bpm
-        Map<Double, Double> durations = new HashMap<>();
-
-        Iterator<Graph2DPoint> it = beatGraph.getPoints().iterator();
-        while(it.hasNext()) {
-            Graph2DPoint point = it.next();
-            double currTime = point.x;
-
-            if(prevBpm >= 0) {
-                //Increment total duration of the previous bpm segment
-                double duration = 0.0D;
-                if(durations.containsKey(prevBpm)) {
-                    duration = durations.get(prevBpm);
+        return statistics.getDominantBpm(time);
+    }
+
+    /**
+     * Gets the dominant BPM of the whole timing, up to one beat after the last timing change.
+     * @return the dominant bpm.
+     * @see #getDominantBpm(double)
+     */
+    public double getDominantBpm() {
+        return statistics.getDominantBpm(statistics.getEndTime());
+    }
+
+    /**
+     * Gets the lowest BPM played from the initial 0.0 beat to the given time in seconds. BPMs
+     * skipped by warps are not included.
+     * @param time the time in seconds from the initial 0.0 beat.
+     * @return the min bpm up to the given time, or -1 if there is no bpm up to the given time.
+     */
+    public double getMinBpm(double time) {
+        return statistics.getMinBpm(time);
+    }
+
+    /**
+     * @return the lowest BPM played in the whole timing.
+     * @see #getMinBpm(double)
+     */
+    public double getMinBpm() {
+        return statistics.getMinBpm(statistics.getEndTime());
+    }
+
+    /**
+     * Gets the highest BPM played from the initial 0.0 beat to the given time in seconds. BPMs
+     * skipped by warps are not included.
+     * @param time the time in seconds from the initial 0.0 beat.
+     * @return the max bpm up to the given time, or -1 if there is no bpm up to the given time.
+     */
+    public double getMaxBpm(double time) {
+        return statistics.getMaxBpm(time);
+    }
+
+    /**
+     * @return the highest BPM played in the whole timing.
+     * @see #getMaxBpm(double)
+     */
+    public double getMaxBpm() {
+        return statistics.getMaxBpm(statistics.getEndTime());
+    }
+
+    /**
+     * Gets the total length of the pauses (stops and delays) from the initial 0.0 beat to the given time.
+     * @param time the time in seconds from the initial 0.0 beat.
+     * @return the pauses length in seconds.
+     */
+    public double getTotalPauseLength(double time) {
+        return statistics.getTotalPauseLength(time);
+    }
+
+    public TimingData getTimingData() {
+        return timingData;
+    }
+
+    private static double checkTime(double time) {
+        Preconditions.checkState(!Double.isNaN(time), "Invalid timing graph. Infinite pauses aren't allowed.");
+        return time;
+    }
+
+    /**
+     * Gets beats and times like {@link Timing#getBeatAt(double)} and {@link Timing#getTimeAt(double)},
+     * remembering the timing segment of the last lookup. Lookups close to the previous one step to the
+     * next segment instead of searching the timing. A cursor is not thread safe, each consumer
+     * should use its own cursor.
+     */
+    public class Cursor {
+        private final LineGraph2D.Cursor beatCursor = beatGraph.newCursor();
+        private final LineGraph2D.Cursor timeCursor = timeGraph.newCursor();
+
+        private Cursor() {}
+
+        /**
+         * @see Timing#getBeatAt(double)
+         */
+        public double getBeatAt(double time) {
+            return beatCursor.f(time);
+        }
+
+        /**
+         * @see Timing#getTimeAt(double)
+         */
+        public double getTimeAt(double beat) {
+            Preconditions.checkArgument(Double.compare(beat, 0.0D) >= 0, "Beat cannot be less than 0.");
+            return checkTime(timeCursor.f(beat));
+        }
+
+        public Timing getTiming() {
+            return Timing.this;
+        }
+    }
+
+    /**
+     * BPM statistics computed once from the segments of the beat graph. A segment goes from a point
+     * of the graph to the next one, the last segment goes on after the last point. For each segment
+     * the statistics of the segments before it are stored, statistics up to a time are found with
+     * a binary search and the part of the segment that contains the time.
+     */
+    private static class BpmStatistics {
+        /* Segment start times */
+        private final double[] times;
+        /* Segment bpms, NaN for pause segments */
+        private final double[] bpms;
+        /* Total duration of the segment bpm in the segments before */
+        private final double[] bpmDurationsBefore;
+        /* Dominant bpm and its total duration in the segments before, -1 if there is none */
+        private final double[] dominantBpmsBefore;
+        private final double[] dominantDurationsBefore;
+        /* Min and max bpm up to the segment, included */
+        private final double[] minBpms;
+        private final double[] maxBpms;
+        /* Total length of the pauses in the segments before */
+        private final double[] pausesBefore;
+        /* Time of the last point of the graph */
+        private final double endTime;
+
+        BpmStatistics(TimingData timingData, LineGraph2D beatGraph) {
+            List<Graph2DPoint> points = new ArrayList<>(beatGraph.getPoints());
+            int count = points.size() - 1;
+            times = new double[count];
+            bpms = new double[count];
+            bpmDurationsBefore = new double[count];
+            dominantBpmsBefore = new double[count];
+            dominantDurationsBefore = new double[count];
+            minBpms = new double[count];
+            maxBpms = new double[count];
+            pausesBefore = new double[count];
+            endTime = points.get(count).x;
+
+            Map<Double, Double> durations = new HashMap<>();
+            double dominantBpm = -1;
+            double dominantDuration = 0.0D;
+            double minBpm = Double.POSITIVE_INFINITY;
+            double maxBpm = Double.NEGATIVE_INFINITY;
+            double pauses = 0.0D;
+            for(int i = 0; i < count; i++) {
+                Graph2DPoint start = points.get(i);
+                Graph2DPoint end = points.get(i + 1);
+                double startBeat = start.y + start.jump;
+                double duration = end.x - start.x;
+                times[i] = start.x;
+                dominantBpmsBefore[i] = dominantBpm;
+                dominantDurationsBefore[i] = dominantDuration;
+                pausesBefore[i] = pauses;
+
+                Map.Entry<Double, Double> bpmEntry = timingData.bpms.floorEntry(startBeat);
+                if(Double.compare(startBeat, end.y) == 0 || bpmEntry == null) {
+                    //The beat doesn't move, it is a pause
+                    bpms[i] = Double.NaN;
+                    pauses += duration;
+                } else {
+                    double bpm = bpmEntry.getValue();
+                    Double bpmDuration = durations.get(bpm);
+                    bpms[i] = bpm;
+                    bpmDurationsBefore[i] = bpmDuration != null ? bpmDuration : 0.0D;
+                    durations.put(bpm, bpmDurationsBefore[i] + duration);
+                    if(bpmDurationsBefore[i] + duration > dominantDuration) {
+                        dominantBpm = bpm;
+                        dominantDuration = bpmDurationsBefore[i] + duration;
+                    }
+                    minBpm = Math.min(minBpm, bpm);
+                    maxBpm = Math.max(maxBpm, bpm);
                 }
-                duration += (!it.hasNext() || point.x > time ? time : currTime) - prevTime;
-                durations.put(prevBpm, duration);
-                prevBpm = -1;
+                minBpms[i] = minBpm;
+                maxBpms[i] = maxBpm;
             }
+        }
 
-            //Check if it is the last point or the given time has been passed
-            if(!it.hasNext() || point.x > time) {
-                break;
-            }
+        double getEndTime() {
+            return endTime;
+        }
 
-            //Include only bpm segments into calculations, ignore pause segments.
-            if(!isPause(getBeatAt(currTime))) {
-                prevBpm = getBpmAt(getBeatAt(point.x));
+        double getDominantBpm(double time) {
+            int segment = floorSegment(time);
+            if(segment < 0) {
+                return -1;
             }
+            double elapsed = time - times[segment];
+            if(Double.isNaN(bpms[segment]) || elapsed <= 0.0D) {
+                return dominantBpmsBefore[segment];
+            }
+            //Only the duration of the segment bpm changes inside the segment
+            return bpmDurationsBefore[segment] + elapsed > dominantDurationsBefore[segment] ?
+                    bpms[segment] : dominantBpmsBefore[segment];
+        }
 
-            prevTime = currTime;
+        double getMinBpm(double time) {
+            int segment = lastStartedSegment(time);
+            return segment >= 0 && minBpms[segment] != Double.POSITIVE_INFINITY ? minBpms[segment] : -1;
         }
 
-        //Calculate dominant bpm
-        double bpm = -1;
-        double duration = -1;
-        for(Map.Entry<Double, Double> entry : durations.entrySet()) {
-            if(entry.getValue() > duration) {
-                bpm = entry.getKey();
-                duration = entry.getValue();
+        double getMaxBpm(double time) {
+            int segment = lastStartedSegment(time);
+            return segment >= 0 && maxBpms[segment] != Double.NEGATIVE_INFINITY ? maxBpms[segment] : -1;
+        }
+
+        double getTotalPauseLength(double time) {
+            int segment = floorSegment(time);
+            if(segment < 0) {
+                return 0.0D;
             }
+            double elapsed = time - times[segment];
+            return pausesBefore[segment] + (Double.isNaN(bpms[segment]) && elapsed > 0.0D ? elapsed : 0.0D);
         }
-        return bpm;
-    }
 
-    public TimingData getTimingData() {
-        return timingData;
+        /**
+         * @return the index of the segment that contains the given time, -1 if the time is before the first segment.
+         */
+        private int floorSegment(double time) {
+            int index = Arrays.binarySearch(times, time);
+            return Math.min(index >= 0 ? index : -index - 2, times.length - 1);
+        }
+
+        /**
+         * @return the index of the last segment started before the given time, -1 if there is none.
+         */
+        private int lastStartedSegment(double time) {
+            int segment = floorSegment(time);
+            return segment >= 0 && time <= times[segment] ? segment - 1 : segment;
+        }
     }
 
     /**
@@ -22,19 +22,48 @@
 
 package net.sync.game.song;
 
+import com.google.common.collect.Maps;
+
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.TreeMap;
 
+import static com.google.common.base.Preconditions.checkState;
+
 /**
+ * Holds the data that maps beats to time: offset, BPM changes and pauses.
+ * <p>
+ *     Timing data is often the same for all the charts of a song, so it can be shared. Shared timing data
+ *     must be unmodifiable (see {@link #toUnmodifiable()}), charts with their own timing data get a copy.
+ * </p>
  * @author Vincenzo Fortunato
  */
 public class TimingData {
     public double offset = 0.0D;
-    public TreeMap<Double, Double> bpms;
-    public TreeMap<Double, Double> stops;
-    public TreeMap<Double, Double> delays;
-    public TreeMap<Double, Double> warps;
+    public NavigableMap<Double, Double> bpms;
+    public NavigableMap<Double, Double> stops;
+    public NavigableMap<Double, Double> delays;
+    public NavigableMap<Double, Double> warps;
+    private boolean unmodifiable = false;
+
+    public TimingData() {
+
+    }
+
+    /**
+     * Creates a modifiable copy of the given timing data.
+     * @param data the timing data to copy.
+     */
+    public TimingData(TimingData data) {
+        offset = data.offset;
+        bpms = copy(data.bpms);
+        stops = copy(data.stops);
+        delays = copy(data.delays);
+        warps = copy(data.warps);
+    }
 
     public Double putBpm(double beat, double bpm) {
+        checkModifiable();
         if(bpms == null) {
            bpms = new TreeMap<>();
         }
@@ -42,6 +71,7 @@ public class TimingData {
     }
 
     public Double putStop(double beat, double length) {
+        checkModifiable();
         if(stops == null) {
             stops = new TreeMap<>();
         }
@@ -49,6 +79,7 @@ public class TimingData {
     }
 
     public Double putDelay(double beat, double length) {
+        checkModifiable();
         if(delays == null) {
             delays = new TreeMap<>();
         }
@@ -56,9 +87,61 @@ public class TimingData {
     }
 
     public Double putWarp(double beat, double length) {
+        checkModifiable();
         if(warps == null) {
             warps = new TreeMap<>();
         }
         return warps.put(beat, length);
     }
+
+    /**
+     * Gets an unmodifiable version of this timing data that can be shared between charts. Maps are
+     * wrapped, not copied, so this timing data must not be modified afterwards.
+     * @return the unmodifiable timing data, this instance if it is already unmodifiable.
+     */
+    public TimingData toUnmodifiable() {
+        if(unmodifiable) {
+            return this;
+        }
+        TimingData data = new TimingData();
+        data.offset = offset;
+        data.bpms = bpms != null ? Maps.unmodifiableNavigableMap(bpms) : null;
+        data.stops = stops != null ? Maps.unmodifiableNavigableMap(stops) : null;
+        data.delays = delays != null ? Maps.unmodifiableNavigableMap(delays) : null;
+        data.warps = warps != null ? Maps.unmodifiableNavigableMap(warps) : null;
+        data.unmodifiable = true;
+        return data;
+    }
+
+    /**
+     * @return true if the timing data cannot be modified.
+     */
+    public boolean isUnmodifiable() {
+        return unmodifiable;
+    }
+
+    private void checkModifiable() {
+        checkState(!unmodifiable, "Timing data is unmodifiable!");
+    }
+
+    private static NavigableMap<Double, Double> copy(NavigableMap<Double, Double> map) {
+        return map != null ? new TreeMap<>(map) : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(o == null || getClass() != o.getClass()) return false;
+        TimingData data = (TimingData) o;
+        return Double.compare(offset, data.offset) == 0
+                && Objects.equals(bpms, data.bpms)
+                && Objects.equals(stops, data.stops)
+                && Objects.equals(delays, data.delays)
+                && Objects.equals(warps, data.warps);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offset, bpms, stops, delays, warps);
+    }
 }
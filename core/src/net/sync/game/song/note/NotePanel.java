@@ -34,6 +34,8 @@ public class NotePanel {
     public static final int RIGHT_UP = 6;
     public static final int UP = 7;
     public static final int CENTER = 8;
+    /** Number of panels, panel values go from 0 to COUNT - 1 **/
+    public static final int COUNT = 9;
 
     public static int[] getModePanels(GameMode mode) {
         switch (mode) {
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.sync.game.song.note;
+
+/**
+ * Note types. Types are stored as bytes in the beatmap, sets of types are represented by bit masks
+ * where each type is the bit {@code 1 << type}.
+ */
+public class NoteType {
+    public static final byte TAP = 0;
+    public static final byte HOLD = 1;
+    public static final byte ROLL = 2;
+    public static final byte MINE = 3;
+    public static final byte AUTO_KEY_SOUND = 4;
+    public static final byte LIFT = 5;
+    public static final byte FAKE = 6;
+    /** Number of types, type values go from 0 to COUNT - 1 **/
+    public static final int COUNT = 7;
+
+    /** Mask of all the types **/
+    public static final int ALL = (1 << COUNT) - 1;
+    /** Mask of the types that are judged **/
+    public static final int JUDGEABLE = 1 << TAP | 1 << HOLD | 1 << ROLL | 1 << MINE | 1 << LIFT;
+    /** Mask of the types that have a length **/
+    public static final int LENGTHY = 1 << HOLD | 1 << ROLL;
+    /** Mask of the types that are part of a chord when they share the same beat **/
+    public static final int CHORD = 1 << TAP | 1 << HOLD | 1 << ROLL;
+
+    /**
+     * Checks if a type is in a set of types.
+     * @param type the note type.
+     * @param types the mask of the types.
+     * @return true if the type is in the mask.
+     */
+    public static boolean is(byte type, int types) {
+        return (types & 1 << type) != 0;
+    }
+}
@@ -22,7 +22,6 @@
 
 package net.sync.game.song.sim;
 
-import com.badlogic.gdx.utils.IntSet;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import net.sync.game.song.Beatmap;
@@ -30,13 +29,12 @@ import net.sync.game.song.ChartType;
 import net.sync.game.song.DifficultyClass;
 import net.sync.game.song.DisplayBPM;
 import net.sync.game.song.TimingData;
-import net.sync.game.song.note.HoldNote;
-import net.sync.game.song.note.Note;
 import net.sync.game.song.note.NotePanel;
 import net.sync.game.song.note.NoteResolution;
-import net.sync.game.song.note.TapNote;
+import net.sync.game.song.note.NoteType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -54,13 +52,18 @@ public class DWIParser extends TagSimParser {
     private static Pattern BPM_STOP_PATTERN = Pattern.compile("([+-]?\\d+(\\.\\d+)?)\\s*=\\s*(\\+?\\d+(\\.\\d+)?)");
 
     @Override
-    protected DataSupplier createDataSupplier(String rawContent) throws SimParseException {
-        return new DWIDataSupplier(rawContent);
+    protected DataSupplier createDataSupplier(TagTokenizer tags) throws SimParseException {
+        return new DWIDataSupplier(tags);
     }
 
     @Override
-    protected SimChartParser createChartParser(String chartRawContent) {
-        return new DWIChartParser(chartRawContent);
+    protected SimChartParser createChartParser(TagTokenizer tags, TagRange chartTags) {
+        return new DWIChartParser(tags, chartTags);
+    }
+
+    @Override
+    protected String[] getChartTagNames() {
+        return new String[] {"SINGLE", "DOUBLE", "COUPLE", "SOLO"};
     }
 
     @Override
@@ -144,6 +147,7 @@ public class DWIParser extends TagSimParser {
         throw new SimParseException("This format doesn't support this property");
     }
 
+    @Override
     public TimingData parseGlobalTimingData() throws SimParseException {
         TimingData data = new TimingData();
         parseGlobalOffset(data);
@@ -208,22 +212,18 @@ public class DWIParser extends TagSimParser {
     private static class DWIDataSupplier implements DataSupplier {
         /** Contains header tags where key is the tag name and value is the tag value **/
         private Map<String, String> headerTagsMap = new HashMap<>();
-        /** Contains charts data as string that are a result of the concatenation
-         * of tag name and tag value separated by a colon (tagname:tagvalue).
-         * In DWI format chart tag names is the style.**/
-        private List<String> chartTagsValues = new ArrayList<>();
-
-        DWIDataSupplier(String rawContent) throws SimParseException {
-            //Split the content into tags
-            Matcher matcher = TAG_PATTERN.matcher(rawContent);
-            while(matcher.find()) {
-                String tagName = matcher.group(1);
-                String tagValue = matcher.group(2);
-
+        /** Contains the tags of each chart, a single tag. In DWI format chart tag name is the style. **/
+        private List<TagRange> chartTagRanges = new ArrayList<>();
+        private TagTokenizer tags;
+
+        DWIDataSupplier(TagTokenizer tags) throws SimParseException {
+            this.tags = tags;
+            for(int i = 0; i < tags.size(); i++) {
+                String tagName = tags.getName(i);
                 if(isChartTag(tagName)) {
-                    chartTagsValues.add(tagName + ":" + tagValue);
+                    chartTagRanges.add(new TagRange(i, i + 1));
                 } else {
-                    headerTagsMap.put(tagName.toUpperCase(), tagValue);
+                    headerTagsMap.put(tagName.toUpperCase(), tags.getValue(i));
                 }
             }
             if(headerTagsMap.isEmpty()){
@@ -236,8 +236,13 @@ public class DWIParser extends TagSimParser {
         }
 
         @Override
-        public List<String> getChartTagValues() {
-            return chartTagsValues;
+        public TagTokenizer getTags() {
+            return tags;
+        }
+
+        @Override
+        public List<TagRange> getChartTagRanges() {
+            return chartTagRanges;
         }
 
         private boolean isChartTag(String tagName) {
@@ -253,28 +258,48 @@ public class DWIParser extends TagSimParser {
     }
 
     protected class DWIChartParser implements SimChartParser {
-        private String[] chartData;
+        private TagTokenizer tags;
+        private TagRange chartTags;
+        /** Offsets of the chart data fields, the first one is the tag name **/
+        private int[] fields;
         private String hash;
 
-        public DWIChartParser(String chartRawData) {
-            //Compute the chart raw data hash
+        public DWIChartParser(TagTokenizer tags, TagRange chartTags) {
+            this.tags = tags;
+            this.chartTags = chartTags;
+            int tag = chartTags.start;
+            int valueStart = tags.getValueStart(tag);
+            int valueEnd = tags.getValueEnd(tag);
+
+            //Compute the chart raw data hash, chart raw data is the tag name and value separated by a colon
             Hasher hasher = Hashing.sha256().newHasher();
-            hasher.putBytes(chartRawData.getBytes());
+            tags.putChars(hasher, tags.getNameStart(tag), tags.getNameEnd(tag));
+            tags.putChars(hasher, ":");
+            tags.putChars(hasher, valueStart, valueEnd);
             hash = hasher.hash().toString();
 
-            chartData = chartRawData.split("\\s*:\\s*");
+            //Fields are only offsets, note data is read when parsing the beatmap
+            int[] valueFields = tags.split(valueStart, valueEnd);
+            fields = new int[valueFields.length + 2];
+            fields[0] = tags.getNameStart(tag);
+            fields[1] = tags.getNameEnd(tag);
+            System.arraycopy(valueFields, 0, fields, 2, valueFields.length);
         }
 
         @Override
         public void init() throws SimParseException {
-            if(chartData.length < 4) { //Must be 4 (or 5 if double mode).
+            if(fields.length < 4 * 2) { //Must be 4 (or 5 if double mode).
                 throw new SimParseException("Invalid chart data.");
             }
         }
 
+        private String getField(int index) {
+            return tags.getString(fields[index * 2], fields[index * 2 + 1]);
+        }
+
         @Override
         public ChartType parseChartType() throws SimParseException {
-            String value = chartData[0];
+            String value = getField(0);
             if(value != null) {
                 switch(value.toUpperCase()) {
                     case "SINGLE":
@@ -289,17 +314,18 @@ public class DWIParser extends TagSimParser {
 
         @Override
         public DifficultyClass parseDifficultyClass() throws SimParseException {
-            return DWIParser.parseDifficultyClass(chartData[1]);
+            return DWIParser.parseDifficultyClass(getField(1));
         }
 
         @Override
         public TimingData parseTimingData() throws SimParseException {
-            return parseGlobalTimingData();
+            return getGlobalTimingData();
         }
 
         @Override
         public Beatmap parseBeatmap() throws SimParseException {
-            return new BeatmapParser(chartData[3]).parse();
+            checkBeatmapAvailable();
+            return new BeatmapParser(tags.getBuffer(), fields[6], fields[7]).parse();
         }
 
         @Override
@@ -327,7 +353,7 @@ public class DWIParser extends TagSimParser {
 
         @Override
         public int parseDifficultyMeter() throws SimParseException {
-            String value = chartData[2];
+            String value = getField(2);
             try {
                 return Integer.parseInt(value);
             } catch(NumberFormatException e) {
@@ -354,29 +380,57 @@ public class DWIParser extends TagSimParser {
         public String getHash() {
             return hash;
         }
+
+        @Override
+        public long getDataOffset() {
+            return getChartDataOffset(chartTags);
+        }
+
+        @Override
+        public int getDataLength() {
+            return getChartDataLength(chartTags);
+        }
     }
 
     private static class BeatmapParser {
-        private Beatmap beatmap = new Beatmap();
-        private String beatmapData;
+        private Beatmap.Builder beatmap = new Beatmap.Builder();
+        private char[] data;
+        private int start;
+        private int end;
         private NoteResolution resolution = NoteResolution.NOTE_8TH; //Default resolution
         private double currentBeat = 0.0D;
         private boolean combining = false;
         private boolean holdFlag = false;
-        /** Contains currently hold panels **/
-        private IntSet holdingPanelSet = new IntSet();
-        /** Contains combined panels **/
-        private IntSet combinePanelSet = new IntSet();
+        /** Bitmask of currently hold panels **/
+        private int holdingPanels = 0;
+        /** Bitmask of combined panels **/
+        private int combinedPanels = 0;
+        /** Beat of the last tap note of each panel, or NaN. It is kept here until another note is found
+         * on the same panel because it may turn into a hold note. **/
+        private double[] tapBeats = new double[NotePanel.COUNT];
 
-        BeatmapParser(String beatmapData) {
-            this.beatmapData = beatmapData.replaceAll("\\s", ""); //Remove whitespaces
+        /**
+         * @param data the buffer holding the beatmap data.
+         * @param start the offset of the first char of the beatmap data.
+         * @param end the offset after the last char of the beatmap data.
+         */
+        BeatmapParser(char[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            Arrays.fill(tapBeats, Double.NaN);
         }
 
         Beatmap parse() throws SimParseException {
-            for(int i = 0; i < beatmapData.length(); i++) {
-                parseDataCharacter(beatmapData.charAt(i));
+            for(int i = start; i < end; i++) {
+                if(!TagTokenizer.isWhitespace(data[i])) { //Skip whitespaces
+                    parseDataCharacter(data[i]);
+                }
             }
-            return beatmap;
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                putTapNote(panel);
+            }
+            return beatmap.build();
         }
 
         /**
@@ -419,9 +473,9 @@ public class DWIParser extends TagSimParser {
                     break;
                 default:
                     //It is a note character.
-                    int[] panels = parseNoteCharacter(dataChar);
+                    int panels = parseNoteCharacter(dataChar);
                     if(combining) {
-                        combinePanelSet.addAll(panels);
+                        combinedPanels |= panels;
                     } else if(holdFlag) {
                         holdPanels(panels);
                     } else {
@@ -431,35 +485,53 @@ public class DWIParser extends TagSimParser {
             }
         }
 
-        private void putPanels(int ... panels) throws SimParseException {
-            for(int panel : panels) {
-                if(holdingPanelSet.remove(panel)) {
+        /**
+         * @param panels bitmask of the panels.
+         */
+        private void putPanels(int panels) throws SimParseException {
+            for(int mask = panels; mask != 0; mask &= mask - 1) {
+                int panel = Integer.numberOfTrailingZeros(mask);
+                if((holdingPanels & (1 << panel)) != 0) {
                     //Parsing hold tail
-                    Note lastNote = beatmap.lastNote(panel);
-                    if(lastNote instanceof TapNote) {
-                        //Calculate hold note length
-                        double length = currentBeat - lastNote.getBeat();
-                        //Replace previous tap note with hold note
-                        beatmap.putNote(panel, new HoldNote(lastNote.getBeat(), length));
-                    } else {
+                    holdingPanels &= ~(1 << panel);
+                    double headBeat = tapBeats[panel];
+                    if(Double.isNaN(headBeat)) {
                         throw new SimParseException("Invalid beatmap data! Expecting tap note as last map value!");
                     }
+                    //The previous tap note is the hold head
+                    beatmap.putNote(panel, NoteType.HOLD, headBeat, currentBeat - headBeat);
+                    tapBeats[panel] = Double.NaN;
                 } else {
-                    beatmap.putNote(panel, new TapNote(currentBeat));
+                    putTapNote(panel);
+                    tapBeats[panel] = currentBeat;
                 }
             }
 
             currentBeat += resolution.noteDistance;
         }
 
-        private void holdPanels(int ... panels) throws SimParseException{
-            if(panels.length == 0) {
+        /**
+         * @param panels bitmask of the panels.
+         */
+        private void holdPanels(int panels) throws SimParseException{
+            if(panels == 0) {
                 throw new SimParseException("Invalid beatmap data! No panel specified for hold note.");
             }
-            holdingPanelSet.addAll(panels);
+            holdingPanels |= panels;
             holdFlag = false; //Panels marked as hold
         }
 
+        /**
+         * Puts the pending tap note of the given panel into the beatmap, if any.
+         * @param panel the note panel.
+         */
+        private void putTapNote(int panel) {
+            if(!Double.isNaN(tapBeats[panel])) {
+                beatmap.putNote(panel, NoteType.TAP, tapBeats[panel]);
+                tapBeats[panel] = Double.NaN;
+            }
+        }
+
         private void setNoteResolution(NoteResolution resolution) throws SimParseException {
             if(combining || holdFlag) {
                 throw new SimParseException("Invalid beatmap data! Current state doesn't allow resolution changes.");
@@ -472,16 +544,10 @@ public class DWIParser extends TagSimParser {
                 throw new SimParseException("Invalid beatmap data. Unclosed/Unopened combinations!");
             }
             this.combining = combining;
-            if(!combining && combinePanelSet.size > 0) {
+            if(!combining && combinedPanels != 0) {
                 //Combine panels
-                int[] panels = new int[combinePanelSet.size];
-                int i = 0;
-                IntSet.IntSetIterator it = combinePanelSet.iterator();
-                while(it.hasNext) {
-                    panels[i] = it.next();
-                    i++;
-                }
-                combinePanelSet.clear();
+                int panels = combinedPanels;
+                combinedPanels = 0;
                 if(holdFlag) {
                     holdPanels(panels);
                 } else {
@@ -490,19 +556,24 @@ public class DWIParser extends TagSimParser {
             }
         }
 
-        private int[] parseNoteCharacter(char noteChar) throws SimParseException {
+        /**
+         * @param noteChar the note character.
+         * @return bitmask of the panels of the note character.
+         * @throws SimParseException if the character isn't a note character.
+         */
+        private int parseNoteCharacter(char noteChar) throws SimParseException {
             switch(noteChar) {
-                case '1': return new int[] {NotePanel.LEFT, NotePanel.DOWN};
-                case '2': return new int[] {NotePanel.DOWN};
-                case '3': return new int[] {NotePanel.DOWN, NotePanel.RIGHT};
-                case '4': return new int[] {NotePanel.LEFT};
-                case '6': return new int[] {NotePanel.RIGHT};
-                case '7': return new int[] {NotePanel.UP, NotePanel.LEFT};
-                case '8': return new int[] {NotePanel.UP};
-                case '9': return new int[] {NotePanel.UP, NotePanel.RIGHT};
-                case 'A': return new int[] {NotePanel.UP, NotePanel.DOWN};
-                case 'B': return new int[] {NotePanel.LEFT, NotePanel.RIGHT};
-                case '0': return new int[0];
+                case '1': return 1 << NotePanel.LEFT | 1 << NotePanel.DOWN;
+                case '2': return 1 << NotePanel.DOWN;
+                case '3': return 1 << NotePanel.DOWN | 1 << NotePanel.RIGHT;
+                case '4': return 1 << NotePanel.LEFT;
+                case '6': return 1 << NotePanel.RIGHT;
+                case '7': return 1 << NotePanel.UP | 1 << NotePanel.LEFT;
+                case '8': return 1 << NotePanel.UP;
+                case '9': return 1 << NotePanel.UP | 1 << NotePanel.RIGHT;
+                case 'A': return 1 << NotePanel.UP | 1 << NotePanel.DOWN;
+                case 'B': return 1 << NotePanel.LEFT | 1 << NotePanel.RIGHT;
+                case '0': return 0;
             }
             throw new SimParseException("Invalid beatmap data! Unrecognised data character!");
         }
@@ -29,18 +29,12 @@ import net.sync.game.song.ChartType;
 import net.sync.game.song.DifficultyClass;
 import net.sync.game.song.DisplayBPM;
 import net.sync.game.song.TimingData;
-import net.sync.game.song.note.AutoKeySoundNote;
-import net.sync.game.song.note.FakeNote;
-import net.sync.game.song.note.HoldNote;
-import net.sync.game.song.note.LiftNote;
-import net.sync.game.song.note.MineNote;
-import net.sync.game.song.note.Note;
 import net.sync.game.song.note.NotePanel;
 import net.sync.game.song.note.NoteResolution;
-import net.sync.game.song.note.RollNote;
-import net.sync.game.song.note.TapNote;
+import net.sync.game.song.note.NoteType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,13 +52,18 @@ public class SMParser extends TagSimParser {
     protected static Pattern TIMING_DATA_PATTERN = Pattern.compile("([+-]?\\d+(\\.\\d+)?)\\s*=\\s*(\\+?\\d+(\\.\\d+)?)");
 
     @Override
-    protected DataSupplier createDataSupplier(String rawContent) throws SimParseException {
-        return new SMDataSupplier(rawContent);
+    protected DataSupplier createDataSupplier(TagTokenizer tags) throws SimParseException {
+        return new SMDataSupplier(tags);
     }
 
     @Override
-    protected SimChartParser createChartParser(String chartRawContent) {
-        return new SMChartParser(chartRawContent);
+    protected SimChartParser createChartParser(TagTokenizer tags, TagRange chartTags) {
+        return new SMChartParser(tags, chartTags);
+    }
+
+    @Override
+    protected String[] getChartTagNames() {
+        return new String[] {"NOTES"};
     }
 
     @Override
@@ -185,6 +184,7 @@ public class SMParser extends TagSimParser {
         return null;
     }
 
+    @Override
     protected TimingData parseGlobalTimingData() throws SimParseException {
         TimingData data = new TimingData();
         parseOffset(data, dataSupplier.getHeaderTagValue("OFFSET"));
@@ -196,7 +196,7 @@ public class SMParser extends TagSimParser {
     protected void parseOffset(TimingData data, String value) throws SimParseException {
         if(value != null) {
             try {
-                data.offset = Double.parseDouble(dataSupplier.getHeaderTagValue("OFFSET"));
+                data.offset = Double.parseDouble(value);
             } catch(NumberFormatException e) {
                 throw new SimParseException("Cannot parse offset tag value: " + value, e);
             }
@@ -234,20 +234,17 @@ public class SMParser extends TagSimParser {
     private static class SMDataSupplier implements DataSupplier {
         /** Contains header tags where key is the tag name and value is the tag value **/
         private Map<String, String> headerTagsMap = new HashMap<>();
-        /** Contains charts data as strings **/
-        private List<String> chartTagsValues = new ArrayList<>();
-
-        SMDataSupplier(String rawContent) throws SimParseException {
-            //Split the content into tags
-            Matcher matcher = TAG_PATTERN.matcher(rawContent);
-            while(matcher.find()) {
-                String tagName = matcher.group(1);
-                String tagValue = matcher.group(2);
-
-                if(tagName.equalsIgnoreCase("NOTES")) { //Chart tag
-                    chartTagsValues.add(tagValue);
+        /** Contains the tags of each chart, a single NOTES tag **/
+        private List<TagRange> chartTagRanges = new ArrayList<>();
+        private TagTokenizer tags;
+
+        SMDataSupplier(TagTokenizer tags) throws SimParseException {
+            this.tags = tags;
+            for(int i = 0; i < tags.size(); i++) {
+                if(tags.isName(i, "NOTES")) { //Chart tag
+                    chartTagRanges.add(new TagRange(i, i + 1));
                 } else { //Header tag
-                    headerTagsMap.put(tagName.toUpperCase(), tagValue);
+                    headerTagsMap.put(tags.getName(i).toUpperCase(), tags.getValue(i));
                 }
             }
 
@@ -262,35 +259,54 @@ public class SMParser extends TagSimParser {
         }
 
         @Override
-        public List<String> getChartTagValues() {
-            return chartTagsValues;
+        public TagTokenizer getTags() {
+            return tags;
         }
 
+        @Override
+        public List<TagRange> getChartTagRanges() {
+            return chartTagRanges;
+        }
     }
 
     protected class SMChartParser implements SimChartParser {
-        private String[] chartData;
+        /** Number of fields of the NOTES tag value, the last one holds the note data **/
+        private static final int FIELDS_COUNT = 6;
+        private TagTokenizer tags;
+        private TagRange chartTags;
+        /** Offsets of the chart data fields **/
+        private int[] fields;
         private String hash;
 
-        public SMChartParser(String chartRawData) {
+        public SMChartParser(TagTokenizer tags, TagRange chartTags) {
+            this.tags = tags;
+            this.chartTags = chartTags;
+            int start = tags.getValueStart(chartTags.start);
+            int end = tags.getValueEnd(chartTags.start);
+
             //Compute the chart raw data hash
             Hasher hasher = Hashing.sha256().newHasher();
-            hasher.putBytes(chartRawData.getBytes());
+            tags.putChars(hasher, start, end);
             hash = hasher.hash().toString();
 
-            chartData = chartRawData.split("\\s*:\\s*");
+            //Fields are only offsets, note data is read when parsing the beatmap
+            fields = tags.split(start, end);
         }
 
         @Override
         public void init() throws SimParseException {
-            if(chartData.length != 6) {
+            if(fields.length != FIELDS_COUNT * 2) {
                 throw new SimParseException("Invalid chart data.");
             }
         }
 
+        private String getField(int index) {
+            return tags.getString(fields[index * 2], fields[index * 2 + 1]);
+        }
+
         @Override
         public ChartType parseChartType() throws SimParseException {
-            String value = chartData[0];
+            String value = getField(0);
             if(value != null) {
                 switch(value.toLowerCase()) {
                     case "dance-single":
@@ -306,23 +322,24 @@ public class SMParser extends TagSimParser {
 
         @Override
         public DifficultyClass parseDifficultyClass() throws SimParseException {
-            return SMParser.parseDifficultyClass(chartData[2]);
+            return SMParser.parseDifficultyClass(getField(2));
         }
 
         @Override
         public TimingData parseTimingData() throws SimParseException {
-            return parseGlobalTimingData();
+            return getGlobalTimingData();
         }
 
         @Override
         public Beatmap parseBeatmap() throws SimParseException {
+            checkBeatmapAvailable();
             ChartType type = parseChartType();
             if(type != null) {
                 switch(type) {
                     case DANCE_SINGLE:
-                        return new DanceSingleBeatmapParser(chartData[5]).parse();
+                        return new DanceSingleBeatmapParser(tags.getBuffer(), fields[10], fields[11]).parse();
                     case PUMP_SINGLE:
-                        return new PumpSingleBeatmapParser(chartData[5]).parse();
+                        return new PumpSingleBeatmapParser(tags.getBuffer(), fields[10], fields[11]).parse();
                     default:
                         throw new SimParseException("Unrecognised/Unsupported chart type: " + type);
                 }
@@ -355,7 +372,7 @@ public class SMParser extends TagSimParser {
 
         @Override
         public int parseDifficultyMeter() throws SimParseException {
-            String value = chartData[3];
+            String value = getField(3);
             try {
                 return Integer.parseInt(value);
             } catch(NumberFormatException e) {
@@ -370,7 +387,7 @@ public class SMParser extends TagSimParser {
 
         @Override
         public String parseDescription() throws SimParseException {
-            return chartData[1];
+            return getField(1);
         }
 
         @Override
@@ -382,54 +399,122 @@ public class SMParser extends TagSimParser {
         public String getHash() {
             return hash;
         }
+
+        @Override
+        public long getDataOffset() {
+            return getChartDataOffset(chartTags);
+        }
+
+        @Override
+        public int getDataLength() {
+            return getChartDataLength(chartTags);
+        }
     }
 
     protected abstract static class BeatmapParser {
-        protected Beatmap beatmap = new Beatmap();
-        private String[] measures;
+        private static final byte LENGTHY_NONE = 0;
+        private static final byte LENGTHY_HOLD = 1;
+        private static final byte LENGTHY_ROLL = 2;
+
+        protected Beatmap.Builder beatmap = new Beatmap.Builder();
+        private char[] data;
+        private int start;
+        private int end;
+        /** Chars of the measure being parsed without whitespaces, reused for every measure **/
+        private char[] measure = new char[NoteResolution.NOTE_192ND.notesInMeasure * 4];
+        /* The last hold or roll note of each panel is kept here until another note is found on the same
+         * panel, because a tail can still change its length. Each lengthy note is created once. */
+        private byte[] lengthyTypes = new byte[NotePanel.COUNT];
+        private double[] lengthyBeats = new double[NotePanel.COUNT];
+        private double[] lengthyLengths = new double[NotePanel.COUNT];
 
-        BeatmapParser(String beatmapData) {
-            beatmapData = beatmapData.replaceAll("\\s", ""); //Remove whitespaces
-            measures = beatmapData.split(",");
+        /**
+         * @param data the buffer holding the beatmap data.
+         * @param start the offset of the first char of the beatmap data.
+         * @param end the offset after the last char of the beatmap data.
+         */
+        BeatmapParser(char[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
         }
 
         Beatmap parse() throws SimParseException {
-            for(int i = 0; i < measures.length; i++) { //Parse each measure separately
-                String measure = measures[i];
-
-                //Ensure measure validity
-                if(measure.length() % getPanelsCount() != 0) {
-                    throw new SimParseException("The value cannot be parsed");
+            //Read measures separated by commas, whitespaces are skipped
+            boolean empty = true;
+            int measureIndex = 0;
+            int measureLength = 0;
+            int emptyMeasures = 0;
+            for(int i = start; i <= end; i++) {
+                char c = i < end ? data[i] : ',';
+                if(i < end && TagTokenizer.isWhitespace(c)) {
+                    continue;
                 }
-
-                //Measure note spacing resolution
-                NoteResolution resolution = null;
-                int notesInMeasure = measure.length() / getPanelsCount();
-                for(NoteResolution res : NoteResolution.values()) {
-                    if(res.notesInMeasure == notesInMeasure) {
-                        resolution = res;
-                        break;
+                if(c == ',') {
+                    if(measureLength > 0) {
+                        if(emptyMeasures > 0) {
+                            //Empty measures are only allowed at the end
+                            throw new SimParseException("The value cannot be parsed!");
+                        }
+                        parseMeasure(measureIndex, measureLength);
+                        measureLength = 0;
+                    } else {
+                        emptyMeasures++;
+                    }
+                    measureIndex++;
+                    if(i < end) {
+                        empty = false;
                     }
+                } else {
+                    if(measureLength == measure.length) {
+                        measure = Arrays.copyOf(measure, measure.length * 2);
+                    }
+                    measure[measureLength++] = c;
+                    empty = false;
                 }
-                if (resolution == null) {
-                    throw new SimParseException("The value cannot be parsed!");
+            }
+            if(empty) {
+                throw new SimParseException("The value cannot be parsed!");
+            }
+
+            for(int panel = 0; panel < NotePanel.COUNT; panel++) {
+                putLengthyNote(panel);
+            }
+            return beatmap.build();
+        }
+
+        private void parseMeasure(int index, int length) throws SimParseException {
+            //Ensure measure validity
+            if(length % getPanelsCount() != 0) {
+                throw new SimParseException("The value cannot be parsed");
+            }
+
+            //Measure note spacing resolution
+            NoteResolution resolution = null;
+            int notesInMeasure = length / getPanelsCount();
+            for(NoteResolution res : NoteResolution.values()) {
+                if(res.notesInMeasure == notesInMeasure) {
+                    resolution = res;
+                    break;
                 }
+            }
+            if (resolution == null) {
+                throw new SimParseException("The value cannot be parsed!");
+            }
 
-                double currentBeat = i * 4.0D;
-                //Read each measure line
-                for(int l = 0; l < measure.length(); l+=getPanelsCount()) {
-                    //Read each character of the current line and parse it
-                    for(int m = 0; m < getPanelsCount(); m++) {
-                        int panel = getPanelFromIndex(m);
-                        if(panel == -1) {
-                            throw new SimParseException("Invalid note panel!");
-                        }
-                        parseNote(panel, currentBeat, measure.charAt(l+m));
+            double currentBeat = index * 4.0D;
+            //Read each measure line
+            for(int l = 0; l < length; l+=getPanelsCount()) {
+                //Read each character of the current line and parse it
+                for(int m = 0; m < getPanelsCount(); m++) {
+                    int panel = getPanelFromIndex(m);
+                    if(panel == -1) {
+                        throw new SimParseException("Invalid note panel!");
                     }
-                    currentBeat += resolution.noteDistance;
+                    parseNote(panel, currentBeat, measure[l+m]);
                 }
+                currentBeat += resolution.noteDistance;
             }
-            return beatmap;
         }
 
         /**
@@ -442,40 +527,61 @@ public class SMParser extends TagSimParser {
         public void parseNote(int panel, double beat, char c) throws SimParseException {
             switch(c) {
                 case '1':
-                    beatmap.putNote(panel, new TapNote(beat));
+                    putNote(panel, NoteType.TAP, beat);
                     break;
                 case '2':
-                    beatmap.putNote(panel, new HoldNote(beat));
+                    putLengthyNote(panel);
+                    lengthyTypes[panel] = LENGTHY_HOLD;
+                    lengthyBeats[panel] = beat;
+                    lengthyLengths[panel] = 0.0D;
                     break;
                 case '3':
-                    Note lastNote = beatmap.lastNote(panel);
-                    //Last note in the map must be a HoldNote or RollNote otherwise beatmap data is invalid.
-                    if(lastNote instanceof HoldNote) {
-                        //Replace note with the properly sized one
-                        beatmap.putNote(panel, new HoldNote(lastNote.getBeat(), beat - lastNote.getBeat()));
-                    } else if(lastNote instanceof RollNote) {
-                        //Replace note with the properly sized one
-                        beatmap.putNote(panel, new RollNote(lastNote.getBeat(), beat - lastNote.getBeat()));
-                    } else {
+                    //Last note on the panel must be a HoldNote or RollNote otherwise beatmap data is invalid.
+                    if(lengthyTypes[panel] == LENGTHY_NONE) {
                         throw new SimParseException("Cannot parse LengthyNote length!");
                     }
+                    lengthyLengths[panel] = beat - lengthyBeats[panel];
                     break;
                 case '4':
-                    beatmap.putNote(panel, new RollNote(beat));
+                    putLengthyNote(panel);
+                    lengthyTypes[panel] = LENGTHY_ROLL;
+                    lengthyBeats[panel] = beat;
+                    lengthyLengths[panel] = 0.0D;
                     break;
                 case 'M':
-                    beatmap.putNote(panel, new MineNote(beat));
+                    putNote(panel, NoteType.MINE, beat);
                     break;
                 case 'K':
-                    beatmap.putNote(panel, new AutoKeySoundNote(beat));
+                    putNote(panel, NoteType.AUTO_KEY_SOUND, beat);
                     break;
                 case 'L':
-                    beatmap.putNote(panel, new LiftNote(beat));
+                    putNote(panel, NoteType.LIFT, beat);
                     break;
                 case 'F':
-                    beatmap.putNote(panel, new FakeNote(beat));
+                    putNote(panel, NoteType.FAKE, beat);
+                    break;
+            }
+        }
+
+        private void putNote(int panel, byte type, double beat) {
+            putLengthyNote(panel);
+            beatmap.putNote(panel, type, beat);
+        }
+
+        /**
+         * Puts the pending hold or roll note of the given panel into the beatmap, if any.
+         * @param panel the note panel.
+         */
+        private void putLengthyNote(int panel) {
+            switch(lengthyTypes[panel]) {
+                case LENGTHY_HOLD:
+                    beatmap.putNote(panel, NoteType.HOLD, lengthyBeats[panel], lengthyLengths[panel]);
+                    break;
+                case LENGTHY_ROLL:
+                    beatmap.putNote(panel, NoteType.ROLL, lengthyBeats[panel], lengthyLengths[panel]);
                     break;
             }
+            lengthyTypes[panel] = LENGTHY_NONE;
         }
 
         /**
@@ -492,8 +598,8 @@ public class SMParser extends TagSimParser {
     }
 
     protected static class DanceSingleBeatmapParser extends BeatmapParser {
-        DanceSingleBeatmapParser(String beatmapData) {
-            super(beatmapData);
+        DanceSingleBeatmapParser(char[] data, int start, int end) {
+            super(data, start, end);
         }
 
         @Override
@@ -517,8 +623,8 @@ public class SMParser extends TagSimParser {
     }
 
     protected static class PumpSingleBeatmapParser extends BeatmapParser {
-        PumpSingleBeatmapParser(String beatmapData) {
-            super(beatmapData);
+        PumpSingleBeatmapParser(char[] data, int start, int end) {
+            super(data, start, end);
         }
 
         @Override
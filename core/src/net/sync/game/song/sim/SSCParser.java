@@ -41,14 +41,22 @@ import java.util.regex.Matcher;
  * @author Vincenzo Fortunato
  */
 public class SSCParser extends SMParser {
+    /** Tags of the chart timing data, charts with any of them have split timing **/
+    private static final String[] TIMING_TAGS = {"OFFSET", "BPMS", "STOPS", "DELAYS", "WARPS"};
+
+    @Override
+    protected DataSupplier createDataSupplier(TagTokenizer tags) throws SimParseException {
+        return new SSCDataSupplier(tags);
+    }
+
     @Override
-    protected DataSupplier createDataSupplier(String rawContent) throws SimParseException {
-        return new SSCDataSupplier(rawContent);
+    protected SimChartParser createChartParser(TagTokenizer tags, TagRange chartTags) {
+        return new SSCChartParser(tags, chartTags);
     }
 
     @Override
-    protected SimChartParser createChartParser(String chartRawContent) {
-        return new SSCChartParser(chartRawContent);
+    protected String[] getChartTagNames() {
+        return new String[] {"NOTEDATA"};
     }
 
     @Override
@@ -87,22 +95,19 @@ public class SSCParser extends SMParser {
     private static class SSCDataSupplier implements DataSupplier {
         /** Contains header tags where key is the tag name and value is the tag value **/
         Map<String, String> headerTagsMap = new HashMap<>();
-        /** Contains charts data as strings **/
-        List<String> chartTagsList = new ArrayList<>();
+        /** Contains the tags of each chart, the ones between two NOTEDATA tags **/
+        List<TagRange> chartTagRanges = new ArrayList<>();
+        TagTokenizer tags;
 
-        SSCDataSupplier(String rawContent) throws SimParseException {
+        SSCDataSupplier(TagTokenizer tags) throws SimParseException {
+            this.tags = tags;
             boolean parsingHeader = true; //Go false when the chart data begins
-            Matcher matcher = TagSimParser.TAG_PATTERN.matcher(rawContent);
-            StringBuilder strBuilder = new StringBuilder();
-            while(matcher.find()) {
-                String tagName = matcher.group(1);
-                String tagValue = matcher.group(2);
-
-                if(tagName.equalsIgnoreCase("NOTEDATA")) {
+            int chartStart = 0;
+            for(int i = 0; i < tags.size(); i++) {
+                if(tags.isName(i, "NOTEDATA")) {
                     if(!parsingHeader) {
                         //Go to the next chart
-                        chartTagsList.add(strBuilder.toString());
-                        strBuilder = new StringBuilder(); //Reset to hold next chart data
+                        chartTagRanges.add(new TagRange(chartStart, i));
                     } else {
                         parsingHeader = false; //Stop parsing header
                         if(headerTagsMap.size() == 0) {
@@ -110,16 +115,14 @@ public class SSCParser extends SMParser {
                             throw new SimParseException("Cannot parse sim file!");
                         }
                     }
+                    chartStart = i + 1;
                 } else if(parsingHeader) {
                     //Header tag
-                    headerTagsMap.put(tagName.toUpperCase(), tagValue);
-                } else {
-                    //Chart data tag
-                    strBuilder.append(matcher.group());
+                    headerTagsMap.put(tags.getName(i).toUpperCase(), tags.getValue(i));
                 }
             }
-            if(!parsingHeader && strBuilder.length() > 0) { //Save last parsed chart
-                chartTagsList.add(strBuilder.toString());
+            if(!parsingHeader && chartStart < tags.size()) { //Save last parsed chart
+                chartTagRanges.add(new TagRange(chartStart, tags.size()));
             }
         }
 
@@ -129,27 +132,39 @@ public class SSCParser extends SMParser {
         }
 
         @Override
-        public List<String> getChartTagValues() {
-            return chartTagsList;
+        public TagTokenizer getTags() {
+            return tags;
+        }
+
+        @Override
+        public List<TagRange> getChartTagRanges() {
+            return chartTagRanges;
         }
     }
 
     protected class SSCChartParser implements SimChartParser {
-        private Map<String, String> tagsMap = new HashMap<>();
+        private TagTokenizer tags;
+        private TagRange chartTags;
+        /** Maps each chart tag name to the tag index, values are only read when needed **/
+        private Map<String, Integer> tagsMap = new HashMap<>();
         private String hash;
 
-        public SSCChartParser(String chartRawData) {
-            //Compute the chart raw data hash
+        public SSCChartParser(TagTokenizer tags, TagRange chartTags) {
+            this.tags = tags;
+            this.chartTags = chartTags;
+
+            //Compute the chart raw data hash, chart raw data is the text of all the chart tags
             Hasher hasher = Hashing.sha256().newHasher();
-            hasher.putBytes(chartRawData.getBytes());
+            for(int i = chartTags.start; i < chartTags.end; i++) {
+                tags.putChars(hasher, tags.getStart(i), tags.getEnd(i));
+                tagsMap.put(tags.getName(i).toUpperCase(), i);
+            }
             hash = hasher.hash().toString();
+        }
 
-            Matcher matcher = TagSimParser.TAG_PATTERN.matcher(chartRawData);
-            while(matcher.find()) {
-                String chartTagName = matcher.group(1);
-                String chartTagValue = matcher.group(2);
-                tagsMap.put(chartTagName.toUpperCase(), chartTagValue);
-            }
+        private String getTagValue(String tagName) {
+            Integer tag = tagsMap.get(tagName);
+            return tag != null ? tags.getValue(tag) : null;
         }
 
         @Override
@@ -162,7 +177,7 @@ public class SSCParser extends SMParser {
 
         @Override
         public ChartType parseChartType() throws SimParseException {
-            String value = tagsMap.get("STEPSTYPE");
+            String value = getTagValue("STEPSTYPE");
             if(value != null) {
                 switch(value.toLowerCase()) {
                     case "dance-single":
@@ -178,37 +193,57 @@ public class SSCParser extends SMParser {
 
         @Override
         public DifficultyClass parseDifficultyClass() throws SimParseException {
-            return SSCParser.parseDifficultyClass(tagsMap.get("DIFFICULTY"));
+            return SSCParser.parseDifficultyClass(getTagValue("DIFFICULTY"));
         }
 
         @Override
         public TimingData parseTimingData() throws SimParseException {
-            TimingData data = parseGlobalTimingData();
-            //Override global timing data with chart timing data when necessary
-            parseOffset(data, tagsMap.get("OFFSET"));
-            parseBpms(data, tagsMap.get("BPMS"));
-            parseStops(data, tagsMap.get("STOPS"));
-            parseDelays(data, tagsMap.get("DELAYS"));
-            parseWarps(data, tagsMap.get("WARPS"));
-            return data;
+            if(!hasSplitTiming()) {
+                //Share the song timing data
+                return getGlobalTimingData();
+            }
+            //Override a copy of the song timing data with chart timing data
+            TimingData data = new TimingData(getGlobalTimingData());
+            parseOffset(data, getTagValue("OFFSET"));
+            parseBpms(data, getTagValue("BPMS"));
+            parseStops(data, getTagValue("STOPS"));
+            parseDelays(data, getTagValue("DELAYS"));
+            parseWarps(data, getTagValue("WARPS"));
+            return data.toUnmodifiable();
+        }
+
+        /**
+         * @return true if the chart has its own timing data (split timing).
+         */
+        private boolean hasSplitTiming() {
+            for(String tagName : TIMING_TAGS) {
+                if(tagsMap.containsKey(tagName)) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         @Override
         public Beatmap parseBeatmap() throws SimParseException {
-            String beatmapData = tagsMap.get("NOTES");
-            if(beatmapData == null) {
+            checkBeatmapAvailable();
+            Integer beatmapTag = tagsMap.get("NOTES");
+            if(beatmapTag == null) {
                 //Sometimes beatmap data is stored as NOTES2
-                beatmapData = tagsMap.get("NOTES2");
+                beatmapTag = tagsMap.get("NOTES2");
             }
-            if(beatmapData != null) {
+            if(beatmapTag != null) {
+                char[] beatmapData = tags.getBuffer();
+                int start = tags.getValueStart(beatmapTag);
+                int end = tags.getValueEnd(beatmapTag);
                 //Parse beatmap data
                 ChartType type = parseChartType();
                 if(type != null) {
                     switch(type) {
                         case DANCE_SINGLE:
-                            return new DanceSingleBeatmapParser(beatmapData).parse();
+                            return new DanceSingleBeatmapParser(beatmapData, start, end).parse();
                         case PUMP_SINGLE:
-                            return new PumpSingleBeatmapParser(beatmapData).parse();
+                            return new PumpSingleBeatmapParser(beatmapData, start, end).parse();
                     }
                 }
             }
@@ -222,7 +257,7 @@ public class SSCParser extends SMParser {
 
         @Override
         public int parseDifficultyMeter() throws SimParseException {
-            String value = tagsMap.get("METER");
+            String value = getTagValue("METER");
             if(value != null) {
                 try {
                     return Integer.parseInt(value);
@@ -235,22 +270,32 @@ public class SSCParser extends SMParser {
 
         @Override
         public String parseName() throws SimParseException {
-            return tagsMap.get("CHARTNAME");
+            return getTagValue("CHARTNAME");
         }
 
         @Override
         public String parseDescription() throws SimParseException {
-            return tagsMap.get("DESCRIPTION");
+            return getTagValue("DESCRIPTION");
         }
 
         @Override
         public String parseCredit() throws SimParseException {
-            return tagsMap.get("CREDIT");
+            return getTagValue("CREDIT");
         }
 
         @Override
         public String getHash() {
             return hash;
         }
+
+        @Override
+        public long getDataOffset() {
+            return getChartDataOffset(chartTags);
+        }
+
+        @Override
+        public int getDataLength() {
+            return getChartDataLength(chartTags);
+        }
     }
 }
@@ -46,6 +46,10 @@ public interface SimChartParser {
 
     TimingData parseTimingData() throws SimParseException;
 
+    /**
+     * @return the chart beatmap.
+     * @throws IllegalStateException if the sim parser has been initialized in metadata only mode.
+     */
     Beatmap parseBeatmap() throws SimParseException;
 
     /**
@@ -69,4 +73,16 @@ public interface SimChartParser {
      * @return the computed hash of the chart raw content.
      */
     String getHash();
+
+    /**
+     * Gets the position of the chart raw data inside the sim file. It can be used to get
+     * the parser of this chart only by calling {@link SimParser#getChartParser(String, long, int)}.
+     * @return the offset of the chart raw data in bytes, or -1 if unknown.
+     */
+    long getDataOffset();
+
+    /**
+     * @return the length of the chart raw data in bytes, or -1 if unknown.
+     */
+    int getDataLength();
 }
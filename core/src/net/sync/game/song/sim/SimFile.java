@@ -30,8 +30,6 @@ import com.google.common.hash.Hashing;
 
 import java.io.File;
 
-import static com.google.common.base.Preconditions.checkArgument;
-
 /**
  * A file handle that represents a sim file and provides utility methods.
  */
@@ -39,8 +37,10 @@ public class SimFile {
     private FileHandle file;
     private SimFormat format;
 
+    /**
+     * @param file the sim file. It isn't checked, reading it fails if it isn't a regular file.
+     */
     public SimFile(FileHandle file) {
-        checkArgument(!file.isDirectory(), "Sim file cannot be a directory");
         this.file = file;
         this.format = SimFormat.valueFromExtension(file.extension());
     }
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.sync.game.song.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes the content of a sim file. Sim files don't declare their charset, so it is detected:
+ * <ul>
+ *     <li>A byte order mark selects UTF-8 or UTF-16. The mark itself is not part of the content.</li>
+ *     <li>Without a byte order mark the content is decoded as UTF-8 if it is valid UTF-8.</li>
+ *     <li>Otherwise the fallback charsets are tried in order and the first one that decodes the whole
+ *     content without errors is used. The last one is used anyway, replacing invalid input, so it
+ *     should accept any input (e.g. windows-1252).</li>
+ * </ul>
+ * <p>
+ *     Multi-byte fallback charsets such as Shift-JIS accept most Latin-1 text too, turning accented
+ *     letters into isolated katakana or kanji. Their result is rejected when most of its non ASCII
+ *     runs are a single char stuck to an ASCII letter, so mostly ASCII text with a few accents falls
+ *     through to the next charset.
+ * </p>
+ * <p>
+ *     The file is streamed through a {@link CharsetDecoder} using a small input buffer that is reused
+ *     by every decoder of the same thread, the only full size allocation is the decoded content. The
+ *     file is read again only when a charset is rejected or to decode a part of it. Positions in the
+ *     content are mapped back to the file from the decoded chars, except for multi-byte fallback charsets.
+ * </p>
+ */
+public class SimFileDecoder {
+    /** Charsets of legacy sim files, Japanese packs are often Shift-JIS and western ones Latin-1 **/
+    public static final List<Charset> DEFAULT_FALLBACK_CHARSETS = defaultFallbackCharsets();
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MIN_CONTENT_CAPACITY = 1024;
+
+    /** Input buffers reused by every read of the decoders of a thread **/
+    private static final ThreadLocal<ByteBuffer> INPUT = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    };
+
+    private final FileHandle file;
+    private final List<Charset> fallbackCharsets;
+    private Charset charset;
+    /** True if the charset has been detected on a part of the file only **/
+    private boolean partial = false;
+    /** True if invalid input may have been replaced while decoding **/
+    private boolean lenient = false;
+    /** Length of the byte order mark, the content starts after it **/
+    private int bomLength = 0;
+    private char[] content;
+
+    /**
+     * Creates a decoder for the given file.
+     * @param file the sim file.
+     * @param fallbackCharsets the charsets to try in order when the file is not UTF-8 and has no
+     *                         byte order mark. If empty invalid UTF-8 input is replaced.
+     */
+    public SimFileDecoder(FileHandle file, List<Charset> fallbackCharsets) {
+        this.file = file;
+        this.fallbackCharsets = fallbackCharsets;
+    }
+
+    /**
+     * Detects the charset and decodes the whole content.
+     * @return a buffer backed by an array, holding the content from position 0 to its limit.
+     * @throws IOException if the file cannot be read.
+     */
+    public CharBuffer decode() throws IOException {
+        return decode(Long.MAX_VALUE);
+    }
+
+    /**
+     * Detects the charset and decodes the content up to the given position, e.g. the header of the
+     * sim file only. Ranges decoded later by {@link #decode(long, int)} are checked against the
+     * detected charset, as it only fits the decoded part.
+     * @param end the position in bytes from the start of the file where decoding stops.
+     * @return a buffer backed by an array, holding the content from position 0 to its limit.
+     * @throws IOException if the file cannot be read.
+     */
+    public CharBuffer decode(long end) throws IOException {
+        long length = Math.min(end, file.length());
+        partial = length < file.length();
+        content = new char[(int) Math.max(MIN_CONTENT_CAPACITY, length + 1)];
+
+        charset = detectByteOrderMark();
+        if(charset != null) {
+            //Replace invalid input only if needed, so that chars can be mapped back to bytes
+            CharBuffer result = decode(charset, false, end);
+            lenient = result == null;
+            return lenient ? decode(charset, true, end) : result;
+        }
+
+        List<Charset> charsets = getCharsets();
+        for(int i = 0; i < charsets.size(); i++) {
+            boolean last = i == charsets.size() - 1;
+            CharBuffer result = decode(charsets.get(i), last, end);
+            if(result != null && (last || isPlausible(charsets.get(i), result))) {
+                charset = charsets.get(i);
+                lenient = last;
+                return result;
+            }
+        }
+        throw new IllegalStateException(); //The last charset is lenient
+    }
+
+    /**
+     * @return the detected charset, or null if the content hasn't been decoded yet.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Decodes a range of the file with the detected charset. Must be called after {@link #decode()}.
+     * @param offset the offset of the range in bytes from the start of the file.
+     * @param length the length of the range in bytes.
+     * @return a buffer backed by an array holding the decoded range from position 0 to its limit,
+     * or null if the range exceeds the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public CharBuffer decode(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        try(InputStream in = file.read()) {
+            ByteStreams.skipFully(in, offset);
+            if(ByteStreams.read(in, bytes, 0, length) != length) {
+                return null;
+            }
+        } catch(EOFException e) {
+            return null;
+        }
+        if(!partial) {
+            return newDecoder(charset, true).decode(ByteBuffer.wrap(bytes));
+        }
+
+        //The charset fits the decoded part of the file only, detect it again if the range doesn't fit
+        List<Charset> charsets = getCharsets();
+        charsets.add(0, charset);
+        for(int i = 0; i < charsets.size(); i++) {
+            boolean last = i == charsets.size() - 1;
+            try {
+                CharBuffer result = newDecoder(charsets.get(i), last).decode(ByteBuffer.wrap(bytes));
+                if(last || isPlausible(charsets.get(i), result)) {
+                    return result;
+                }
+            } catch(CharacterCodingException e) {
+                //Try the next charset
+            }
+        }
+        throw new IllegalStateException(); //The last charset is lenient
+    }
+
+    /**
+     * Converts a position in the decoded content to a position in the file without reading it. Only works
+     * when the bytes of each char are known: content decoded without replacing invalid input from UTF-8,
+     * UTF-16 and single byte charsets. Must be called after {@link #decode()}.
+     * @param position the position in chars.
+     * @param utf8Position the position in bytes of the decoded content encoded as UTF-8.
+     * @return the offset in bytes from the start of the file, or -1 if it cannot be computed
+     * without reading the file, see {@link #getByteOffsets(int[])}.
+     */
+    public long getByteOffset(int position, int utf8Position) {
+        if(partial) {
+            return -1;
+        }
+        if(charset.equals(Charsets.UTF_8)) {
+            //Replaced input doesn't take the bytes of the replacement char
+            return lenient ? -1 : bomLength + utf8Position;
+        } else if(charset.equals(Charsets.UTF_16BE) || charset.equals(Charsets.UTF_16LE)) {
+            //Invalid input is replaced by a char for each pair of bytes
+            return bomLength + 2L * position;
+        } else if(charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f) {
+            //Single byte charset, invalid input is replaced by a char for each byte
+            return bomLength + position;
+        }
+        return -1;
+    }
+
+    /**
+     * Converts positions in the decoded content to positions in the file. The file is decoded again
+     * counting the bytes, decoded chars are discarded. Must be called after {@link #decode()}.
+     * @param positions the positions in chars, sorted in ascending order.
+     * @return the offsets in bytes from the start of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public long[] getByteOffsets(int[] positions) throws IOException {
+        long[] offsets = new long[positions.length];
+        CharsetDecoder decoder = newDecoder(charset, true);
+        CharBuffer out = CharBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer input = INPUT.get();
+        try(InputStream in = file.read()) {
+            ByteStreams.skipFully(in, bomLength);
+            input.clear();
+            long consumed = bomLength; //Bytes read from the file and decoded
+            boolean endOfInput = false;
+            int decoded = 0;
+            for(int i = 0; i < positions.length; i++) {
+                while(decoded < positions[i]) {
+                    if(!endOfInput) {
+                        endOfInput = fill(in, input);
+                    }
+                    input.flip();
+                    out.clear();
+                    out.limit(Math.min(out.capacity(), positions[i] - decoded));
+                    int start = input.position();
+                    CoderResult result = decoder.decode(input, out, endOfInput);
+                    consumed += input.position() - start;
+                    decoded += out.position();
+                    input.compact();
+                    if(out.position() == 0 && (endOfInput || result.isOverflow())) {
+                        break; //End of input or position inside a surrogate pair
+                    }
+                }
+                offsets[i] = consumed;
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Decodes the content with the given charset.
+     * @param charset the charset.
+     * @param lenient true to replace invalid input, false to fail.
+     * @param end the position in bytes from the start of the file where decoding stops.
+     * @return the decoded content, or null if the content is not valid for the given charset.
+     */
+    private CharBuffer decode(Charset charset, boolean lenient, long end) throws IOException {
+        CharsetDecoder decoder = newDecoder(charset, lenient);
+        CharBuffer out = CharBuffer.wrap(content);
+        ByteBuffer input = INPUT.get();
+        try(InputStream file = this.file.read()) {
+            ByteStreams.skipFully(file, bomLength);
+            InputStream in = ByteStreams.limit(file, Math.max(0, end - bomLength));
+            input.clear();
+            boolean endOfInput = false;
+            while(!endOfInput) {
+                endOfInput = fill(in, input);
+                input.flip();
+                CoderResult result = decoder.decode(input, out, endOfInput);
+                while(result.isOverflow()) {
+                    out = grow(out);
+                    result = decoder.decode(input, out, endOfInput);
+                }
+                if(result.isError()) {
+                    return null;
+                }
+                input.compact();
+            }
+            while(decoder.flush(out).isOverflow()) {
+                out = grow(out);
+            }
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * @return a new list with the charsets tried when there is no byte order mark.
+     */
+    private List<Charset> getCharsets() {
+        //Try UTF-8 first, it is the most common charset and an invalid file is usually detected soon
+        List<Charset> charsets = new ArrayList<>(fallbackCharsets.size() + 2);
+        charsets.add(Charsets.UTF_8);
+        charsets.addAll(fallbackCharsets);
+        return charsets;
+    }
+
+    /**
+     * Reads the first bytes of the file looking for a byte order mark.
+     * @return the charset selected by the byte order mark, or null if there is no byte order mark.
+     */
+    private Charset detectByteOrderMark() throws IOException {
+        byte[] bom = new byte[3];
+        int count;
+        try(InputStream in = file.read()) {
+            count = ByteStreams.read(in, bom, 0, bom.length);
+        }
+        if(count >= 3 && bom[0] == (byte) 0xEF && bom[1] == (byte) 0xBB && bom[2] == (byte) 0xBF) {
+            bomLength = 3;
+            return Charsets.UTF_8;
+        } else if(count >= 2 && bom[0] == (byte) 0xFE && bom[1] == (byte) 0xFF) {
+            bomLength = 2;
+            return Charsets.UTF_16BE;
+        } else if(count >= 2 && bom[0] == (byte) 0xFF && bom[1] == (byte) 0xFE) {
+            bomLength = 2;
+            return Charsets.UTF_16LE;
+        }
+        return null;
+    }
+
+    /**
+     * Fills the input buffer with bytes read from the given stream.
+     * @return true if the end of the stream has been reached.
+     */
+    private static boolean fill(InputStream in, ByteBuffer input) throws IOException {
+        while(input.hasRemaining()) {
+            int count = in.read(input.array(), input.position(), input.remaining());
+            if(count < 0) {
+                return true;
+            }
+            input.position(input.position() + count);
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the content buffer with a bigger one, keeping the decoded chars.
+     */
+    private CharBuffer grow(CharBuffer out) {
+        content = Arrays.copyOf(content, content.length * 2);
+        CharBuffer result = CharBuffer.wrap(content);
+        result.position(out.position());
+        return result;
+    }
+
+    /**
+     * Checks if the content decoded with a multi-byte charset looks like text written in that charset.
+     * Latin-1 text decoded as Shift-JIS turns each accented letter into a single kana or kanji
+     * between ASCII letters, while Japanese words are runs of many chars.
+     * @param charset the charset used to decode the content.
+     * @param content the decoded content.
+     * @return false if most non ASCII runs are a single char next to an ASCII letter.
+     */
+    private static boolean isPlausible(Charset charset, CharBuffer content) {
+        if(charset.newDecoder().averageCharsPerByte() >= 1.0f) {
+            return true; //Single byte charset
+        }
+        int runs = 0;
+        int isolated = 0;
+        int limit = content.limit();
+        for(int i = 0; i < limit; i++) {
+            if(content.get(i) < 0x80) {
+                continue;
+            }
+            int start = i;
+            while(i + 1 < limit && content.get(i + 1) >= 0x80) {
+                i++;
+            }
+            runs++;
+            if(start == i && (isAsciiLetter(content, start - 1) || isAsciiLetter(content, i + 1))) {
+                isolated++;
+            }
+        }
+        return isolated * 2 < runs || runs == 0;
+    }
+
+    private static boolean isAsciiLetter(CharBuffer content, int index) {
+        if(index < 0 || index >= content.limit()) {
+            return false;
+        }
+        char c = content.get(index);
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static CharsetDecoder newDecoder(Charset charset, boolean lenient) {
+        CodingErrorAction action = lenient ? CodingErrorAction.REPLACE : CodingErrorAction.REPORT;
+        return charset.newDecoder()
+                .onMalformedInput(action)
+                .onUnmappableCharacter(action);
+    }
+
+    private static List<Charset> defaultFallbackCharsets() {
+        ImmutableList.Builder<Charset> charsets = ImmutableList.builder();
+        for(String name : new String[] {"Shift_JIS", "windows-1252"}) {
+            if(Charset.isSupported(name)) {
+                charsets.add(Charset.forName(name));
+            }
+        }
+        //Accepts any input
+        charsets.add(Charsets.ISO_8859_1);
+        return charsets.build();
+    }
+}
@@ -22,13 +22,14 @@
 
 package net.sync.game.song.sim;
 
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
  * Parse a sim file content. Each sim format parser must implement this interface.
  * <p> Before calling any of the parsing methods the parser must be initialized by
- * calling {@link #init(SimFile)}. </p>
+ * calling {@link #init(SimFile)}, {@link #init(SimFile, boolean)} or {@link #initChart(SimFile, long)}. </p>
  * <p> Methods that refer to unavailable values, if specified, must return null. </p>
  * <p> The parser implementation can hold the entire sim file content. Therefore any
  * reference to this interface must be garbage collected when it is no longer needed. </p>
@@ -40,7 +41,41 @@ public interface SimParser {
      * @param file the sim file.
      * @throws SimParseException if the sim file cannot be parsed correctly.
      */
-    void init(SimFile file) throws SimParseException;
+    default void init(SimFile file) throws SimParseException {
+        init(file, false);
+    }
+
+    /**
+     * Sets the charsets tried in order to decode sim files that are not UTF-8 and don't start
+     * with a byte order mark. Must be called before the parser is initialized.
+     * @param charsets the fallback charsets.
+     */
+    void setFallbackCharsets(List<Charset> charsets);
+
+    /**
+     * Init the parser. Each implementation can do its own initialization
+     * tasks here.
+     * <p> In metadata only mode the parser doesn't parse the note data, only what is needed
+     * to index the song: song and chart metadata, timing data and chart hashes. Chart parsers
+     * don't support {@link SimChartParser#parseBeatmap()} in this mode. </p>
+     * @param file the sim file.
+     * @param metadataOnly true to init the parser in metadata only mode.
+     * @throws SimParseException if the sim file cannot be parsed correctly.
+     */
+    void init(SimFile file, boolean metadataOnly) throws SimParseException;
+
+    /**
+     * Init the parser to parse a single chart whose data position is known, with
+     * {@link #getChartParser(String, long, int)}. Only the song data before the first chart is read here,
+     * the data of the other charts is read only if the chart is not found at its position.
+     * <p> Parsers that cannot read a part of the sim file init as {@link #init(SimFile)}. </p>
+     * @param file the sim file.
+     * @param chartOffset the offset of the chart data in bytes, see {@link SimChartParser#getDataOffset()}.
+     * @throws SimParseException if the sim file cannot be parsed correctly.
+     */
+    default void initChart(SimFile file, long chartOffset) throws SimParseException {
+        init(file);
+    }
 
     /**
      * It is an essential song data.
@@ -125,6 +160,17 @@ public interface SimParser {
      */
     SimChartParser getChartParser(String hash);
 
+    /**
+     * Gets a parser for the chart stored at the given position of the sim file. Only the data in the given
+     * range is parsed, parsers of the other charts are not created. If the data at the given position doesn't
+     * match the hash, e.g. because the sim file has changed, the chart is searched like {@link #getChartParser(String)}.
+     * @param hash the hash of the chart data.
+     * @param offset the offset of the chart data in bytes, see {@link SimChartParser#getDataOffset()}.
+     * @param length the length of the chart data in bytes, see {@link SimChartParser#getDataLength()}.
+     * @return the parser for the given chart, or null if there is no matching parser.
+     */
+    SimChartParser getChartParser(String hash, long offset, int length);
+
     /**
      * Calls the given Callable and returns default value if a {@link SimParseException} is
      * thrown by the Callable {@link Callable#call()} method.
@@ -22,20 +22,28 @@
 
 package net.sync.game.song.sim;
 
-import com.google.common.base.Charsets;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.google.common.base.Preconditions;
 import net.sync.game.song.DifficultyClass;
+import net.sync.game.song.TimingData;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * A base for all the parser that use #TAG:VALUE; syntax to represent song data (e.g. DWI, SM, SSC)
  * <p>
  *
  *     This format supports comments. Every character after the following sequence // and before the end of the line
- *     will be ignored. This parser implementation removes every comment from the raw data before parsing it.
+ *     will be ignored. This parser implementation removes comments while splitting the raw data into tags
+ *     (see {@link TagTokenizer}).
  * </p>
  * @author Vincenzo Fortunato
  */
@@ -61,54 +69,180 @@ public abstract class TagSimParser implements SimParser {
         String getHeaderTagValue(String tagName);
 
         /**
-         * @return a list of strings where each string contains
-         * data of a single chart. Each format must parse it according to its
+         * @return the tags of the sim file.
+         */
+        TagTokenizer getTags();
+
+        /**
+         * @return a list of tag ranges where each range contains the tags
+         * with data of a single chart. Each format must parse them according to its
          * syntax.
          */
-        List<String> getChartTagValues();
+        List<TagRange> getChartTagRanges();
     }
 
-    /** Pattern that matches the #TAG:VALUE; syntax **/
-    public static Pattern TAG_PATTERN = Pattern.compile("#\\s*([^:]+?)\\s*:\\s*([^;]*?)\\s*;");
+    /**
+     * A range of consecutive tags.
+     */
+    public static class TagRange {
+        /** Index of the first tag in the range **/
+        public final int start;
+        /** Index after the last tag in the range **/
+        public final int end;
+
+        public TagRange(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
 
     protected DataSupplier dataSupplier = null;
+    /** True if the parser has been initialized in metadata only mode **/
+    protected boolean metadataOnly = false;
+    /** Charsets tried when the sim file is not UTF-8 **/
+    protected List<Charset> fallbackCharsets = SimFileDecoder.DEFAULT_FALLBACK_CHARSETS;
+    /** Decodes the sim file content, single charts are decoded from the file when their position is known **/
+    private SimFileDecoder decoder;
+    /** True if only the tags before the first chart have been decoded **/
+    private boolean headerOnly = false;
+    /** Offset and length in bytes of the data of each chart, mapped by chart tags **/
+    private Map<TagRange, long[]> dataRanges = new HashMap<>();
+    private boolean dataRangesComputed = false;
+    /** The song timing data, shared by the charts that don't have their own timing data **/
+    private TimingData globalTimingData;
+
+    @Override
+    public void setFallbackCharsets(List<Charset> charsets) {
+        Preconditions.checkNotNull(charsets);
+        Preconditions.checkState(dataSupplier == null, "Sim parser already initialized!");
+        this.fallbackCharsets = charsets;
+    }
 
     @Override
-    public void init(SimFile simFile) throws SimParseException {
+    public void init(SimFile simFile, boolean metadataOnly) throws SimParseException {
         Preconditions.checkNotNull(simFile);
         Preconditions.checkState(dataSupplier == null, "Sim parser already initialized!");
+        this.metadataOnly = metadataOnly;
 
         //Get sim file content
-        String content = simFile.getFile().readString(Charsets.UTF_8.name());
-        //Remove comments from the content and prepare the data supplier
-        dataSupplier = createDataSupplier(content.replaceAll("//.*", ""));
+        decoder = new SimFileDecoder(simFile.getFile(), fallbackCharsets);
+        decode(Long.MAX_VALUE);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p> The sim file is decoded up to the first chart tag, so header tags placed after
+     * the charts are not available. </p>
+     */
+    @Override
+    public void initChart(SimFile simFile, long chartOffset) throws SimParseException {
+        Preconditions.checkNotNull(simFile);
+        Preconditions.checkState(dataSupplier == null, "Sim parser already initialized!");
+        this.metadataOnly = false;
+
+        //Find the first chart tag, the chart itself is at most at the given offset
+        long headerEnd = -1;
+        if(chartOffset > 0) {
+            try(InputStream in = simFile.getFile().read()) {
+                headerEnd = TagTokenizer.indexOfTag(in, chartOffset + 1, getChartTagNames());
+            } catch(IOException | GdxRuntimeException e) {
+                throw new SimParseException("Cannot read sim file", e);
+            }
+        }
+
+        decoder = new SimFileDecoder(simFile.getFile(), fallbackCharsets);
+        if(headerEnd > 0) {
+            decode(headerEnd);
+            headerOnly = true;
+        } else {
+            //The position is unknown or the sim file has changed
+            decode(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Decodes the sim file up to the given position, splits it into tags and prepares the data supplier.
+     */
+    private void decode(long end) throws SimParseException {
+        CharBuffer chars;
+        try {
+            chars = decoder.decode(end);
+        } catch(IOException | GdxRuntimeException e) {
+            throw new SimParseException("Cannot read sim file", e);
+        }
+        dataSupplier = createDataSupplier(new TagTokenizer(chars.array(), chars.limit()));
+        globalTimingData = null;
+        headerOnly = false;
+    }
+
+    /**
+     * @return the names of the tags that open the data of a chart, the song data is before them.
+     */
+    protected abstract String[] getChartTagNames();
+
     /**
      * Creates a data supplier that will be used by the parser.
-     * @param rawContent the sim file raw content without comments.
+     * @param tags the sim file content split into tags.
      * @return a data supplier.
      * @throws SimParseException if the data supplier cannot be created correctly.
      */
-    protected abstract DataSupplier createDataSupplier(String rawContent) throws SimParseException;
+    protected abstract DataSupplier createDataSupplier(TagTokenizer tags) throws SimParseException;
 
     /**
-     * Creates a sim chart parser from the given raw chart raw content.
-     * @param chartRawContent the chart raw content.
+     * Creates a sim chart parser from the given chart tags.
+     * @param tags the tags holding the chart data, the data supplier tags or the tags of a single chart.
+     * @param chartTags the range of tags with the chart data.
      * @return a sim chart parser.
      */
-    protected abstract SimChartParser createChartParser(String chartRawContent);
+    protected abstract SimChartParser createChartParser(TagTokenizer tags, TagRange chartTags);
 
     @Override
     public List<SimChartParser> getChartParsers() {
-        List<String> chartTagValues = dataSupplier.getChartTagValues();
-        List<SimChartParser> parsers = new ArrayList<>(chartTagValues.size());
-        for(String chartTagValue : chartTagValues) {
-            parsers.add(createChartParser(chartTagValue));
+        if(headerOnly) {
+            //Initialized to parse a single chart that wasn't found at its position, decode all the charts
+            try {
+                decode(Long.MAX_VALUE);
+            } catch(SimParseException e) {
+                Gdx.app.error(getClass().getSimpleName(), "Cannot read sim file", e);
+                return new ArrayList<>();
+            }
+        }
+        List<TagRange> chartTagRanges = dataSupplier.getChartTagRanges();
+        List<SimChartParser> parsers = new ArrayList<>(chartTagRanges.size());
+        for(TagRange chartTags : chartTagRanges) {
+            parsers.add(createChartParser(dataSupplier.getTags(), chartTags));
         }
         return parsers;
     }
 
+    /**
+     * Parses the song timing data.
+     * @return a new modifiable timing data.
+     * @throws SimParseException if the timing data cannot be parsed.
+     */
+    protected abstract TimingData parseGlobalTimingData() throws SimParseException;
+
+    /**
+     * Gets the song timing data. It is parsed only once and shared by the charts that don't have
+     * their own timing data, so it is unmodifiable. Copy it to override chart specific values.
+     * @return the unmodifiable song timing data.
+     * @throws SimParseException if the timing data cannot be parsed.
+     */
+    protected TimingData getGlobalTimingData() throws SimParseException {
+        if(globalTimingData == null) {
+            globalTimingData = parseGlobalTimingData().toUnmodifiable();
+        }
+        return globalTimingData;
+    }
+
+    /**
+     * Ensures the beatmap can be parsed.
+     * @throws IllegalStateException if the parser has been initialized in metadata only mode.
+     */
+    protected void checkBeatmapAvailable() {
+        Preconditions.checkState(!metadataOnly, "Beatmap is not available in metadata only mode!");
+    }
+
     @Override
     public SimChartParser getChartParser(String hash) {
         for(SimChartParser chartParser : getChartParsers()) {
@@ -119,6 +253,108 @@ public abstract class TagSimParser implements SimParser {
         return null;
     }
 
+    @Override
+    public SimChartParser getChartParser(String hash, long offset, int length) {
+        CharBuffer chars = null;
+        if(offset >= 0 && length > 0) {
+            //Decode and split into tags the chart data only, header tags are already available
+            try {
+                chars = decoder.decode(offset, length);
+            } catch(IOException | GdxRuntimeException e) {
+                Gdx.app.error(getClass().getSimpleName(), "Cannot read chart data", e);
+            }
+        }
+        if(chars != null) {
+            TagTokenizer tags = new TagTokenizer(chars.array(), chars.limit());
+            if(tags.size() > 0) {
+                TagRange chartTags = new TagRange(0, tags.size());
+                SimChartParser chartParser = createChartParser(tags, chartTags);
+                if(hash.equals(chartParser.getHash())) {
+                    dataRanges.put(chartTags, new long[] {offset, length});
+                    return chartParser;
+                }
+            }
+        }
+        //The position is unknown or the sim file has changed, search the chart among all the charts
+        return getChartParser(hash);
+    }
+
+    /**
+     * Gets the offset of the chart data inside the sim file, the position of the # that opens the
+     * first chart tag.
+     * @param chartTags the chart tags.
+     * @return the offset in bytes, or -1 if the chart has no tags.
+     */
+    protected long getChartDataOffset(TagRange chartTags) {
+        long[] range = getChartDataRange(chartTags);
+        return range != null ? range[0] : -1;
+    }
+
+    /**
+     * Gets the length of the chart data inside the sim file, up to the ; that closes the last chart tag.
+     * @param chartTags the chart tags.
+     * @return the length in bytes, or -1 if the chart has no tags.
+     */
+    protected int getChartDataLength(TagRange chartTags) {
+        long[] range = getChartDataRange(chartTags);
+        return range != null ? (int) range[1] : -1;
+    }
+
+    private long[] getChartDataRange(TagRange chartTags) {
+        long[] range = dataRanges.get(chartTags);
+        if(range == null && !dataRangesComputed) {
+            computeChartDataRanges();
+            dataRangesComputed = true;
+            range = dataRanges.get(chartTags);
+        }
+        return range;
+    }
+
+    /**
+     * Computes the position in bytes of the data of all the charts. Tags know their position in the
+     * decoded content, that maps to the file directly for most charsets. Otherwise the sim file is
+     * decoded again up to the end of the last chart counting the bytes of each char. Positions stay
+     * unknown if the sim file cannot be read.
+     */
+    private void computeChartDataRanges() {
+        TagTokenizer tags = dataSupplier.getTags();
+        List<TagRange> chartTagRanges = new ArrayList<>();
+        for(TagRange chartTags : dataSupplier.getChartTagRanges()) {
+            if(chartTags.start < chartTags.end) {
+                chartTagRanges.add(chartTags);
+            }
+        }
+
+        //Chart positions in chars, ranges are sorted and don't overlap
+        int[] positions = new int[chartTagRanges.size() * 2];
+        long[] byteOffsets = new long[positions.length];
+        boolean mapped = true;
+        for(int i = 0; i < chartTagRanges.size(); i++) {
+            TagRange chartTags = chartTagRanges.get(i);
+            positions[i * 2] = tags.getSourceStart(chartTags.start);
+            positions[i * 2 + 1] = tags.getSourceEnd(chartTags.end - 1);
+            byteOffsets[i * 2] = decoder.getByteOffset(positions[i * 2],
+                    tags.getSourceUtf8Start(chartTags.start));
+            byteOffsets[i * 2 + 1] = decoder.getByteOffset(positions[i * 2 + 1],
+                    tags.getSourceUtf8End(chartTags.end - 1));
+            mapped &= byteOffsets[i * 2] >= 0 && byteOffsets[i * 2 + 1] >= 0;
+        }
+
+        if(!mapped) {
+            try {
+                byteOffsets = decoder.getByteOffsets(positions);
+            } catch(IOException | GdxRuntimeException e) {
+                Gdx.app.error(getClass().getSimpleName(), "Cannot read chart data positions", e);
+                return;
+            }
+        }
+
+        for(int i = 0; i < chartTagRanges.size(); i++) {
+            long offset = byteOffsets[i * 2];
+            dataRanges.put(chartTagRanges.get(i), new long[] {offset, byteOffsets[i * 2 + 1] - offset});
+        }
+    }
+
     /**
      * Parse difficulty class.
      * @param value the value to parse
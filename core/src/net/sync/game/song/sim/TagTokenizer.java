@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song.sim;
+
+import com.google.common.hash.Hasher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Splits a #TAG:VALUE; content into tags in a single pass.
+ * <p>
+ *     Comments (every character after // and before the end of the line) are removed while scanning.
+ *     The content is compacted in place, so after tokenization the buffer holds the content without
+ *     comments and tags are referenced by offsets into it. Strings are only created when requested.
+ * </p>
+ * <p>
+ *     Tag names and values are trimmed. A tag starts with # and its name ends at the first colon, its value
+ *     ends at the first semicolon. Tags that are never closed are ignored.
+ * </p>
+ * <p>
+ *     The position of each tag in the original content is kept both in chars and in bytes of the content
+ *     encoded as UTF-8, so that tags of an UTF-8 file can be found in the file without encoding it again.
+ * </p>
+ */
+public class TagTokenizer {
+    private static final int TAG_START = 0;
+    private static final int NAME_START = 1;
+    private static final int NAME_END = 2;
+    private static final int VALUE_START = 3;
+    private static final int VALUE_END = 4;
+    private static final int TAG_END = 5;
+    private static final int SOURCE_START = 6;
+    private static final int SOURCE_END = 7;
+    private static final int SOURCE_UTF8_START = 8;
+    private static final int SOURCE_UTF8_END = 9;
+    /** Number of offsets stored for each tag **/
+    private static final int TAG_FIELDS = 10;
+
+    private static final int STATE_SEEK = 0;
+    private static final int STATE_NAME = 1;
+    private static final int STATE_VALUE = 2;
+
+    private final char[] buffer;
+    private final int length;
+    private int[] tags = new int[16 * TAG_FIELDS];
+    private int count = 0;
+    /** Encoder and output buffer used to hash chars, created on demand **/
+    private CharsetEncoder encoder;
+    private ByteBuffer encoded;
+
+    /**
+     * Tokenizes the given content. The buffer is modified in place.
+     * @param buffer the buffer holding the content.
+     * @param length the number of chars of content in the buffer.
+     */
+    public TagTokenizer(char[] buffer, int length) {
+        this.buffer = buffer;
+
+        int state = STATE_SEEK;
+        int tagStart = 0, nameStart = -1, nameEnd = 0, valueStart = -1, valueEnd = 0, lastSpace = -1;
+        int sourceStart = 0;
+        int sourceUtf8 = 0, sourceUtf8Start = 0; //Length in UTF-8 of the content before the read position
+        int w = 0; //Write position, lags behind the read position once a comment has been removed
+        for(int r = 0; r < length; r++) {
+            char c = buffer[r];
+            if(c == '/' && r + 1 < length && buffer[r + 1] == '/') {
+                //Skip the comment, line terminator is kept
+                r += 2;
+                sourceUtf8 += 2;
+                while(r < length && !isLineTerminator(buffer[r])) {
+                    sourceUtf8 += utf8Length(buffer[r]);
+                    r++;
+                }
+                if(r == length) {
+                    break;
+                }
+                c = buffer[r];
+            }
+            buffer[w] = c;
+
+            switch(state) {
+                case STATE_SEEK:
+                    if(c == '#') {
+                        tagStart = w;
+                        sourceStart = r;
+                        sourceUtf8Start = sourceUtf8;
+                        nameStart = -1;
+                        lastSpace = -1;
+                        state = STATE_NAME;
+                    }
+                    break;
+                case STATE_NAME:
+                    if(c == ':') {
+                        if(nameStart == -1) {
+                            if(lastSpace == -1) {
+                                //A tag name cannot be empty
+                                state = STATE_SEEK;
+                                break;
+                            }
+                            //A name made of spaces only keeps the last one
+                            nameStart = lastSpace;
+                            nameEnd = lastSpace + 1;
+                        }
+                        valueStart = -1;
+                        state = STATE_VALUE;
+                    } else if(isWhitespace(c)) {
+                        lastSpace = w;
+                    } else {
+                        if(nameStart == -1) {
+                            nameStart = w;
+                        }
+                        nameEnd = w + 1;
+                    }
+                    break;
+                case STATE_VALUE:
+                    if(c == ';') {
+                        if(valueStart == -1) {
+                            valueStart = valueEnd = w;
+                        }
+                        addTag(tagStart, nameStart, nameEnd, valueStart, valueEnd, w + 1, sourceStart, r + 1,
+                                sourceUtf8Start, sourceUtf8 + 1);
+                        state = STATE_SEEK;
+                    } else if(!isWhitespace(c)) {
+                        if(valueStart == -1) {
+                            valueStart = w;
+                        }
+                        valueEnd = w + 1;
+                    }
+                    break;
+            }
+            sourceUtf8 += utf8Length(c);
+            w++;
+        }
+        this.length = w;
+    }
+
+    private void addTag(int tagStart, int nameStart, int nameEnd, int valueStart, int valueEnd, int tagEnd,
+                        int sourceStart, int sourceEnd, int sourceUtf8Start, int sourceUtf8End) {
+        int i = count * TAG_FIELDS;
+        if(i + TAG_FIELDS > tags.length) {
+            tags = Arrays.copyOf(tags, tags.length * 2);
+        }
+        tags[i + TAG_START] = tagStart;
+        tags[i + NAME_START] = nameStart;
+        tags[i + NAME_END] = nameEnd;
+        tags[i + VALUE_START] = valueStart;
+        tags[i + VALUE_END] = valueEnd;
+        tags[i + TAG_END] = tagEnd;
+        tags[i + SOURCE_START] = sourceStart;
+        tags[i + SOURCE_END] = sourceEnd;
+        tags[i + SOURCE_UTF8_START] = sourceUtf8Start;
+        tags[i + SOURCE_UTF8_END] = sourceUtf8End;
+        count++;
+    }
+
+    /**
+     * @return the number of tags.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the buffer that holds the content without comments.
+     */
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the length of the content without comments.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the tag name.
+     */
+    public String getName(int tag) {
+        int i = tag * TAG_FIELDS;
+        return new String(buffer, tags[i + NAME_START], tags[i + NAME_END] - tags[i + NAME_START]);
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the tag value.
+     */
+    public String getValue(int tag) {
+        int i = tag * TAG_FIELDS;
+        return new String(buffer, tags[i + VALUE_START], tags[i + VALUE_END] - tags[i + VALUE_START]);
+    }
+
+    /**
+     * Checks the tag name without creating a string.
+     * @param tag the tag index.
+     * @param name the name to compare, case is ignored.
+     * @return true if the tag has the given name.
+     */
+    public boolean isName(int tag, String name) {
+        int i = tag * TAG_FIELDS;
+        int start = tags[i + NAME_START];
+        if(tags[i + NAME_END] - start != name.length()) {
+            return false;
+        }
+        for(int j = 0; j < name.length(); j++) {
+            if(Character.toUpperCase(buffer[start + j]) != Character.toUpperCase(name.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset of the # that opens the tag.
+     */
+    public int getStart(int tag) {
+        return tags[tag * TAG_FIELDS + TAG_START];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset after the ; that closes the tag.
+     */
+    public int getEnd(int tag) {
+        return tags[tag * TAG_FIELDS + TAG_END];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset of the # that opens the tag in the original content, comments included.
+     */
+    public int getSourceStart(int tag) {
+        return tags[tag * TAG_FIELDS + SOURCE_START];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset after the ; that closes the tag in the original content, comments included.
+     */
+    public int getSourceEnd(int tag) {
+        return tags[tag * TAG_FIELDS + SOURCE_END];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset in bytes of the # that opens the tag in the original content encoded as UTF-8.
+     */
+    public int getSourceUtf8Start(int tag) {
+        return tags[tag * TAG_FIELDS + SOURCE_UTF8_START];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset in bytes after the ; that closes the tag in the original content encoded as UTF-8.
+     */
+    public int getSourceUtf8End(int tag) {
+        return tags[tag * TAG_FIELDS + SOURCE_UTF8_END];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset of the first char of the name.
+     */
+    public int getNameStart(int tag) {
+        return tags[tag * TAG_FIELDS + NAME_START];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset after the last char of the name.
+     */
+    public int getNameEnd(int tag) {
+        return tags[tag * TAG_FIELDS + NAME_END];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset of the first char of the value.
+     */
+    public int getValueStart(int tag) {
+        return tags[tag * TAG_FIELDS + VALUE_START];
+    }
+
+    /**
+     * @param tag the tag index.
+     * @return the offset after the last char of the value.
+     */
+    public int getValueEnd(int tag) {
+        return tags[tag * TAG_FIELDS + VALUE_END];
+    }
+
+    /**
+     * @param start the offset of the first char.
+     * @param end the offset after the last char.
+     * @return a string with the chars in the given range of the buffer.
+     */
+    public String getString(int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
+    /**
+     * Splits a range of the buffer into colon separated fields. Fields are trimmed and trailing
+     * empty fields are removed, like splitting a string with the \s*:\s* regular expression.
+     * @param start the offset of the first char of the range.
+     * @param end the offset after the last char of the range.
+     * @return the start and end offsets of each field, two values per field.
+     */
+    public int[] split(int start, int end) {
+        int[] fields = new int[16];
+        int count = 0;
+        int fieldStart = start;
+        for(int i = start; i <= end; i++) {
+            if(i == end || buffer[i] == ':') {
+                int s = fieldStart, e = i;
+                while(s < e && isWhitespace(buffer[s])) s++;
+                while(e > s && isWhitespace(buffer[e - 1])) e--;
+                if(count * 2 == fields.length) {
+                    fields = Arrays.copyOf(fields, fields.length * 2);
+                }
+                fields[count * 2] = s;
+                fields[count * 2 + 1] = e;
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+        //Remove trailing empty fields
+        while(count > 0 && fields[count * 2 - 2] == fields[count * 2 - 1]) {
+            count--;
+        }
+        return Arrays.copyOf(fields, count * 2);
+    }
+
+    /**
+     * Puts a range of the buffer into a hasher, encoded with the default charset. The result is the same
+     * of putting the bytes of the string with the chars in the range, without creating the string.
+     * @param hasher the hasher.
+     * @param start the offset of the first char.
+     * @param end the offset after the last char.
+     */
+    public void putChars(Hasher hasher, int start, int end) {
+        putChars(hasher, CharBuffer.wrap(buffer, start, end - start));
+    }
+
+    /**
+     * Puts the given chars into a hasher, encoded with the default charset.
+     * @param hasher the hasher.
+     * @param chars the chars.
+     */
+    public void putChars(Hasher hasher, CharSequence chars) {
+        putChars(hasher, CharBuffer.wrap(chars));
+    }
+
+    private void putChars(Hasher hasher, CharBuffer chars) {
+        if(encoder == null) {
+            encoder = Charset.defaultCharset().newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encoded = ByteBuffer.allocate(4096);
+        }
+        encoder.reset();
+        CoderResult result;
+        do {
+            //Encode a chunk at a time, the encoder is set to replace invalid input so it can only overflow
+            result = encoder.encode(chars, encoded, true);
+            if(result.isUnderflow()) {
+                encoder.flush(encoded);
+            }
+            hasher.putBytes(encoded.array(), 0, encoded.position());
+            encoded.clear();
+        } while(result.isOverflow());
+    }
+
+    /**
+     * Finds the first tag with one of the given names scanning the raw bytes of a content, without
+     * decoding it. Tags are recognized like the tokenizer does, so # inside values and comments are
+     * skipped. Only works with charsets that encode the syntax chars as single ASCII bytes that never
+     * appear inside multi-byte chars, such as UTF-8, Shift-JIS and Latin-1.
+     * @param in the content.
+     * @param limit the max number of bytes to scan.
+     * @param names the tag names, compared ignoring case.
+     * @return the position in bytes of the # that opens the tag, or -1 if there is no such tag.
+     * @throws IOException if the content cannot be read.
+     */
+    public static long indexOfTag(InputStream in, long limit, String... names) throws IOException {
+        byte[] chunk = new byte[8 * 1024];
+        StringBuilder name = new StringBuilder();
+        int state = STATE_SEEK;
+        boolean comment = false;
+        boolean slash = false; //A slash that may open a comment
+        long tagStart = -1;
+        long position = 0;
+        int count;
+        while(position < limit && (count = in.read(chunk, 0, (int) Math.min(chunk.length, limit - position))) > 0) {
+            for(int i = 0; i < count; i++, position++) {
+                char c = (char) (chunk[i] & 0xFF);
+                if(comment) {
+                    if(c != '\n' && c != '\r') {
+                        continue;
+                    }
+                    comment = false;
+                } else if(c == '/') {
+                    if(slash) {
+                        comment = true;
+                        slash = false;
+                        continue;
+                    }
+                    slash = true;
+                    continue;
+                }
+                if(slash) {
+                    //The slash doesn't open a comment, it can only be part of a name or value
+                    slash = false;
+                    if(state == STATE_NAME) {
+                        name.append('/');
+                    }
+                }
+
+                if(state == STATE_SEEK) {
+                    if(c == '#') {
+                        tagStart = position;
+                        name.setLength(0);
+                        state = STATE_NAME;
+                    }
+                } else if(state == STATE_NAME) {
+                    if(c == ':') {
+                        if(name.length() == 0) {
+                            //A tag name cannot be empty
+                            state = STATE_SEEK;
+                            continue;
+                        }
+                        String tagName = name.toString().trim();
+                        for(String candidate : names) {
+                            if(candidate.equalsIgnoreCase(tagName)) {
+                                return tagStart;
+                            }
+                        }
+                        state = STATE_VALUE;
+                    } else {
+                        name.append(c);
+                    }
+                } else if(c == ';') {
+                    state = STATE_SEEK;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Same chars matched by \s in regular expressions **/
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** Number of bytes of a char encoded as UTF-8, chars of a surrogate pair take two bytes each **/
+    private static int utf8Length(char c) {
+        if(c < 0x80) {
+            return 1;
+        } else if(c < 0x800 || Character.isSurrogate(c)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /** Same chars that end a line for the . in regular expressions **/
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
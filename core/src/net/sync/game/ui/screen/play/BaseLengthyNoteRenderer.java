@@ -30,11 +30,9 @@ import net.sync.game.round.judge.JudgmentClass;
 import net.sync.game.round.judge.TailJudgment;
 import net.sync.game.round.judge.TapJudgment;
 import net.sync.game.round.modifier.SpeedModifier;
+import net.sync.game.song.Beatmap;
 import net.sync.game.song.Timing;
-import net.sync.game.song.note.JudgeableLengthyNote;
-import net.sync.game.song.note.JudgeableNote;
-import net.sync.game.song.note.LengthyNote;
-import net.sync.game.song.note.Note;
+import net.sync.game.song.note.NoteType;
 
 /**
  * @author Vincenzo Fortunato
@@ -45,13 +43,13 @@ public abstract class BaseLengthyNoteRenderer extends BaseNoteRenderer implement
     }
 
     @Override
-    public void draw(Batch batch, int panel, Note note, double beat, double time, float receptorX, float receptorY) {
+    public void draw(Batch batch, int panel, int note, double beat, double time, float receptorX, float receptorY) {
         if(!isNoteVisible(panel, note, beat, time)) {
             return;
         }
 
-        Drawable bodyDrawable = getNoteBodyDrawable(panel, (LengthyNote) note, beat, time);
-        Drawable tailDrawable = getNoteTailDrawable(panel, (LengthyNote) note, beat, time);
+        Drawable bodyDrawable = getNoteBodyDrawable(panel, note, beat, time);
+        Drawable tailDrawable = getNoteTailDrawable(panel, note, beat, time);
 
         if(bodyDrawable == null) return; //TODO Shouldnt be null at this point
         if(tailDrawable == null) return;
@@ -59,8 +57,8 @@ public abstract class BaseLengthyNoteRenderer extends BaseNoteRenderer implement
         int noteX = (int) (receptorX + getNoteX(panel, note, beat, time));
         int noteY = (int) (receptorY + getNoteY(panel, note, beat, time));
         int noteHeight = (int) getNoteHeight(panel, note, beat, time);
-        int tailX = (int) (receptorX + getTailX(panel, (LengthyNote) note, beat, time));
-        int tailY = (int) (receptorY + getTailY(panel, (LengthyNote) note, beat, time));
+        int tailX = (int) (receptorX + getTailX(panel, note, beat, time));
+        int tailY = (int) (receptorY + getTailY(panel, note, beat, time));
         int tailHeight = (int) tailDrawable.getMinHeight();
         int bodyHeight = (int) (Math.abs(tailY - noteY) - tailHeight + noteHeight / 2.0f);
         int opacity = (int) getNoteOpacity(panel, note, beat, time);
@@ -83,20 +81,18 @@ public abstract class BaseLengthyNoteRenderer extends BaseNoteRenderer implement
     }
 
     @Override
-    public float getNoteY(int panel, Note note, double beat, double time) {
-        if(note instanceof JudgeableNote) {
-            JudgeableNote judgeableNote = (JudgeableNote) note;
+    public float getNoteY(int panel, int note, double beat, double time) {
+        if(getBeatmap().isType(panel, note, NoteType.JUDGEABLE)) {
             //TODO here we assume getJudgment is a TapJudgment
-            TapJudgment judgment = (TapJudgment) judgeableNote.getJudgment();
+            TapJudgment judgment = (TapJudgment) getJudgments().getJudgment(panel, note);
             if(judgment == null || judgment.getJudgmentClass() == JudgmentClass.MISS) {
                 //Head not judged or missed
                 return super.getNoteY(panel, note, beat, time);
             }
         }
 
-        if(note instanceof JudgeableLengthyNote) {
-            JudgeableLengthyNote lengthyNote = (JudgeableLengthyNote) note;
-            TailJudgment tailJudgment = lengthyNote.getTailJudgment();
+        if(getBeatmap().isType(panel, note, NoteType.JUDGEABLE & NoteType.LENGTHY)) {
+            TailJudgment tailJudgment = getJudgments().getTailJudgment(panel, note);
             if(tailJudgment == null){
                 //Note head overlaps receptor
                 return 0.0f;
@@ -114,25 +110,25 @@ public abstract class BaseLengthyNoteRenderer extends BaseNoteRenderer implement
     }
 
     @Override
-    public float getTailX(int panel, LengthyNote note, double beat, double time) {
+    public float getTailX(int panel, int note, double beat, double time) {
         return 0.0f;
     }
 
     @Override
-    public float getTailY(int panel, LengthyNote note, double beat, double time) {
+    public float getTailY(int panel, int note, double beat, double time) {
+        Beatmap beatmap = getBeatmap();
         Drawable drawable = getNoteDrawable(panel, note, beat, time);
         float height = drawable.getMinHeight();
         SpeedModifier speedMod = getRound().getModifiers().getSpeedModifier();
-        return (float) -(height * speedMod.getSpeedAt(beat) * (note.getBeat() + note.getLength() - beat));
+        return (float) -(height * speedMod.getSpeedAt(beat) * (beatmap.getBeat(panel, note) + beatmap.getLength(panel, note) - beat));
     }
 
     @Override
-    public boolean isActive(int panel, LengthyNote note, double beat, double time) {
-        if(note instanceof JudgeableLengthyNote) {
+    public boolean isActive(int panel, int note, double beat, double time) {
+        if(getBeatmap().isType(panel, note, NoteType.JUDGEABLE & NoteType.LENGTHY)) {
             PanelState states = getRound().getPanelState();
-            JudgeableLengthyNote lengthyNote = (JudgeableLengthyNote) note;
-            TapJudgment headJudgment = (TapJudgment) lengthyNote.getJudgment();
-            TailJudgment tailJudgment = (TailJudgment) lengthyNote.getTailJudgment();
+            TapJudgment headJudgment = (TapJudgment) getJudgments().getJudgment(panel, note);
+            TailJudgment tailJudgment = getJudgments().getTailJudgment(panel, note);
             return headJudgment != null                                         //Has head judgment
                     && headJudgment.getJudgmentClass() != JudgmentClass.MISS    //Head judgment is not miss
                     && tailJudgment == null                                     //No tail judgment
@@ -142,11 +138,10 @@ public abstract class BaseLengthyNoteRenderer extends BaseNoteRenderer implement
     }
 
     @Override
-    public boolean isNoteVisible(int panel, Note note, double beat, double time) {
-        if(note instanceof JudgeableLengthyNote) {
-            JudgeableLengthyNote lengthyNote = (JudgeableLengthyNote) note;
-            TapJudgment headJudgment = (TapJudgment) lengthyNote.getJudgment();
-            TailJudgment tailJudgment = (TailJudgment) lengthyNote.getTailJudgment();
+    public boolean isNoteVisible(int panel, int note, double beat, double time) {
+        if(getBeatmap().isType(panel, note, NoteType.JUDGEABLE & NoteType.LENGTHY)) {
+            TapJudgment headJudgment = (TapJudgment) getJudgments().getJudgment(panel, note);
+            TailJudgment tailJudgment = getJudgments().getTailJudgment(panel, note);
             return headJudgment == null                                         //No head judgment
                     || headJudgment.getJudgmentClass() == JudgmentClass.MISS    //Head missed
                     || tailJudgment == null                                     //No tail judgment
@@ -156,19 +151,19 @@ public abstract class BaseLengthyNoteRenderer extends BaseNoteRenderer implement
     }
 
     @Override
-    public boolean isNoteInsideView(int panel, Note note, double beat, double time, float receptorX, float receptorY, float viewWidth, float viewHeight) {
+    public boolean isNoteInsideView(int panel, int note, double beat, double time, float receptorX, float receptorY, float viewWidth, float viewHeight) {
         if(!super.isNoteInsideView(panel, note, beat, time, receptorX, receptorY, viewWidth, viewHeight)) {
             //Head not inside view, check trail
             Drawable noteDrawable = getNoteDrawable(panel, note, beat, time);
-            Drawable bodyDrawable = getNoteBodyDrawable(panel, (LengthyNote) note, beat, time);
-            Drawable tailDrawable = getNoteTailDrawable(panel, (LengthyNote) note, beat, time);
+            Drawable bodyDrawable = getNoteBodyDrawable(panel, note, beat, time);
+            Drawable tailDrawable = getNoteTailDrawable(panel, note, beat, time);
 
             if(bodyDrawable == null || tailDrawable == null || noteDrawable == null)
                 return false; //TODO Shouldnt be null at this point
 
             float noteY = getNoteY(panel, note, beat, time);
-            float tailX = getTailX(panel, (LengthyNote) note, beat, time);
-            float tailY = getTailY(panel, (LengthyNote) note, beat, time);
+            float tailX = getTailX(panel, note, beat, time);
+            float tailY = getTailY(panel, note, beat, time);
 
             //Trail bounds
             float x = tailX + receptorX;
@@ -27,8 +27,9 @@ import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TransformDrawable;
 import net.sync.game.round.Round;
+import net.sync.game.round.judge.NoteJudgments;
 import net.sync.game.round.modifier.SpeedModifier;
-import net.sync.game.song.note.Note;
+import net.sync.game.song.Beatmap;
 import net.sync.game.song.note.NotePanel;
 
 public abstract class BaseNoteRenderer implements NoteRenderer {
@@ -39,7 +40,7 @@ public abstract class BaseNoteRenderer implements NoteRenderer {
     }
 
     @Override
-    public void draw(Batch batch, int panel, Note note, double beat, double time, float receptorX, float receptorY) {
+    public void draw(Batch batch, int panel, int note, double beat, double time, float receptorX, float receptorY) {
         if(!isNoteVisible(panel, note, beat, time)) {
             return;
         }
@@ -74,42 +75,42 @@ public abstract class BaseNoteRenderer implements NoteRenderer {
     }
 
     @Override
-    public float getNoteX(int panel, Note note, double beat, double time) {
+    public float getNoteX(int panel, int note, double beat, double time) {
         return 0.0f;
     }
 
     @Override
-    public float getNoteY(int panel, Note note, double beat, double time) {
+    public float getNoteY(int panel, int note, double beat, double time) {
         Drawable drawable = getNoteDrawable(panel, note, beat, time);
         float height = drawable.getMinHeight();
         SpeedModifier speedMod = getRound().getModifiers().getSpeedModifier();
-        return (float) -(height * speedMod.getSpeedAt(beat) * (note.getBeat() - beat));
+        return (float) -(height * speedMod.getSpeedAt(beat) * (getBeatmap().getBeat(panel, note) - beat));
     }
 
     @Override
-    public float getNoteWidth(int panel, Note note, double beat, double time) {
+    public float getNoteWidth(int panel, int note, double beat, double time) {
         Drawable drawable = getNoteDrawable(panel, note, beat, time);
         return drawable != null ? drawable.getMinWidth() : 0;
     }
 
     @Override
-    public float getNoteHeight(int panel, Note note, double beat, double time) {
+    public float getNoteHeight(int panel, int note, double beat, double time) {
         Drawable drawable = getNoteDrawable(panel, note, beat, time);
         return drawable != null ? drawable.getMinHeight() : 0;
     }
 
     @Override
-    public float getNoteScaleX(int panel, Note note, double beat, double time) {
+    public float getNoteScaleX(int panel, int note, double beat, double time) {
         return 1.0f;
     }
 
     @Override
-    public float getNoteScaleY(int panel, Note note, double beat, double time) {
+    public float getNoteScaleY(int panel, int note, double beat, double time) {
         return 1.0f;
     }
 
     @Override
-    public float getNoteRotation(int panel, Note note, double beat, double time) {
+    public float getNoteRotation(int panel, int note, double beat, double time) {
         float rotation = 0.0f; //for panels: down, right_down, center.
         switch(panel) { //rotate texture according to the panel
             case NotePanel.LEFT:
@@ -129,12 +130,12 @@ public abstract class BaseNoteRenderer implements NoteRenderer {
     }
 
     @Override
-    public float getNoteOpacity(int panel, Note note, double beat, double time) {
+    public float getNoteOpacity(int panel, int note, double beat, double time) {
         return 1.0f;
     }
 
     @Override
-    public boolean isNoteInsideView(int panel, Note note, double beat, double time,
+    public boolean isNoteInsideView(int panel, int note, double beat, double time,
                                     float receptorX, float receptorY, float viewWidth, float viewHeight) {
         Drawable drawable = getNoteDrawable(panel, note, beat, time);
         if(drawable == null) { //TODO at this point drawable should not be null
@@ -152,4 +153,20 @@ public abstract class BaseNoteRenderer implements NoteRenderer {
     public Round getRound() {
         return view.getRound();
     }
+
+    /**
+     * Gets the beatmap of the round currently being played.
+     * @return the beatmap.
+     */
+    public Beatmap getBeatmap() {
+        return view.getBeatmap();
+    }
+
+    /**
+     * Gets the judgments of the notes of the round currently being played.
+     * @return the note judgments.
+     */
+    public NoteJudgments getJudgments() {
+        return getRound().getJudge().getJudgments();
+    }
 }
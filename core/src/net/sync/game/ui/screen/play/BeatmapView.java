@@ -27,7 +27,8 @@ import com.badlogic.gdx.scenes.scene2d.ui.Widget;
 import net.sync.game.round.Round;
 import net.sync.game.song.Beatmap;
 import net.sync.game.song.Timing;
-import net.sync.game.song.note.*;
+import net.sync.game.song.note.NotePanel;
+import net.sync.game.song.note.NoteType;
 
 import static net.sync.game.Game.settings;
 
@@ -50,17 +51,24 @@ public class BeatmapView extends Widget {
 
     private int[] panels = NotePanel.getModePanels(settings().getGameMode());
 
+    /* Note cursors indexed by panel, kept between frames */
+    private Beatmap.Cursor[] cursors = new Beatmap.Cursor[NotePanel.COUNT];
+    /* Timing cursor, kept between frames */
+    private Timing.Cursor timing;
+
     public BeatmapView(Round round) {
         super();
         this.round = round;
+        this.timing = round.getTiming().newCursor();
+        for(int panel : panels) {
+            cursors[panel] = getBeatmap().newCursor(panel);
+        }
     }
 
     @Override
     public void draw(Batch batch, float parentAlpha) {
         super.draw(batch, parentAlpha);
 
-        Timing timing = getRound().getTiming();
-
         //Get current time and beat
         double time = getRound().getMusicPosition().getPosition();
         double beat = timing.getBeatAt(time);
@@ -77,7 +85,7 @@ public class BeatmapView extends Widget {
     }
 
     private void drawNotes(Batch batch, int panel, double beat, double time) {
-        Beatmap beatmap = getBeatmap();
+        Beatmap.Cursor cursor = cursors[panel];
 
         //Calculate view x, y, width and height to use for note rendering.
         //View position is relative to the receptor position.
@@ -85,77 +93,60 @@ public class BeatmapView extends Widget {
         float receptorY = receptorRenderer.getReceptorY(panel, beat, time);
         float viewW = getWidth();
         float viewH = getHeight();
-        Note note;
-        NoteRenderer renderer;
 
-        //Get the render starting note
-        note = findStartingNote(panel, beat, time, receptorX, receptorY, viewW, viewH);
+        //Move the cursor to the render starting note
+        if(!seekStartingNote(cursor, beat, time, receptorX, receptorY, viewW, viewH)) {
+            return;
+        }
 
         //Start by rendering the starting note, then render next notes until a note
         //outside the view is found or the end of the beatmap is reached.
-        while(note != null && (renderer = getNoteRenderer(note)).isNoteInsideView(panel, note, beat, time, receptorX, receptorY, viewW, viewH)) {
-            renderer.draw(batch, panel, note, beat, time, receptorX, receptorY);
-            note = beatmap.higherNote(panel, note.getBeat());
-        }
+        do {
+            getNoteRenderer(cursor.getType()).draw(batch, panel, cursor.getIndex(), beat, time, receptorX, receptorY);
+        } while(cursor.next() && isNoteInsideView(cursor, beat, time, receptorX, receptorY, viewW, viewH));
     }
 
     /**
-     * Find the first note that appears inside the view for the given panel. Render will begin from this
+     * Moves the cursor to the first note that appears inside the view. Render will begin from this
      * note and will continue with following notes until reaching a note that renders outside the view.
-     * @param panel the note panel
+     * @param cursor the cursor of the panel notes
      * @param beat the current beat
      * @param time the current time
      * @param receptorX the receptor x position inside the view
      * @param receptorY the receptor y position inside the view
      * @param viewW the view width
      * @param viewH the view height
-     * @return the render starting note, or null if there are no notes to render.
+     * @return true if the cursor is positioned on the render starting note, false if there are no notes to render.
      */
-    private Note findStartingNote(int panel, double beat, double time,
-                                                          float receptorX, float receptorY, float viewW, float viewH) {
-        Beatmap beatmap = getBeatmap();
-
-        if(!beatmap.hasNotes(panel)) {
-            //There is no note inside the beatmap for the given panel.
-            return null;
-        }
-
-        Note note;
-        NoteRenderer renderer;
-
+    private boolean seekStartingNote(Beatmap.Cursor cursor, double beat, double time,
+                                     float receptorX, float receptorY, float viewW, float viewH) {
         //Start by getting the closest floor note and find the
         //first note that does not appear inside the view.
-        note = beatmap.floorNote(panel, beat);
-
-        while(note != null) {
-            renderer = getNoteRenderer(note);
-            if(renderer.isNoteInsideView(panel, note, beat, time, receptorX, receptorY, viewW, viewH)) {
-                note = beatmap.lowerNote(panel, note.getBeat());
-            } else {
-                break;
-            }
+        cursor.seekFloor(beat);
+        while(cursor.hasNote() && isNoteInsideView(cursor, beat, time, receptorX, receptorY, viewW, viewH)) {
+            cursor.previous();
         }
 
-        note = note != null ? beatmap.higherNote(panel, note.getBeat()) : beatmap.firstNote(panel);
-
-        if(note != null) {
-            renderer = getNoteRenderer(note);
-            if(renderer.isNoteInsideView(panel, note, beat, time, receptorX, receptorY, viewW, viewH)) {
-                return note;
-            }
-        }
+        //Next note, or the first note if all the notes before are inside the view.
+        //There is no note to render if it doesn't appear inside the view.
+        return cursor.next() && isNoteInsideView(cursor, beat, time, receptorX, receptorY, viewW, viewH);
+    }
 
-        //There is no note to render inside the view
-        return null;
+    private boolean isNoteInsideView(Beatmap.Cursor cursor, double beat, double time,
+                                     float receptorX, float receptorY, float viewW, float viewH) {
+        return getNoteRenderer(cursor.getType()).isNoteInsideView(cursor.getPanel(), cursor.getIndex(),
+                beat, time, receptorX, receptorY, viewW, viewH);
     }
 
-    private NoteRenderer getNoteRenderer(Note note) {
-        if(note instanceof TapNote)  return tapNoteRenderer;
-        if(note instanceof HoldNote) return holdNoteRenderer;
-        if(note instanceof RollNote) return rollNoteRenderer;
-        if(note instanceof MineNote) return mineNoteRenderer;
-        if(note instanceof LiftNote) return liftNoteRenderer;
-        if(note instanceof FakeNote) return fakeNoteRenderer;
+    private NoteRenderer getNoteRenderer(byte type) {
+        switch(type) {
+            case NoteType.TAP:  return tapNoteRenderer;
+            case NoteType.HOLD: return holdNoteRenderer;
+            case NoteType.ROLL: return rollNoteRenderer;
+            case NoteType.MINE: return mineNoteRenderer;
+            case NoteType.LIFT: return liftNoteRenderer;
+            case NoteType.FAKE: return fakeNoteRenderer;
+        }
         return null;
     }
 
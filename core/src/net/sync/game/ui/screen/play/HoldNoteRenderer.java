@@ -27,10 +27,6 @@ import net.sync.game.resource.lazy.Resource;
 import net.sync.game.round.judge.JudgmentClass;
 import net.sync.game.round.judge.TailJudgment;
 import net.sync.game.round.judge.TapJudgment;
-import net.sync.game.song.note.HoldNote;
-import net.sync.game.song.note.JudgeableLengthyNote;
-import net.sync.game.song.note.LengthyNote;
-import net.sync.game.song.note.Note;
 
 import static net.sync.game.Game.resources;
 
@@ -70,9 +66,8 @@ public class HoldNoteRenderer extends BaseLengthyNoteRenderer {
     }
 
     @Override
-    public Drawable getNoteDrawable(int panel, Note note, double beat, double time) {
-        HoldNote holdNote = (HoldNote) note;
-        switch (holdNote.getResolution()) {
+    public Drawable getNoteDrawable(int panel, int note, double beat, double time) {
+        switch (getBeatmap().getResolution(panel, note)) {
             case NOTE_4TH:   return head4Drawable.get();
             case NOTE_8TH:   return head8Drawable.get();
             case NOTE_12TH:  return head12Drawable.get();
@@ -87,25 +82,24 @@ public class HoldNoteRenderer extends BaseLengthyNoteRenderer {
     }
 
     @Override
-    public Drawable getNoteBodyDrawable(int panel, LengthyNote note, double beat, double time) {
+    public Drawable getNoteBodyDrawable(int panel, int note, double beat, double time) {
         return isActive(panel, note, beat, time) ? bodyActiveDrawable.get() : bodyInactiveDrawable.get();
     }
 
     @Override
-    public Drawable getNoteConnectorDrawable(int panel, LengthyNote note, double beat, double time) {
+    public Drawable getNoteConnectorDrawable(int panel, int note, double beat, double time) {
         return null; //TODO
     }
 
     @Override
-    public Drawable getNoteTailDrawable(int panel, LengthyNote note, double beat, double time) {
+    public Drawable getNoteTailDrawable(int panel, int note, double beat, double time) {
         return isActive(panel, note, beat, time) ? tailActiveDrawable.get() : tailInactiveDrawable.get();
     }
 
     @Override
-    public boolean isNoteVisible(int panel, Note note, double beat, double time) {
-        JudgeableLengthyNote lengthyNote = (JudgeableLengthyNote) note;
-        TapJudgment headJudgment = (TapJudgment) lengthyNote.getJudgment();
-        TailJudgment tailJudgment = (TailJudgment) lengthyNote.getTailJudgment();
+    public boolean isNoteVisible(int panel, int note, double beat, double time) {
+        TapJudgment headJudgment = (TapJudgment) getJudgments().getJudgment(panel, note);
+        TailJudgment tailJudgment = getJudgments().getTailJudgment(panel, note);
         return headJudgment == null                                         //No head judgment
                 || headJudgment.getJudgmentClass() == JudgmentClass.MISS    //Head missed
                 || tailJudgment == null                                     //No tail judgment
@@ -23,7 +23,6 @@
 package net.sync.game.ui.screen.play;
 
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
-import net.sync.game.song.note.LengthyNote;
 
 /**
  * @author Vincenzo Fortunato
@@ -32,64 +31,64 @@ public interface LengthyNoteRenderer extends NoteRenderer {
     /**
      * Gets note tail x position relative to receptor x position.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the note beat.
      * @param time current time relative to the start of the music track.
      * @return the x position relative to the receptor x position.
      */
-    float getTailX(int panel, LengthyNote note, double beat, double time);
+    float getTailX(int panel, int note, double beat, double time);
 
     /**
      * Gets note tail y position relative to receptor y position.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the note beat.
      * @param time current time relative to the start of the music track.
      * @return the y position relative to the receptor y position.
      */
-    float getTailY(int panel, LengthyNote note, double beat, double time);
+    float getTailY(int panel, int note, double beat, double time);
 
     /**
      * Checks if the note is active. For example hold/roll notes are active
      * when the user is holding down the control.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the note beat.
      * @param time current time relative to the start of the music track.
      * @return true if the note is active, false otherwise.
      */
-    boolean isActive(int panel, LengthyNote note, double beat, double time);
+    boolean isActive(int panel, int note, double beat, double time);
 
     /**
      * Gets the note body drawable. That is the drawable that is put after
      * the head and repeated (when necessary) to fill the entire note length.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the note beat.
      * @param time current time relative to the start of the music track.
      * @return the note body drawable.
      */
-    Drawable getNoteBodyDrawable(int panel, LengthyNote note, double beat, double time);
+    Drawable getNoteBodyDrawable(int panel, int note, double beat, double time);
 
     /**
      * Gets the note connector drawable. That is the drawable that is put between the
-     * {@link #getNoteBodyDrawable(int, LengthyNote, double, double)} and the
-     * {@link #getNoteTailDrawable(int, LengthyNote, double, double)} to connect them.
+     * {@link #getNoteBodyDrawable(int, int, double, double)} and the
+     * {@link #getNoteTailDrawable(int, int, double, double)} to connect them.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the note beat.
      * @param time current time relative to the start of the music track.
      * @return the note connector drawable.
      */
-    Drawable getNoteConnectorDrawable(int panel, LengthyNote note, double beat, double time);
+    Drawable getNoteConnectorDrawable(int panel, int note, double beat, double time);
 
     /**
      * Gets the note tail drawable. That is the drawable that is put at the end of the note.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the note beat.
      * @param time current time relative to the start of the music track.
      * @return the note tail drawable.
      */
-    Drawable getNoteTailDrawable(int panel, LengthyNote note, double beat, double time);
+    Drawable getNoteTailDrawable(int panel, int note, double beat, double time);
 }
@@ -23,7 +23,6 @@
 package net.sync.game.ui.screen.play;
 
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
-import net.sync.game.song.note.Note;
 
 public class LiftNoteRenderer extends BaseNoteRenderer {
     public LiftNoteRenderer(BeatmapView view) {
@@ -31,12 +30,12 @@ public class LiftNoteRenderer extends BaseNoteRenderer {
     }
 
     @Override
-    public boolean isNoteVisible(int panel, Note note, double beat, double time) {
+    public boolean isNoteVisible(int panel, int note, double beat, double time) {
         return true;
     }
 
     @Override
-    public Drawable getNoteDrawable(int panel, Note note, double beat, double time) {
+    public Drawable getNoteDrawable(int panel, int note, double beat, double time) {
         return null;
     }
 }
@@ -24,8 +24,7 @@ package net.sync.game.ui.screen.play;
 
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import net.sync.game.resource.lazy.Resource;
-import net.sync.game.song.note.MineNote;
-import net.sync.game.song.note.Note;
+import net.sync.game.round.judge.MineJudgment;
 
 import static net.sync.game.Game.resources;
 
@@ -44,20 +43,20 @@ public class MineNoteRenderer extends BaseNoteRenderer {
     }
 
     @Override
-    public float getNoteRotation(int panel, Note note, double beat, double time) {
+    public float getNoteRotation(int panel, int note, double beat, double time) {
         float degrees = -60f * (float) beat;
         degrees %= 360f;
         return degrees;
     }
 
     @Override
-    public boolean isNoteVisible(int panel, Note note, double beat, double time) {
-        MineNote mineNote = (MineNote) note;
-        return mineNote.getJudgment() == null || !mineNote.getJudgment().hasExploded();
+    public boolean isNoteVisible(int panel, int note, double beat, double time) {
+        MineJudgment judgment = (MineJudgment) getJudgments().getJudgment(panel, note);
+        return judgment == null || !judgment.hasExploded();
     }
 
     @Override
-    public Drawable getNoteDrawable(int panel, Note note, double beat, double time) {
+    public Drawable getNoteDrawable(int panel, int note, double beat, double time) {
         return mineDrawable.get();
     }
 }
@@ -26,120 +26,119 @@ import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import net.sync.game.round.Round;
 import net.sync.game.round.judge.JudgmentClass;
-import net.sync.game.song.note.Note;
 
 public interface NoteRenderer {
     /**
      * Draw a note to the batch. Batch is translated to the view position.
-     * Is called only if {@link #isNoteInsideView(int, Note, double, double, float, float, float, float)} returns true.
+     * Is called only if {@link #isNoteInsideView(int, int, double, double, float, float, float, float)} returns true.
      * @param batch the batch.
      * @param panel the note panel.
-     * @param note the note to draw.
+     * @param note the index of the note to draw.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @param receptorX the receptor x position inside the view.
      * @param receptorY the receptor y position inside the view.
      */
-    void draw(Batch batch, int panel, Note note, double beat, double time, float receptorX, float receptorY);
+    void draw(Batch batch, int panel, int note, double beat, double time, float receptorX, float receptorY);
 
     /**
      * Gets note x position relative to receptor x position.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return the x position relative to the receptor x position.
      */
-    float getNoteX(int panel, Note note, double beat, double time);
+    float getNoteX(int panel, int note, double beat, double time);
 
     /**
      * Gets note y position relative to receptor y position.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return the y position relative to the receptor y position.
      */
-    float getNoteY(int panel, Note note, double beat, double time);
+    float getNoteY(int panel, int note, double beat, double time);
 
     /**
      * Gets unscaled note width.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return the note unscaled width.
      */
-    float getNoteWidth(int panel, Note note, double beat, double time);
+    float getNoteWidth(int panel, int note, double beat, double time);
 
     /**
      * Gets unscaled note height.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return the note unscaled width.
      */
-    float getNoteHeight(int panel, Note note, double beat, double time);
+    float getNoteHeight(int panel, int note, double beat, double time);
 
     /**
      * Gets note scale x.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time current time relative to the start of the music track.
      * @return the note scale x.
      */
-    float getNoteScaleX(int panel, Note note, double beat, double time);
+    float getNoteScaleX(int panel, int note, double beat, double time);
 
     /**
      * Gets note scale y.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return the note scale y.
      */
-    float getNoteScaleY(int panel, Note note, double beat, double time);
+    float getNoteScaleY(int panel, int note, double beat, double time);
 
     /**
      * Gets note rotation in degrees with the origin in the center of the note texture.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return the note rotation in degrees.
      */
-    float getNoteRotation(int panel, Note note, double beat, double time);
+    float getNoteRotation(int panel, int note, double beat, double time);
 
     /**
      * Gets note opacity, a value from 0.0f to 1.0f (inclusive).
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return the note opacity. 0.0f if the note is invisible, 1.0f if the note is fully opaque.
      */
-    float getNoteOpacity(int panel, Note note, double beat, double time);
+    float getNoteOpacity(int panel, int note, double beat, double time);
 
     /**
      * Checks if the given note is visible. If it isn't visible
      * the note will not be drawn. For example, tap notes with a judgment
      * greater than {@link JudgmentClass#GOOD} are invisible.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @return true if the note is visible and must be drawn.
      */
-    boolean isNoteVisible(int panel, Note note, double beat, double time);
+    boolean isNoteVisible(int panel, int note, double beat, double time);
 
     /**
      * Checks if the given note is inside the view.
      * Only notes inside the view will be drawn. It should ignore
      * note properties like opacity and visibility.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time the current time relative to the start of the music track.
      * @param receptorX the receptor x position inside the view.
@@ -148,18 +147,18 @@ public interface NoteRenderer {
      * @param viewHeight the view height.
      * @return true if the given note is inside the view, false otherwise.
      */
-    boolean isNoteInsideView(int panel, Note note, double beat, double time,
+    boolean isNoteInsideView(int panel, int note, double beat, double time,
                              float receptorX, float receptorY, float viewWidth, float viewHeight);
 
     /**
      * Gets note drawable.
      * @param panel the note panel.
-     * @param note the note.
+     * @param note the note index.
      * @param beat the current beat.
      * @param time current time relative to the start of the music track.
      * @return the note drawable.
      */
-    Drawable getNoteDrawable(int panel, Note note, double beat, double time);
+    Drawable getNoteDrawable(int panel, int note, double beat, double time);
 
     /**
      * Gets the round currently being played.
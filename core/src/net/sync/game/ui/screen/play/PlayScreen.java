@@ -34,12 +34,13 @@ import net.sync.game.round.Round;
 import net.sync.game.song.Chart;
 import net.sync.game.song.ChartType;
 import net.sync.game.song.Song;
-import net.sync.game.song.SongLoader;
-import net.sync.game.song.sim.SimParser;
+import net.sync.game.song.sim.SimFile;
 import net.sync.game.ui.Screen;
 
 import static net.sync.game.Game.disposer;
 import static net.sync.game.Game.resources;
+import static net.sync.game.Game.settings;
+import static net.sync.game.Game.songs;
 
 /**
  * @author Vincenzo Fortunato
@@ -87,11 +88,13 @@ public class PlayScreen implements Screen {
             fh = Gdx.files.external(Game.instance().tempFile);
         }
 
-        SongLoader sl = new SongLoader("Test", fh);
-
         try {
-            sl.run();
-            Song song = sl.get();
+            //Load the song in view state, charts already have their beatmap
+            Song preview = new Song();
+            preview.pack = "Test";
+            preview.directory = fh;
+            preview.simFile = SimFile.searchSimFile(fh, format -> settings().getSimFormatPriority(format));
+            Song song = songs().load(preview).get();
             Chart chart = null;
 
             for(Chart c : song.charts) {
@@ -99,9 +102,6 @@ public class PlayScreen implements Screen {
                     chart = c;
                 }
             }
-            SimParser parser = song.simFile.getFormat().newParser();
-            parser.init(song.simFile);
-            chart.beatmap = parser.getChartParser(chart.hash).parseBeatmap();
             FileHandle musicFile;
             if(Gdx.app.getType() == Application.ApplicationType.Desktop) {
                 musicFile = Gdx.files.absolute(song.directory.path() + "/" + song.musicPath);
@@ -24,9 +24,6 @@ package net.sync.game.ui.screen.play;
 
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import net.sync.game.resource.lazy.Resource;
-import net.sync.game.song.note.LengthyNote;
-import net.sync.game.song.note.Note;
-import net.sync.game.song.note.RollNote;
 
 import static net.sync.game.Game.resources;
 
@@ -67,9 +64,8 @@ public class RollNoteRenderer extends BaseLengthyNoteRenderer {
     }
 
     @Override
-    public Drawable getNoteDrawable(int panel, Note note, double beat, double time) {
-        RollNote rollNote = (RollNote) note;
-        switch (rollNote.getResolution()) {
+    public Drawable getNoteDrawable(int panel, int note, double beat, double time) {
+        switch (getBeatmap().getResolution(panel, note)) {
             case NOTE_4TH:   return head4Drawable.get();
             case NOTE_8TH:   return head8Drawable.get();
             case NOTE_12TH:  return head12Drawable.get();
@@ -84,17 +80,17 @@ public class RollNoteRenderer extends BaseLengthyNoteRenderer {
     }
 
     @Override
-    public Drawable getNoteBodyDrawable(int panel, LengthyNote note, double beat, double time) {
+    public Drawable getNoteBodyDrawable(int panel, int note, double beat, double time) {
         return isActive(panel, note, beat, time) ? bodyActiveDrawable.get() : bodyInactiveDrawable.get();
     }
 
     @Override
-    public Drawable getNoteConnectorDrawable(int panel, LengthyNote note, double beat, double time) {
+    public Drawable getNoteConnectorDrawable(int panel, int note, double beat, double time) {
         return null; //TODO
     }
 
     @Override
-    public Drawable getNoteTailDrawable(int panel, LengthyNote note, double beat, double time) {
+    public Drawable getNoteTailDrawable(int panel, int note, double beat, double time) {
         return isActive(panel, note, beat, time) ? tailActiveDrawable.get() : tailInactiveDrawable.get();
     }
 }
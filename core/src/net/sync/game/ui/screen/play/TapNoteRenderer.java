@@ -23,15 +23,11 @@
 package net.sync.game.ui.screen.play;
 
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
-import com.badlogic.gdx.utils.Array;
 import net.sync.game.resource.lazy.Resource;
 import net.sync.game.round.judge.JudgeCriteria;
+import net.sync.game.round.judge.NoteJudgments;
 import net.sync.game.round.judge.TapJudgment;
 import net.sync.game.song.Beatmap;
-import net.sync.game.song.note.ChordNote;
-import net.sync.game.song.note.JudgeableNote;
-import net.sync.game.song.note.Note;
-import net.sync.game.song.note.TapNote;
 
 import static net.sync.game.Game.resources;
 
@@ -65,17 +61,19 @@ public class TapNoteRenderer extends BaseNoteRenderer {
     }
 
     @Override
-    public boolean isNoteVisible(int panel, Note note, double beat, double time) {
-        TapNote tapNote = (TapNote) note;
-        Beatmap beatmap = getRound().getChart().beatmap;
+    public boolean isNoteVisible(int panel, int note, double beat, double time) {
+        Beatmap beatmap = getBeatmap();
+        NoteJudgments judgments = getJudgments();
         JudgeCriteria criteria = getRound().getJudge().getCriteria();
         TapJudgment worstJudgment = null;
 
-        if(criteria.isChordCohesionEnabled() && beatmap.isChord(note.getBeat())) {
-            Array<Note> chordNotes = beatmap.getNotes(note.getBeat(), n -> n instanceof JudgeableNote && n instanceof ChordNote);
-            for(Note chordNote : chordNotes) {
-                JudgeableNote judgeableNote = (JudgeableNote) chordNote;
-                TapJudgment tapJudgment = (TapJudgment) judgeableNote.getJudgment();
+        int noteTick = beatmap.getTick(panel, note);
+        int chordPanels = beatmap.getRowChordPanels(beatmap.rowOfTick(noteTick));
+        if(criteria.isChordCohesionEnabled() && Integer.bitCount(chordPanels) > 1) {
+            for(; chordPanels != 0; chordPanels &= chordPanels - 1) {
+                int chordPanel = Integer.numberOfTrailingZeros(chordPanels);
+                int chordNote = beatmap.indexOfTick(chordPanel, noteTick);
+                TapJudgment tapJudgment = (TapJudgment) judgments.getJudgment(chordPanel, chordNote);
                 if(tapJudgment == null) {
                     //A note inside the chord has not been judged yet
                     return true;
@@ -85,7 +83,7 @@ public class TapNoteRenderer extends BaseNoteRenderer {
                 }
             }
         } else {
-            worstJudgment = tapNote.getJudgment();
+            worstJudgment = (TapJudgment) judgments.getJudgment(panel, note);
         }
 
         if(worstJudgment != null) {
@@ -100,9 +98,8 @@ public class TapNoteRenderer extends BaseNoteRenderer {
     }
 
     @Override
-    public Drawable getNoteDrawable(int panel, Note note, double beat, double time) {
-        TapNote tapNote = (TapNote) note;
-        switch (tapNote.getResolution()) {
+    public Drawable getNoteDrawable(int panel, int note, double beat, double time) {
+        switch (getBeatmap().getResolution(panel, note)) {
             case NOTE_4TH:   return note4Drawable.get();
             case NOTE_8TH:   return note8Drawable.get();
             case NOTE_12TH:  return note12Drawable.get();
@@ -132,4 +132,12 @@ public interface Graph2D extends MathFunction<Double, Double> {
      */
     @Override
     Double f(Double x);
+
+    /**
+     * Same as {@link #f(Double)} without boxing.
+     * @param x the x variable of the function.
+     * @return the image at the given x, or {@link Double#NaN} if the
+     * image is undefined.
+     */
+    double f(double x);
 }
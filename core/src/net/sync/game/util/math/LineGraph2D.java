@@ -24,6 +24,7 @@ package net.sync.game.util.math;
 
 import com.google.common.base.Preconditions;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.TreeMap;
@@ -42,11 +43,17 @@ import java.util.TreeMap;
  * into the end point of the constant segment. So inverting a constant segment with end point left defined
  * will generate a jump left defined into the inverted graph. Setting left defined property on the constant
  * segment end point has the only purpose of defining how the jump of the inverted graph should behave. </p>
+ * <p>The graph is evaluated on segments compiled into primitive arrays the first time it is evaluated
+ * after a change, or when {@link #compile()} is called. Changing a point through the graph methods
+ * discards the compiled segments, points must not be changed directly once the graph has been
+ * evaluated.</p>
  * @author Vincenzo Fortunato
  */
 public class LineGraph2D implements Graph2D {
     private TreeMap<Double, Graph2DPoint> points = new TreeMap<>();
     private int jumpCount = 0;
+    /* Compiled segments, null if the graph changed since the last compilation */
+    private Segments segments;
 
     @Override
     public Graph2DPoint putPoint(Double x, Double y) {
@@ -61,6 +68,7 @@ public class LineGraph2D implements Graph2D {
             jumpCount--;
         }
         points.put(point.x, point);
+        segments = null;
         if(point.isJump()) {
             jumpCount++;
         }
@@ -71,6 +79,7 @@ public class LineGraph2D implements Graph2D {
     public Graph2DPoint removePoint(Double x) {
         Graph2DPoint point = points.remove(x);
         if(point != null) {
+            segments = null;
             if(point.isJump()) {
                 jumpCount--;
             }
@@ -106,9 +115,11 @@ public class LineGraph2D implements Graph2D {
             Double oldJump = point.jump;
             point.jump = amount;
             point.leftDefined = leftDefined;
+            segments = null;
             return oldJump;
         } else if(!amount.equals(0.0D)){
             points.put(x, new Graph2DPoint(x, f(x), amount, leftDefined));
+            segments = null;
             jumpCount++;
         }
         return 0.0D;
@@ -120,6 +131,7 @@ public class LineGraph2D implements Graph2D {
         if(point != null && point.isJump()) {
             Double oldJump = point.jump;
             point.jump = 0.0D;
+            segments = null;
             jumpCount--;
             return oldJump;
         }
@@ -148,46 +160,94 @@ public class LineGraph2D implements Graph2D {
 
     @Override
     public Double f(Double x) {
-        Preconditions.checkState(getPointCount() > 1, "The graph needs at least two points.");
-        Map.Entry<Double, Graph2DPoint> floorEntry, ceilingEntry;
+        return f(x.doubleValue());
+    }
 
-        floorEntry = points.floorEntry(x);
-        if(floorEntry != null) {
-            if(floorEntry.getKey().equals(x)) {
-                Graph2DPoint point = floorEntry.getValue();
-                if(point.leftDefined) {
-                    return point.y;
-                } else {
-                    return point.y + point.jump;
-                }
-            }
+    @Override
+    public double f(double x) {
+        Segments segments = getSegments();
+        int index = Arrays.binarySearch(segments.xs, x);
+        return evaluate(segments, x, index >= 0 ? index : -index - 2);
+    }
 
-            ceilingEntry = points.ceilingEntry(x);
-            if(ceilingEntry == null) {//x is after the last marker point in the map
-                if(floorEntry.getValue().isJump()) {
-                    return Double.NaN; //The function is undefined
-                }
-                ceilingEntry = floorEntry;
-                floorEntry = points.lowerEntry(ceilingEntry.getKey());
+    /**
+     * Creates a cursor that evaluates the graph starting from the segment of the last evaluated x.
+     * @return the cursor.
+     */
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Evaluates the graph at x.
+     * @param floor the index of the last marker point with x less than or equal to the given x,
+     *              or -1 if x is before the first marker point.
+     */
+    private static double evaluate(Segments segments, double x, int floor) {
+        if(floor >= 0 && Double.compare(segments.xs[floor], x) == 0) {
+            //x is a marker point
+            return segments.values[floor];
+        }
+        int segment = floor;
+        if(segment < 0) {
+            //x is before the first marker point
+            if(segments.undefinedBefore) {
+                return Double.NaN;
             }
-        } else {
-            //x is before the first marker point in the map
-            floorEntry = points.firstEntry();
-            if(floorEntry.getValue().isJump()) {
-                return Double.NaN; //The function is undefined
+            segment = 0;
+        } else if(segment >= segments.slopes.length) {
+            //x is after the last marker point
+            if(segments.undefinedAfter) {
+                return Double.NaN;
             }
-            ceilingEntry = points.higherEntry(floorEntry.getKey());
+            segment = segments.slopes.length - 1;
         }
+        return segments.slopes[segment] * x + segments.intercepts[segment];
+    }
+
+    private Segments getSegments() {
+        Segments segments = this.segments;
+        return segments != null ? segments : compileSegments();
+    }
+
+    /**
+     * Compiles the segments used to evaluate the graph. Graphs are compiled on the first evaluation,
+     * call this method to compile a graph ahead of time.
+     */
+    public void compile() {
+        compileSegments();
+    }
 
-        Graph2DPoint floorPoint = floorEntry.getValue();
-        Graph2DPoint ceilingPoint = ceilingEntry.getValue();
-        double x1 = floorPoint.x,
-               x2 = ceilingPoint.x,
-               y1 = floorPoint.y + floorPoint.jump,
-               y2 = ceilingPoint.y,
-               m = (y2 - y1) / (x2 - x1),
-               q = -m * x1 + y1;
-        return m * x + q;
+    private Segments compileSegments() {
+        Preconditions.checkState(getPointCount() > 1, "The graph needs at least two points.");
+        int count = getPointCount();
+        double[] xs = new double[count];
+        double[] values = new double[count];
+        double[] slopes = new double[count - 1];
+        double[] intercepts = new double[count - 1];
+        Graph2DPoint first = null, prevPoint = null;
+        int index = 0;
+        for(Graph2DPoint point : getPoints()) {
+            xs[index] = point.x;
+            values[index] = point.leftDefined ? point.y : point.y + point.jump;
+            if(prevPoint != null) {
+                double x1 = prevPoint.x,
+                       x2 = point.x,
+                       y1 = prevPoint.y + prevPoint.jump,
+                       y2 = point.y,
+                       m = (y2 - y1) / (x2 - x1),
+                       q = -m * x1 + y1;
+                slopes[index - 1] = m;
+                intercepts[index - 1] = q;
+            } else {
+                first = point;
+            }
+            prevPoint = point;
+            index++;
+        }
+        Segments segments = new Segments(xs, values, slopes, intercepts, first.isJump(), prevPoint.isJump());
+        this.segments = segments;
+        return segments;
     }
 
     @Override
@@ -256,4 +316,77 @@ public class LineGraph2D implements Graph2D {
         }
         return invertedGraph;
     }
+
+    /**
+     * The graph compiled into arrays: the marker points x and images, and the slope and
+     * intercept of the line of each segment between consecutive marker points.
+     */
+    private static final class Segments {
+        private final double[] xs;
+        private final double[] values;
+        private final double[] slopes;
+        private final double[] intercepts;
+        private final boolean undefinedBefore;
+        private final boolean undefinedAfter;
+
+        private Segments(double[] xs, double[] values, double[] slopes, double[] intercepts,
+                         boolean undefinedBefore, boolean undefinedAfter) {
+            this.xs = xs;
+            this.values = values;
+            this.slopes = slopes;
+            this.intercepts = intercepts;
+            this.undefinedBefore = undefinedBefore;
+            this.undefinedAfter = undefinedAfter;
+        }
+    }
+
+    /**
+     * Evaluates the graph remembering the segment of the last evaluated x. The next x is searched
+     * by stepping from that segment, a binary search is done only when x is more than a few segments
+     * away. Evaluating x values that move by small amounts, like the time of the frames, doesn't
+     * search the graph. A cursor is not thread safe, each consumer should use its own cursor.
+     */
+    public class Cursor {
+        /* Segments crossed before falling back to a binary search */
+        private static final int MAX_STEPS = 4;
+
+        private int floor = -1;
+
+        private Cursor() {}
+
+        /**
+         * Same as {@link LineGraph2D#f(double)}.
+         * @param x the x variable of the function.
+         * @return the image at the given x, or {@link Double#NaN} if the
+         * image is undefined.
+         */
+        public double f(double x) {
+            Segments segments = getSegments();
+            double[] xs = segments.xs;
+            int floor = Math.min(this.floor, xs.length - 1);
+            if(floor < 0 || Double.compare(xs[floor], x) <= 0) {
+                //Step forward
+                for(int steps = 0; floor + 1 < xs.length && Double.compare(xs[floor + 1], x) <= 0; steps++) {
+                    if(steps == MAX_STEPS) {
+                        int index = Arrays.binarySearch(xs, floor + 1, xs.length, x);
+                        floor = index >= 0 ? index : -index - 2;
+                        break;
+                    }
+                    floor++;
+                }
+            } else {
+                //Step backward
+                for(int steps = 0; floor >= 0 && Double.compare(xs[floor], x) > 0; steps++) {
+                    if(steps == MAX_STEPS) {
+                        int index = Arrays.binarySearch(xs, 0, floor, x);
+                        floor = index >= 0 ? index : -index - 2;
+                        break;
+                    }
+                    floor--;
+                }
+            }
+            this.floor = floor;
+            return evaluate(segments, x, floor);
+        }
+    }
 }
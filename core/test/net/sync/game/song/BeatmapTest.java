@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song;
+
+import net.sync.game.song.note.NotePanel;
+import net.sync.game.song.note.NoteType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BeatmapTest {
+
+    @Test
+    public void testBuilder() {
+        Beatmap beatmap = new Beatmap.Builder()
+                .putNote(NotePanel.LEFT, NoteType.TAP, 3.0D)
+                .putNote(NotePanel.LEFT, NoteType.HOLD, 1.0D, 1.5D)
+                .putNote(NotePanel.LEFT, NoteType.MINE, 2.0D)
+                .putNote(NotePanel.LEFT, NoteType.TAP, 1.0D) //Replaces the hold put before at the same beat
+                .putNote(NotePanel.LEFT, NoteType.ROLL, 0.5D, 0.25D)
+                .putNote(NotePanel.LEFT, NoteType.FAKE, 3.0D) //Replaces the tap put before at the same beat
+                .putNote(NotePanel.DOWN, NoteType.TAP, 0.0D)
+                .putNote(NotePanel.DOWN, NoteType.TAP, 1.0D)
+                .putNote(NotePanel.DOWN, NoteType.LIFT, 1.0D) //Sorted panel, still replaces the tap
+                .build();
+
+        assertEquals(4, beatmap.countNotes(NotePanel.LEFT));
+        assertEquals(Beatmap.toTick(0.5D), beatmap.getTick(NotePanel.LEFT, 0));
+        assertEquals(NoteType.ROLL, beatmap.getType(NotePanel.LEFT, 0));
+        assertEquals(0.25D, beatmap.getLength(NotePanel.LEFT, 0));
+        assertEquals(1.0D, beatmap.getBeat(NotePanel.LEFT, 1));
+        assertEquals(NoteType.TAP, beatmap.getType(NotePanel.LEFT, 1));
+        assertEquals(0, beatmap.getTickLength(NotePanel.LEFT, 1));
+        assertEquals(NoteType.MINE, beatmap.getType(NotePanel.LEFT, 2));
+        assertEquals(3.0D, beatmap.getBeat(NotePanel.LEFT, 3));
+        assertEquals(NoteType.FAKE, beatmap.getType(NotePanel.LEFT, 3));
+
+        assertEquals(2, beatmap.countNotes(NotePanel.DOWN));
+        assertEquals(NoteType.TAP, beatmap.getType(NotePanel.DOWN, 0));
+        assertEquals(NoteType.LIFT, beatmap.getType(NotePanel.DOWN, 1));
+
+        assertFalse(beatmap.hasNotes(NotePanel.UP));
+        assertEquals(-1, beatmap.floorIndex(NotePanel.UP, 10.0D));
+        assertFalse(beatmap.newCursor(NotePanel.UP).next());
+
+        //Rows at 0, 0.5, 1, 2 and 3
+        assertEquals(5, beatmap.countRows());
+        int row = beatmap.rowOfTick(Beatmap.toTick(1.0D));
+        assertEquals(1 << NotePanel.LEFT | 1 << NotePanel.DOWN, beatmap.getRowPanels(row));
+        assertEquals(1 << NotePanel.LEFT, beatmap.getRowChordPanels(row));
+        assertEquals(1 << NoteType.TAP | 1 << NoteType.LIFT, beatmap.getRowTypes(row));
+        assertEquals(-1, beatmap.rowOfTick(Beatmap.toTick(1.5D)));
+    }
+
+    @Test
+    public void testBuilderGrowth() {
+        //More notes than the initial capacity, put backwards
+        Beatmap.Builder builder = new Beatmap.Builder();
+        for(int i = 99; i >= 0; i--) {
+            builder.putNote(NotePanel.CENTER, i % 2 == 0 ? NoteType.TAP : NoteType.MINE, i * 0.25D);
+        }
+        Beatmap beatmap = builder.build();
+        assertEquals(100, beatmap.countNotes(NotePanel.CENTER));
+        for(int i = 0; i < 100; i++) {
+            assertEquals(i * 0.25D, beatmap.getBeat(NotePanel.CENTER, i));
+            assertEquals(i % 2 == 0 ? NoteType.TAP : NoteType.MINE, beatmap.getType(NotePanel.CENTER, i));
+        }
+        assertEquals(100, beatmap.countRows());
+    }
+
+    @Test
+    public void testIndexes() {
+        Beatmap beatmap = newBeatmap();
+        int panel = NotePanel.LEFT;
+        int taps = 1 << NoteType.TAP;
+
+        //Notes: tap 1, mine 2, hold 3, tap 4, mine 5
+        assertEquals(0, beatmap.indexOf(panel, 1.0D));
+        assertEquals(-1, beatmap.indexOf(panel, 1.5D));
+
+        assertEquals(-1, beatmap.floorIndex(panel, 0.5D));
+        assertEquals(0, beatmap.floorIndex(panel, 1.0D));
+        assertEquals(1, beatmap.floorIndex(panel, 2.5D));
+        assertEquals(0, beatmap.floorIndex(panel, 2.5D, taps));
+        assertEquals(3, beatmap.floorIndex(panel, 5.0D, taps));
+        assertEquals(4, beatmap.floorIndex(panel, 100.0D));
+        assertEquals(-1, beatmap.floorIndex(panel, 0.9D, taps));
+
+        assertEquals(0, beatmap.higherIndex(panel, -1.0D));
+        assertEquals(1, beatmap.higherIndex(panel, 1.0D));
+        assertEquals(3, beatmap.higherIndex(panel, 1.0D, taps));
+        assertEquals(2, beatmap.higherIndex(panel, 1.0D, NoteType.LENGTHY));
+        assertEquals(-1, beatmap.higherIndex(panel, 4.0D, taps));
+        assertEquals(-1, beatmap.higherIndex(panel, 5.0D));
+
+        assertEquals(2, beatmap.ceilingIndex(panel, 3.0D));
+        assertEquals(3, beatmap.ceilingIndex(panel, 3.0D, taps));
+        assertEquals(-1, beatmap.lowerIndex(panel, 1.0D));
+        assertEquals(0, beatmap.lowerIndex(panel, 4.0D, taps));
+
+        assertEquals(3, beatmap.nextIndex(panel, 0, taps));
+        assertEquals(-1, beatmap.nextIndex(panel, 4));
+        assertEquals(1, beatmap.previousIndex(panel, 2));
+        assertEquals(-1, beatmap.previousIndex(panel, 0));
+        assertEquals(2, beatmap.previousIndex(panel, 4, NoteType.LENGTHY));
+        assertEquals(-1, beatmap.previousIndex(panel, 2, NoteType.LENGTHY));
+    }
+
+    @Test
+    public void testCursor() {
+        Beatmap beatmap = newBeatmap();
+        int taps = 1 << NoteType.TAP;
+
+        //Before the first note
+        Beatmap.Cursor cursor = beatmap.newCursor(NotePanel.LEFT);
+        assertFalse(cursor.hasNote());
+        assertEquals(-1, cursor.getIndex());
+        assertFalse(cursor.previous());
+        assertTrue(cursor.next());
+        assertEquals(1.0D, cursor.getBeat());
+        assertFalse(cursor.previous());
+        assertFalse(cursor.hasNote());
+        assertTrue(cursor.next());
+        assertEquals(0, cursor.getIndex());
+
+        //After the last note
+        assertTrue(cursor.seekFloor(100.0D));
+        assertEquals(4, cursor.getIndex());
+        assertFalse(cursor.next());
+        assertFalse(cursor.hasNote());
+        assertFalse(cursor.next());
+        assertTrue(cursor.previous());
+        assertEquals(5.0D, cursor.getBeat());
+        assertFalse(cursor.seekHigher(5.0D));
+        assertTrue(cursor.previous());
+        assertEquals(4, cursor.getIndex());
+
+        //Seeks from the current note, backward and forward
+        assertFalse(cursor.seekFloor(0.5D));
+        assertTrue(cursor.next());
+        assertEquals(0, cursor.getIndex());
+        assertTrue(cursor.seekHigher(2.0D));
+        assertEquals(3.0D, cursor.getBeat());
+        assertEquals(NoteType.HOLD, cursor.getType());
+        assertEquals(2.0D, cursor.getLength());
+        assertTrue(cursor.seekFloor(2.9D));
+        assertEquals(2.0D, cursor.getBeat());
+        assertTrue(cursor.seekHigher(0.0D));
+        assertEquals(0, cursor.getIndex());
+        assertTrue(cursor.seekCeiling(4.0D));
+        assertEquals(4.0D, cursor.getBeat());
+        assertTrue(cursor.seekLower(4.0D));
+        assertEquals(2, cursor.getIndex());
+
+        //Cursor that skips the notes of other types
+        Beatmap.Cursor tapCursor = beatmap.newCursor(NotePanel.LEFT, taps);
+        assertTrue(tapCursor.next());
+        assertEquals(0, tapCursor.getIndex());
+        assertTrue(tapCursor.next());
+        assertEquals(3, tapCursor.getIndex());
+        assertFalse(tapCursor.next());
+        assertTrue(tapCursor.previous());
+        assertEquals(3, tapCursor.getIndex());
+        assertTrue(tapCursor.previous());
+        assertEquals(0, tapCursor.getIndex());
+        assertFalse(tapCursor.previous());
+        assertTrue(tapCursor.seekFloor(3.0D));
+        assertEquals(0, tapCursor.getIndex());
+        assertTrue(tapCursor.seekHigher(1.0D));
+        assertEquals(3, tapCursor.getIndex());
+        assertFalse(tapCursor.seekHigher(4.0D));
+        tapCursor.reset();
+        assertFalse(tapCursor.hasNote());
+        assertTrue(tapCursor.next());
+        assertEquals(0, tapCursor.getIndex());
+    }
+
+    @Test
+    public void testCursorGallop() {
+        Beatmap.Builder builder = new Beatmap.Builder();
+        for(int i = 0; i < 1000; i++) {
+            builder.putNote(NotePanel.UP, NoteType.TAP, i / 4.0D);
+        }
+        Beatmap beatmap = builder.build();
+        Beatmap.Cursor cursor = beatmap.newCursor(NotePanel.UP);
+        double[] beats = {10.0D, 10.1D, 200.0D, 12.0D, 0.0D, 249.75D, 249.8D, 3.3D, 3.4D, -1.0D, 123.45D};
+        for(double beat : beats) {
+            assertEquals(beatmap.floorIndex(NotePanel.UP, beat), cursor.seekFloor(beat) ? cursor.getIndex() : -1);
+            assertEquals(beatmap.higherIndex(NotePanel.UP, beat), cursor.seekHigher(beat) ? cursor.getIndex() : -1);
+            assertEquals(beatmap.ceilingIndex(NotePanel.UP, beat), cursor.seekCeiling(beat) ? cursor.getIndex() : -1);
+            assertEquals(beatmap.lowerIndex(NotePanel.UP, beat), cursor.seekLower(beat) ? cursor.getIndex() : -1);
+        }
+    }
+
+    @Test
+    public void testRoundedBeats() {
+        //Beats computed adding thirds of beat, the 39th is 12.999999999999996 instead of 13
+        double beat = 0.0D;
+        for(int i = 0; i < 39; i++) {
+            beat += 1.0D / 3.0D;
+        }
+        assertNotEquals(13.0D, beat);
+        //Beats computed as a fraction of a measure, the 10th row of a 36 rows measure
+        double measureBeat = 12.0D + 9 * (4.0D / 36.0D);
+
+        Beatmap beatmap = new Beatmap.Builder()
+                .putNote(NotePanel.LEFT, NoteType.TAP, beat)
+                .putNote(NotePanel.RIGHT, NoteType.HOLD, 13.0D, 1.0D)
+                .putNote(NotePanel.DOWN, NoteType.MINE, 13.0D - 1e-9D)
+                .putNote(NotePanel.UP, NoteType.TAP, measureBeat)
+                .putNote(NotePanel.CENTER, NoteType.TAP, 13.0D + 1.0D / 192.0D)
+                .build();
+
+        assertEquals(13.0D, beatmap.getBeat(NotePanel.LEFT, 0));
+        assertEquals(13 * Beatmap.TICKS_PER_BEAT, beatmap.getTick(NotePanel.LEFT, 0));
+        assertEquals(0, beatmap.indexOf(NotePanel.LEFT, 13.0D));
+        assertEquals(0, beatmap.indexOf(NotePanel.RIGHT, beat));
+        assertEquals(0, beatmap.floorIndex(NotePanel.LEFT, 13.0D));
+        assertEquals(-1, beatmap.higherIndex(NotePanel.LEFT, 13.0D));
+        assertEquals(-1, beatmap.higherIndex(NotePanel.LEFT, beat));
+        assertEquals(0, beatmap.floorIndex(NotePanel.DOWN, beat));
+
+        //Notes at 12.999... and 13 make a single row, the mine isn't part of the chord
+        assertEquals(2, beatmap.countRows());
+        int row = beatmap.rowOfTick(Beatmap.toTick(beat));
+        assertEquals(13 * Beatmap.TICKS_PER_BEAT, beatmap.getRowTick(row));
+        assertEquals(1 << NotePanel.LEFT | 1 << NotePanel.RIGHT | 1 << NotePanel.DOWN | 1 << NotePanel.UP,
+                beatmap.getRowPanels(row));
+        assertEquals(1 << NoteType.TAP | 1 << NoteType.HOLD | 1 << NoteType.MINE, beatmap.getRowTypes(row));
+        assertEquals(3, beatmap.getChordSize(beat));
+        assertEquals(3, beatmap.getChordSize(13.0D));
+        assertTrue(beatmap.isChord(13.0D - 1e-9D));
+        assertEquals(1, beatmap.countChords(3));
+        assertEquals(1, beatmap.countChords(2));
+        assertEquals(2, beatmap.countChords(1));
+
+        //The note a tick later is a row of its own
+        assertEquals(1, beatmap.getChordSize(13.0D + 1.0D / 192.0D));
+        assertFalse(beatmap.isChord(13.0D + 1.0D / 192.0D));
+        assertEquals(0, beatmap.getChordSize(12.5D));
+
+        Beatmap.Cursor cursor = beatmap.newCursor(NotePanel.RIGHT);
+        assertTrue(cursor.seekFloor(beat));
+        assertEquals(14.0D, cursor.getBeat() + cursor.getLength());
+        assertFalse(cursor.seekHigher(beat));
+    }
+
+    /**
+     * @return a beatmap with notes on the left panel: tap at 1, mine at 2, hold at 3, tap at 4 and mine at 5.
+     */
+    private static Beatmap newBeatmap() {
+        return new Beatmap.Builder()
+                .putNote(NotePanel.LEFT, NoteType.TAP, 1.0D)
+                .putNote(NotePanel.LEFT, NoteType.MINE, 2.0D)
+                .putNote(NotePanel.LEFT, NoteType.HOLD, 3.0D, 2.0D)
+                .putNote(NotePanel.LEFT, NoteType.TAP, 4.0D)
+                .putNote(NotePanel.LEFT, NoteType.MINE, 5.0D)
+                .build();
+    }
+}
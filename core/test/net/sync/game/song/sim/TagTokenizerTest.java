@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2020 Vincenzo Fortunato.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.sync.game.song.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that tags and chart hashes are the same of the regular expression based parsing.
+ */
+public class TagTokenizerTest {
+    /** Pattern that matched the #TAG:VALUE; syntax before the tokenizer **/
+    private static final Pattern TAG_PATTERN = Pattern.compile("#\\s*([^:]+?)\\s*:\\s*([^;]*?)\\s*;");
+
+    private static final String SM = "// Comment before the tags #IGNORED:tag;\r\n" +
+            "#TITLE: Song \u3042 \uD83C\uDFB5 ;\r\n" +
+            "#SUBTITLE:;\r\n" +
+            "#  ARTIST  :\tArtist // comment inside the value\r\n   ;\n" +
+            "#CREDIT:http://example.com;\n" +
+            "#GENRE:a/b;#BANNER:banner.png;///triple slash\n" +
+            "#   :spaces only name;\n" +
+            "#:empty name;\n" +
+            "#SEL#ECTABLE:YES;\n" +
+            "#BPMS:0.000=120.000\n,4.000=240.000;\n" +
+            "#STOPS:;\n" +
+            "#NOTES:\n" +
+            "     dance-single:\n" +
+            "     Author // with a comment\n" +
+            "     :\n" +
+            "     Easy:\n" +
+            "     3:\n" +
+            "     0.1,0.2,0.3,0.4,0.5:\n" +
+            "0000 // first measure\n1000\n0100\n0010\n,\n0001\n0000\n0000\n0000\n;\n" +
+            "#NOTES:\n" +
+            "     dance-single:\n" +
+            "     :\n" +
+            "     Hard:\n" +
+            "     9:\n" +
+            "     :\n" +
+            "1111\n0000\n0000\n0000\n;\n" +
+            "#NOTES:dance-single::Edit:12::1000\n0000\n0000\n0000 #unterminated// ; in comment\n";
+
+    private static final String SSC = "#VERSION:0.83;\n" +
+            "#TITLE:\u30BF\u30A4\u30C8\u30EB;\n" +
+            "#OFFSET:-0.009;\n" +
+            "#BPMS:0.000=150.000;\n" +
+            "#NOTEDATA:;\n" +
+            "#STEPSTYPE:dance-single; // style\n" +
+            "#DIFFICULTY:  Beginner  ;\n" +
+            "#METER:1;\n" +
+            "#NOTES:\n0000\n1000\n0000\n0000\n;\n" +
+            "#NOTEDATA:;\n" +
+            "#STEPSTYPE:dance-double;\n" +
+            "#DIFFICULTY:Challenge;\n" +
+            "#BPMS:0.000=150.000,8.000=300.000;\n" +
+            "#METER:14;\n" +
+            "#NOTES:\n00000000\n10000001\n00000000\n00000000\n;\n" +
+            "#NOTEDATA:;\n" +
+            "#STEPSTYPE:dance-single;\n" +
+            "#NOTES:\n0000\n0000\n0000\n0000";
+
+    private static final String DWI = "#TITLE:Title \u00E8;\n" +
+            "#ARTIST:Artist;\n" +
+            "#BPM:140.000;\n" +
+            "#GAP:120;\n" +
+            "#CHANGEBPM:16.000=70.000;\n" +
+            "// #SINGLE:BASIC:1:commented;\n" +
+            "#SINGLE:BASIC:3:\n" +
+            "00000000 // comment\n" +
+            "24682468:\n" +
+            "00000000;\n" +
+            "#DOUBLE : ANOTHER : 7 : 24682468 : 86428642 ;\n" +
+            "#SOLO:MANIAC:10:0000";
+
+    @Test
+    public void testTags() {
+        assertSameTags(SM);
+        assertSameTags(SSC);
+        assertSameTags(DWI);
+        assertSameTags("");
+        assertSameTags("//");
+        assertSameTags("#A:b// comment at the end");
+        assertSameTags("#A//:b;\n:c;");
+        assertSameTags("#A\n#B:c;#D:e#F:g;#H:");
+        assertSameTags(" \t#\tA\t:\t\t;#B\u000B:\fc\r;");
+        assertSameTags("#A:b\u0085//c\u2028#D:e//f\u2029;#G:h;");
+        assertSameTags("#A:\uD83C\uDFB5//\uD83C\uDFB5\n\uD83C;#B:\uDFB5;");
+    }
+
+    @Test
+    public void testHash() {
+        //Long values are encoded a chunk at a time
+        StringBuilder longValue = new StringBuilder();
+        for(int i = 0; i < 4000; i++) {
+            longValue.append(i % 7 == 0 ? "\u3042" : "0");
+        }
+        for(String content : new String[] {SM, SSC, DWI, "#A:" + longValue + ";", "#A:\uD83C;#B:x\uDFB5y;"}) {
+            TagTokenizer tags = tokenize(content);
+            for(int i = 0; i < tags.size(); i++) {
+                String tag = tags.getString(tags.getStart(i), tags.getEnd(i));
+                Hasher hasher = Hashing.sha256().newHasher();
+                tags.putChars(hasher, tags.getStart(i), tags.getEnd(i));
+                assertEquals(Hashing.sha256().hashBytes(tag.getBytes()), hasher.hash());
+
+                hasher = Hashing.sha256().newHasher();
+                tags.putChars(hasher, tags.getValueStart(i), tags.getValueEnd(i));
+                tags.putChars(hasher, ":");
+                tags.putChars(hasher, tags.getName(i));
+                assertEquals(Hashing.sha256().hashBytes((tags.getValue(i) + ":" + tags.getName(i)).getBytes()),
+                        hasher.hash());
+            }
+        }
+    }
+
+    @Test
+    public void testChartHashes(@TempDir File directory) throws Exception {
+        //SM charts hashed by the value of the NOTES tags
+        List<String> expected = new ArrayList<>();
+        for(String[] tag : regexTags(SM)) {
+            if(tag[0].equalsIgnoreCase("NOTES")) {
+                expected.add(hash(tag[1]));
+            }
+        }
+        assertEquals(2, expected.size());
+        assertEquals(expected, chartHashes(new SMParser(), writeSimFile(directory, "song.sm", SM)));
+
+        //SSC charts hashed by the tags after each NOTEDATA tag
+        expected.clear();
+        StringBuilder chart = null;
+        for(String[] tag : regexTags(SSC)) {
+            if(tag[0].equalsIgnoreCase("NOTEDATA")) {
+                if(chart != null) {
+                    expected.add(hash(chart.toString()));
+                }
+                chart = new StringBuilder();
+            } else if(chart != null) {
+                chart.append(tag[2]);
+            }
+        }
+        expected.add(hash(chart.toString()));
+        assertEquals(3, expected.size());
+        assertEquals(expected, chartHashes(new SSCParser(), writeSimFile(directory, "song.ssc", SSC)));
+
+        //DWI charts hashed by the style and the value of their tags
+        expected.clear();
+        for(String[] tag : regexTags(DWI)) {
+            if(Arrays.asList("SINGLE", "DOUBLE", "COUPLE", "SOLO").contains(tag[0].toUpperCase())) {
+                expected.add(hash(tag[0] + ":" + tag[1]));
+            }
+        }
+        assertEquals(2, expected.size());
+        assertEquals(expected, chartHashes(new DWIParser(), writeSimFile(directory, "song.dwi", DWI)));
+    }
+
+    /**
+     * Compares the tags with the ones matched by the pattern once comments have been removed.
+     */
+    private static void assertSameTags(String content) {
+        TagTokenizer tags = tokenize(content);
+        String compacted = content.replaceAll("//.*", "");
+        assertEquals(compacted, tags.getString(0, tags.getLength()));
+
+        //Positions in bytes are only meaningful for content decoded from UTF-8, without lone surrogates
+        boolean decodable = content.equals(new String(content.getBytes(Charsets.UTF_8), Charsets.UTF_8));
+        List<String[]> expected = regexTags(content);
+        assertEquals(expected.size(), tags.size());
+        for(int i = 0; i < tags.size(); i++) {
+            assertEquals(expected.get(i)[0], tags.getName(i));
+            assertEquals(expected.get(i)[1], tags.getValue(i));
+            assertEquals(expected.get(i)[2], tags.getString(tags.getStart(i), tags.getEnd(i)));
+            assertTrue(tags.isName(i, expected.get(i)[0].toLowerCase()));
+            assertFalse(tags.isName(i, expected.get(i)[0] + "S"));
+
+            //Positions in the original content, in chars and in UTF-8 bytes
+            String source = content.substring(tags.getSourceStart(i), tags.getSourceEnd(i));
+            assertEquals(expected.get(i)[2], source.replaceAll("//.*", ""));
+            if(decodable) {
+                assertEquals(content.substring(0, tags.getSourceStart(i)).getBytes(Charsets.UTF_8).length,
+                        tags.getSourceUtf8Start(i));
+                assertEquals(content.substring(0, tags.getSourceEnd(i)).getBytes(Charsets.UTF_8).length,
+                        tags.getSourceUtf8End(i));
+            }
+        }
+    }
+
+    /**
+     * @return name, value and whole tag of each tag matched by the pattern once comments have been removed.
+     */
+    private static List<String[]> regexTags(String content) {
+        List<String[]> tags = new ArrayList<>();
+        Matcher matcher = TAG_PATTERN.matcher(content.replaceAll("//.*", ""));
+        while(matcher.find()) {
+            tags.add(new String[] {matcher.group(1), matcher.group(2), matcher.group()});
+        }
+        return tags;
+    }
+
+    private static TagTokenizer tokenize(String content) {
+        char[] buffer = content.toCharArray();
+        return new TagTokenizer(buffer, buffer.length);
+    }
+
+    private static String hash(String chartRawData) {
+        return Hashing.sha256().hashBytes(chartRawData.getBytes()).toString();
+    }
+
+    private static SimFile writeSimFile(File directory, String name, String content) {
+        FileHandle file = new FileHandle(new File(directory, name));
+        file.writeString(content, false, Charsets.UTF_8.name());
+        return new SimFile(file);
+    }
+
+    private static List<String> chartHashes(SimParser parser, SimFile simFile) throws SimParseException {
+        parser.init(simFile);
+        List<String> hashes = new ArrayList<>();
+        for(SimChartParser chartParser : parser.getChartParsers()) {
+            hashes.add(chartParser.getHash());
+        }
+        return hashes;
+    }
+}
@@ -24,7 +24,12 @@ package net.sync.game.util.math;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FunctionTest {
 
@@ -46,4 +51,187 @@ public class FunctionTest {
         assertEquals(function.f(3.0001D), true);
         assertEquals(function.f(3.56D), false);
     }
+
+    @Test
+    public void testLineGraph() {
+        //Line, constant segment (stop), jump right defined (warp), jump left defined, line
+        LineGraph2D graph = new LineGraph2D();
+        graph.putPoint(0.0D, 0.0D);
+        graph.putPoint(1.0D, 2.0D);
+        graph.putPoint(3.0D, 2.0D);
+        graph.putPoint(new Graph2DPoint(4.0D, 4.0D, 3.0D, false));
+        graph.putPoint(new Graph2DPoint(5.0D, 8.0D, -1.0D, true));
+        graph.putPoint(7.0D, 9.0D);
+
+        assertEquals(0.0D, graph.f(0.0D));
+        assertEquals(1.0D, graph.f(0.5D));
+        assertEquals(2.0D, graph.f(1.0D));
+        assertEquals(2.0D, graph.f(2.0D));
+        assertEquals(2.0D, graph.f(3.0D));
+        assertEquals(3.0D, graph.f(3.5D));
+        assertEquals(7.0D, graph.f(4.0D)); //Right limit
+        assertEquals(7.5D, graph.f(4.5D));
+        assertEquals(8.0D, graph.f(5.0D)); //Left limit
+        assertEquals(8.0D, graph.f(6.0D));
+        assertEquals(9.0D, graph.f(7.0D));
+        assertEquals(-2.0D, graph.f(-1.0D)); //Before the first point, line of the first segment
+        assertEquals(10.0D, graph.f(8.0D)); //After the last point, line of the last segment
+        assertEquals(graph.f(4.5D), graph.f(Double.valueOf(4.5D)));
+
+        assertMatchesTreeMapGraph(graph);
+    }
+
+    @Test
+    public void testLineGraphUndefinedEnds() {
+        LineGraph2D graph = new LineGraph2D();
+        graph.putPoint(new Graph2DPoint(0.0D, 0.0D, 1.0D, false));
+        graph.putPoint(1.0D, 2.0D);
+        graph.putPoint(new Graph2DPoint(2.0D, 3.0D, 2.0D, true));
+
+        assertTrue(Double.isNaN(graph.f(-0.5D)));
+        assertEquals(1.0D, graph.f(0.0D));
+        assertEquals(3.0D, graph.f(2.0D));
+        assertTrue(Double.isNaN(graph.f(2.5D)));
+        assertTrue(Double.isNaN(graph.newCursor().f(-0.5D)));
+        assertTrue(Double.isNaN(graph.newCursor().f(2.5D)));
+
+        assertMatchesTreeMapGraph(graph);
+    }
+
+    @Test
+    public void testLineGraphInverted() {
+        //Constant segments turn into jumps and jumps into constant segments
+        LineGraph2D graph = new LineGraph2D();
+        graph.putPoint(0.0D, 0.0D);
+        graph.putPoint(1.0D, 1.0D);
+        graph.putPoint(new Graph2DPoint(2.0D, 1.0D, 0.0D, true));
+        graph.putPoint(new Graph2DPoint(3.0D, 2.0D, 2.0D, false));
+        graph.putPoint(5.0D, 5.0D);
+        LineGraph2D inverted = graph.invert();
+
+        assertEquals(0.5D, inverted.f(0.5D));
+        assertEquals(1.0D, inverted.f(1.0D)); //Left limit of the jump from the constant segment
+        assertEquals(2.5D, inverted.f(1.5D));
+        assertEquals(3.0D, inverted.f(3.0D)); //Constant segment from the jump
+        assertEquals(4.0D, inverted.f(4.5D));
+        assertMatchesTreeMapGraph(inverted);
+    }
+
+    @Test
+    public void testLineGraphChanged() {
+        LineGraph2D graph = new LineGraph2D();
+        graph.putPoint(0.0D, 0.0D);
+        graph.putPoint(1.0D, 1.0D);
+        LineGraph2D.Cursor cursor = graph.newCursor();
+        assertEquals(2.0D, cursor.f(2.0D));
+
+        //Compiled segments are discarded when a point changes
+        graph.putPoint(2.0D, 4.0D);
+        assertEquals(4.0D, graph.f(2.0D));
+        assertEquals(4.0D, cursor.f(2.0D));
+        graph.putJump(1.0D, 1.0D, false);
+        assertEquals(2.0D, cursor.f(1.0D));
+        graph.removePoint(2.0D);
+        assertTrue(Double.isNaN(cursor.f(2.0D))); //The last point is now a jump
+        assertMatchesTreeMapGraph(graph);
+    }
+
+    @Test
+    public void testLineGraphCursor() {
+        Random random = new Random(42);
+        LineGraph2D graph = new LineGraph2D();
+        double x = 0.0D, y = 0.0D;
+        for(int i = 0; i < 200; i++) {
+            double jump = random.nextInt(4) == 0 ? random.nextDouble() * 2.0D : 0.0D;
+            graph.putPoint(new Graph2DPoint(x, y, jump, random.nextBoolean()));
+            x += random.nextInt(3) == 0 ? 0.25D : random.nextDouble() * 4.0D;
+            y += jump + (random.nextInt(3) == 0 ? 0.0D : random.nextDouble() * 4.0D);
+        }
+        double last = x;
+
+        //Small steps forward and backward, seeks far away, marker points and points outside the graph
+        LineGraph2D.Cursor cursor = graph.newCursor();
+        double[] seeks = {-10.0D, -0.001D, 0.0D, last / 2, 0.1D, last + 10.0D, 1.0D, last, 5.0D, 4.0D, -1.0D};
+        for(double seek : seeks) {
+            assertCursorMatches(graph, cursor, seek);
+        }
+        double position = -1.0D;
+        for(int i = 0; i < 5000; i++) {
+            position += random.nextInt(10) == 0 ? -random.nextDouble() * 2.0D : random.nextDouble() * 0.3D;
+            assertCursorMatches(graph, cursor, position);
+        }
+        for(Graph2DPoint point : graph.getPoints()) {
+            assertCursorMatches(graph, cursor, point.x);
+            assertCursorMatches(graph, cursor, Math.nextDown(point.x));
+            assertCursorMatches(graph, cursor, Math.nextUp(point.x));
+        }
+        for(int i = 0; i < 5000; i++) {
+            assertCursorMatches(graph, cursor, random.nextDouble() * (last + 20.0D) - 10.0D);
+        }
+    }
+
+    private static void assertCursorMatches(LineGraph2D graph, LineGraph2D.Cursor cursor, double x) {
+        double expected = treeMapGraphF(graph, x);
+        assertEquals(expected, graph.f(x), "f(" + x + ")");
+        assertEquals(expected, cursor.f(x), "cursor f(" + x + ")");
+    }
+
+    /**
+     * Checks that the graph returns the same images of the TreeMap based evaluation, on marker
+     * points, right next to them, between them and outside the graph.
+     */
+    private static void assertMatchesTreeMapGraph(LineGraph2D graph) {
+        LineGraph2D.Cursor cursor = graph.newCursor();
+        for(Graph2DPoint point : graph.getPoints()) {
+            for(double x : new double[] {point.x - 1.0D, Math.nextDown(point.x), point.x, Math.nextUp(point.x),
+                    point.x + 0.3D, point.x + 1.0D}) {
+                assertCursorMatches(graph, cursor, x);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the graph searching its marker points with a TreeMap, as the graph did
+     * before it was compiled into segments.
+     */
+    private static double treeMapGraphF(Graph2D graph, double x) {
+        TreeMap<Double, Graph2DPoint> points = new TreeMap<>();
+        for(Graph2DPoint point : graph.getPoints()) {
+            points.put(point.x, point);
+        }
+        Map.Entry<Double, Graph2DPoint> floorEntry, ceilingEntry;
+
+        floorEntry = points.floorEntry(x);
+        if(floorEntry != null) {
+            if(floorEntry.getKey().equals(x)) {
+                Graph2DPoint point = floorEntry.getValue();
+                return point.leftDefined ? point.y : point.y + point.jump;
+            }
+
+            ceilingEntry = points.ceilingEntry(x);
+            if(ceilingEntry == null) {
+                if(floorEntry.getValue().isJump()) {
+                    return Double.NaN;
+                }
+                ceilingEntry = floorEntry;
+                floorEntry = points.lowerEntry(ceilingEntry.getKey());
+            }
+        } else {
+            floorEntry = points.firstEntry();
+            if(floorEntry.getValue().isJump()) {
+                return Double.NaN;
+            }
+            ceilingEntry = points.higherEntry(floorEntry.getKey());
+        }
+
+        Graph2DPoint floorPoint = floorEntry.getValue();
+        Graph2DPoint ceilingPoint = ceilingEntry.getValue();
+        double x1 = floorPoint.x,
+               x2 = ceilingPoint.x,
+               y1 = floorPoint.y + floorPoint.jump,
+               y2 = ceilingPoint.y,
+               m = (y2 - y1) / (x2 - x1),
+               q = -m * x1 + y1;
+        return m * x + q;
+    }
 }